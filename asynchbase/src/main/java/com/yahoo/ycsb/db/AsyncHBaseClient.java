@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import org.hbase.async.Bytes;
 import org.hbase.async.Config;
@@ -35,6 +36,9 @@ import org.hbase.async.KeyValue;
 import org.hbase.async.PutRequest;
 import org.hbase.async.Scanner;
 
+import com.stumbleupon.async.Callback;
+import com.stumbleupon.async.Deferred;
+
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
@@ -49,8 +53,11 @@ import static com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT;
  * This client provides a subset of the main HBase client and uses a completely
  * asynchronous pipeline for all calls. It is particularly useful for write heavy
  * workloads. It is also compatible with all production versions of HBase. 
+ *
+ * When the client runs with "async=true" the non-blocking methods are used so each
+ * client thread can keep several requests in flight.
  */
-public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
+public class AsyncHBaseClient extends com.yahoo.ycsb.AsyncDB {
   public static final Charset UTF8_CHARSET = Charset.forName("UTF8");
   private static final String CLIENT_SIDE_BUFFERING_PROPERTY = "clientbuffering";
   private static final String DURABILITY_PROPERTY = "durability";
@@ -385,6 +392,150 @@ public class AsyncHBaseClient extends com.yahoo.ycsb.DB {
     return Status.OK;
   }
 
+  @Override
+  public CompletableFuture<Status> readAsync(String table, final String key, Set<String> fields,
+                                             final Map<String, ByteIterator> result) {
+    setTable(table);
+
+    final GetRequest get = new GetRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
+    if (fields != null) {
+      get.qualifiers(getQualifierList(fields));
+    }
+
+    return toFuture(key, client.get(get), row -> {
+        if (row == null || row.isEmpty()) {
+          return Status.NOT_FOUND;
+        }
+        for (final KeyValue column : row) {
+          result.put(new String(column.qualifier()),
+              new ByteArrayByteIterator(column.value()));
+        }
+        return Status.OK;
+      });
+  }
+
+  @Override
+  public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    setTable(table);
+
+    final Scanner scanner = client.newScanner(lastTableBytes);
+    scanner.setFamily(columnFamilyBytes);
+    scanner.setStartKey(startkey.getBytes(UTF8_CHARSET));
+    if (fields != null) {
+      scanner.setQualifiers(getQualifierList(fields));
+    }
+
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    nextRows(startkey, scanner, recordcount, result, future);
+    return future;
+  }
+
+  /**
+   * Fetch the next batch of rows for an asynchronous scan, chaining further batches until
+   * the scanner is exhausted or enough rows have been collected.
+   */
+  private void nextRows(final String startkey, final Scanner scanner, final int recordcount,
+      final Vector<HashMap<String, ByteIterator>> result, final CompletableFuture<Status> future) {
+    scanner.nextRows().addCallbacks(rows -> {
+        if (rows != null) {
+          for (final ArrayList<KeyValue> row : rows) {
+            final HashMap<String, ByteIterator> rowResult =
+                new HashMap<String, ByteIterator>(row.size());
+            for (final KeyValue column : row) {
+              rowResult.put(new String(column.qualifier()),
+                  new ByteArrayByteIterator(column.value()));
+            }
+            result.add(rowResult);
+            if (result.size() >= recordcount) {
+              break;
+            }
+          }
+        }
+        if (rows == null || result.size() >= recordcount) {
+          scanner.close();
+          future.complete(Status.OK);
+        } else {
+          nextRows(startkey, scanner, recordcount, result, future);
+        }
+        return null;
+      }, (Exception e) -> {
+        System.err.println("Failure reading from row with key " + startkey +
+            ": " + e.getMessage());
+        scanner.close();
+        future.complete(Status.ERROR);
+        return null;
+      });
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(String table, String key,
+                                               Map<String, ByteIterator> values) {
+    setTable(table);
+
+    final byte[][] qualifiers = new byte[values.size()][];
+    final byte[][] byteValues = new byte[values.size()][];
+
+    int idx = 0;
+    for (final Entry<String, ByteIterator> entry : values.entrySet()) {
+      qualifiers[idx] = entry.getKey().getBytes();
+      byteValues[idx++] = entry.getValue().toArray();
+    }
+
+    final PutRequest put = new PutRequest(lastTableBytes, key.getBytes(),
+        columnFamilyBytes, qualifiers, byteValues);
+    if (!durability) {
+      put.setDurable(false);
+    }
+    if (!clientSideBuffering) {
+      put.setBufferable(false);
+    }
+    return toFuture(key, client.put(put), ignored -> Status.OK);
+  }
+
+  @Override
+  public CompletableFuture<Status> insertAsync(String table, String key,
+                                               Map<String, ByteIterator> values) {
+    return updateAsync(table, key, values);
+  }
+
+  @Override
+  public CompletableFuture<Status> deleteAsync(String table, String key) {
+    setTable(table);
+
+    final DeleteRequest delete = new DeleteRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
+    if (!durability) {
+      delete.setDurable(false);
+    }
+    if (!clientSideBuffering) {
+      delete.setBufferable(false);
+    }
+    return toFuture(key, client.delete(delete), ignored -> Status.OK);
+  }
+
+  /**
+   * Little helper to complete a future from a deferred HBase call.
+   * @param key The row key, for error reporting.
+   * @param deferred The pending call.
+   * @param onSuccess Maps the call's result to a status.
+   * @return A future completed with the status of the call, or ERROR if it failed.
+   */
+  private static <T> CompletableFuture<Status> toFuture(final String key, final Deferred<T> deferred,
+      final Callback<Status, T> onSuccess) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    deferred.addCallbacks(value -> {
+        future.complete(onSuccess.call(value));
+        return null;
+      }, (Exception e) -> {
+        System.err.println("Failure on row with key " + key + ": " + e.getMessage());
+        future.complete(Status.ERROR);
+        return null;
+      });
+    return future;
+  }
+
   /**
    * Little helper to set the table byte array. If it's different than the last
    * table we reset the byte array. Otherwise we just use the existing array.
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * Building the key and the field values of a record, the work {@link CoreWorkload} does for
+ * every insert and update before the binding is called. One workload is shared by all threads,
+ * as in the client.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreWorkloadBenchmark {
+
+  /**
+   * Opens up the record building methods of the workload.
+   */
+  private static final class RecordBuilder extends CoreWorkload {
+    String key(long keynum) {
+      return buildKeyName(keynum);
+    }
+
+    HashMap<String, ByteIterator> values(String key) {
+      return buildValues(key);
+    }
+  }
+
+  @Param({"hashed", "ordered"})
+  public String insertorder;
+
+  @Param({"false", "true"})
+  public boolean dataintegrity;
+
+  private RecordBuilder workload;
+
+  @Setup
+  public void setUp() throws WorkloadException {
+    Properties props = new Properties();
+    props.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, insertorder);
+    props.setProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY, Boolean.toString(dataintegrity));
+    props.setProperty(CoreWorkload.FIELD_LENGTH_DISTRIBUTION_PROPERTY, "constant");
+    props.setProperty("recordcount", "1000000");
+    Measurements.setProperties(props);
+    workload = new RecordBuilder();
+    workload.init(props);
+  }
+
+  /**
+   * The next key number of a thread.
+   */
+  @State(Scope.Thread)
+  public static class KeyNumber {
+    private long next;
+  }
+
+  @Benchmark
+  public String buildKeyName(KeyNumber keynum) {
+    return workload.key(keynum.next++);
+  }
+
+  @Benchmark
+  public Map<String, ByteIterator> buildValues() {
+    return workload.values("user6284781860667377211");
+  }
+
+  /**
+   * Builds the values and reads them as a binding would.
+   */
+  @Benchmark
+  public long buildAndReadValues() {
+    long length = 0;
+    for (ByteIterator value : workload.values("user6284781860667377211").values()) {
+      length += value.toArray().length;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.Workload.Operation;
+import com.yahoo.ycsb.generator.AliasGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+/**
+ * The generators choosing the key and the operation of every transaction. As in the client, one
+ * instance is shared by all benchmark threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+  @Param({"1000000", "100000000"})
+  public long items;
+
+  private ZipfianGenerator zipfian;
+  private ScrambledZipfianGenerator scrambledZipfian;
+  private AliasGenerator<Operation> operations;
+
+  @Setup
+  public void setUp() {
+    zipfian = new ZipfianGenerator(items);
+    scrambledZipfian = new ScrambledZipfianGenerator(items);
+    // The operation mix of workload a, plus the operations it does not use.
+    operations = new AliasGenerator<>();
+    operations.addValue(0.5, Operation.READ);
+    operations.addValue(0.5, Operation.UPDATE);
+    operations.addValue(0, Operation.INSERT);
+    operations.addValue(0, Operation.SCAN);
+    operations.addValue(0, Operation.READMODIFYWRITE);
+  }
+
+  @Benchmark
+  public long zipfian() {
+    return zipfian.nextValue();
+  }
+
+  @Benchmark
+  public long scrambledZipfian() {
+    return scrambledZipfian.nextValue();
+  }
+
+  @Benchmark
+  public Operation discrete() {
+    return operations.nextValue();
+  }
+}
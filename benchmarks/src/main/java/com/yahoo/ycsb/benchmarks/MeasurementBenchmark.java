@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Recording a latency through {@link Measurements}, which the client does for every operation.
+ * The measurements are shared by all threads, so running this at several thread counts shows the
+ * contention on them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeasurementBenchmark {
+
+  @Param({"hdrhistogram", "histogram", "timeseries"})
+  public String measurementtype;
+
+  @Param({"false", "true"})
+  public boolean shards;
+
+  private Measurements measurements;
+  private int readId;
+
+  @Setup
+  public void setUp() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, measurementtype);
+    props.setProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY, Boolean.toString(shards));
+    measurements = new Measurements(props);
+    readId = measurements.getOperationId("READ");
+  }
+
+  /**
+   * A latency that spreads over the buckets without the cost of a random number generator.
+   */
+  private static long latencyNanos() {
+    return 1000 + (System.nanoTime() & 0xffff);
+  }
+
+  /**
+   * The path taken by the DB wrapper: the latency and the return code of an operation.
+   */
+  @Benchmark
+  public void measurementsMeasure() {
+    measurements.measureNanos(readId, latencyNanos());
+    measurements.reportStatus(readId, Status.OK);
+  }
+}
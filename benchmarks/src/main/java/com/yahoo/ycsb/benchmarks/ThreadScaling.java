@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks at 1, 2, 4, ... threads up to a maximum, and writes the results of each
+ * thread count as JSON, so runs of different commits can be compared.
+ * <p>
+ * Usage: ThreadScaling [max threads] [benchmark regex] [result file prefix]
+ * <p>
+ * The maximum defaults to the number of available processors, the regex to all benchmarks and
+ * the prefix to "jmh-result", giving jmh-result-1.json, jmh-result-2.json and so on.
+ */
+public final class ThreadScaling {
+
+  private ThreadScaling() {
+    // not used
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    String include = args.length > 1 ? args[1] : ThreadScaling.class.getPackage().getName() + ".*";
+    String prefix = args.length > 2 ? args[2] : "jmh-result";
+
+    for (int threads = 1;; threads = Math.min(threads * 2, maxThreads)) {
+      Options options = new OptionsBuilder()
+          .include(include)
+          .threads(threads)
+          .resultFormat(ResultFormatType.JSON)
+          .result(prefix + "-" + threads + ".json")
+          .build();
+      new Runner(options).run();
+      if (threads >= maxThreads) {
+        break;
+      }
+    }
+  }
+}
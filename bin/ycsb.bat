@@ -70,13 +70,23 @@ SET YCSB_COMMAND=-t
 SET YCSB_CLASS=com.yahoo.ycsb.Client
 GOTO gotCommand
 :noRun
+IF NOT "calibrate" == "%1" GOTO noCalibrate
+SET YCSB_COMMAND=-t
+SET YCSB_CLASS=com.yahoo.ycsb.Calibration
+GOTO gotCommand
+:noCalibrate
+IF NOT "saturate" == "%1" GOTO noSaturate
+SET YCSB_COMMAND=-t
+SET YCSB_CLASS=com.yahoo.ycsb.SaturationSearch
+GOTO gotCommand
+:noSaturate
 IF NOT "shell" == "%1" GOTO noShell
 SET YCSB_COMMAND=
 SET YCSB_CLASS=com.yahoo.ycsb.CommandLine
 GOTO gotCommand
 :noShell
 ECHO [ERROR] Found unknown command '%1'
-ECHO [ERROR] Expected one of 'load', 'run', or 'shell'. Exiting.
+ECHO [ERROR] Expected one of 'load', 'run', 'calibrate', 'saturate', or 'shell'. Exiting.
 GOTO exit
 :gotCommand
 
@@ -83,12 +83,18 @@ if [ "load" = "$1" ] ; then
 elif [ "run" = "$1" ] ; then
   YCSB_COMMAND=-t
   YCSB_CLASS=com.yahoo.ycsb.Client
+elif [ "calibrate" = "$1" ] ; then
+  YCSB_COMMAND=-t
+  YCSB_CLASS=com.yahoo.ycsb.Calibration
+elif [ "saturate" = "$1" ] ; then
+  YCSB_COMMAND=-t
+  YCSB_CLASS=com.yahoo.ycsb.SaturationSearch
 elif [ "shell" = "$1" ] ; then
   YCSB_COMMAND=
   YCSB_CLASS=com.yahoo.ycsb.CommandLine
 else
   echo "[ERROR] Found unknown command '$1'"
-  echo "[ERROR] Expected one of 'load', 'run', or 'shell'. Exiting."
+  echo "[ERROR] Expected one of 'load', 'run', 'calibrate', 'saturate', or 'shell'. Exiting."
   exit 1;
 fi
 
@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop arrival process for a throttled client thread. Arrival times are drawn from the
+ * configured process up front, independently of when earlier operations complete, and each
+ * operation is issued no earlier than its arrival. If the database falls behind, the
+ * intended start time still reflects the arrival so the wait is charged to intended latency,
+ * and {@link #backlog(long)} reports how many arrivals are due but not yet issued.
+ *
+ * Not thread safe; each client thread owns its own scheduler.
+ */
+public abstract class ArrivalScheduler {
+  /**
+   * The arrival process to use when a target throughput is set.
+   * <ul>
+   * <li><b>constant</b>: evenly spaced arrivals (the historical behaviour)</li>
+   * <li><b>poisson</b>: exponentially distributed inter-arrival times</li>
+   * <li><b>bursty</b>: Poisson arrivals during ON periods and none during OFF periods, keeping
+   * the same average rate</li>
+   * </ul>
+   */
+  public static final String ARRIVAL_PROPERTY = "arrival";
+
+  /**
+   * Default value of {@link #ARRIVAL_PROPERTY}.
+   */
+  public static final String ARRIVAL_PROPERTY_DEFAULT = "constant";
+
+  /**
+   * The length of an ON period of the bursty arrival process, in milliseconds.
+   */
+  public static final String BURSTY_ON_PROPERTY = "arrival.bursty.on";
+
+  /**
+   * Default value of {@link #BURSTY_ON_PROPERTY}.
+   */
+  public static final String BURSTY_ON_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The length of an OFF period of the bursty arrival process, in milliseconds.
+   */
+  public static final String BURSTY_OFF_PROPERTY = "arrival.bursty.off";
+
+  /**
+   * Default value of {@link #BURSTY_OFF_PROPERTY}.
+   */
+  public static final String BURSTY_OFF_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The most arrivals drawn ahead of time to answer {@link #backlog(long)}, so a thread that fell far behind
+   * a random arrival process does not hoard them without bound.
+   */
+  static final int MAX_LOOKAHEAD = 1 << 16;
+
+  private final TargetProfile profile;
+  private long startTimeNanos;
+
+  // Arrivals generated ahead of time while answering backlog(), oldest first.
+  private long[] pending = new long[16];
+  private int head;
+  private int size;
+
+  /**
+   * Creates the scheduler configured by the properties.
+   *
+   * @param props The run properties.
+   * @param targetOpsPerMs The average number of arrivals per millisecond for this thread.
+   * @return The scheduler.
+   * @throws IllegalArgumentException if the arrival process is unknown or misconfigured.
+   */
+  public static ArrivalScheduler create(Properties props, double targetOpsPerMs) {
+    return create(props, TargetProfile.constant(targetOpsPerMs * 1000));
+  }
+
+  /**
+   * Creates the scheduler configured by the properties.
+   *
+   * @param props The run properties.
+   * @param profile The target rate of this thread over time.
+   * @return The scheduler.
+   * @throws IllegalArgumentException if the arrival process is unknown or misconfigured.
+   */
+  public static ArrivalScheduler create(Properties props, TargetProfile profile) {
+    final String arrival = props.getProperty(ARRIVAL_PROPERTY, ARRIVAL_PROPERTY_DEFAULT);
+    switch (arrival) {
+    case "constant":
+      return new Constant(profile);
+    case "poisson":
+      return new Poisson(profile);
+    case "bursty":
+      if (!profile.isConstant()) {
+        throw new IllegalArgumentException("bursty arrivals need a constant target rate");
+      }
+      final double meanGapNs = TimeUnit.SECONDS.toNanos(1) / profile.rateAt(0);
+      long onNs = TimeUnit.MILLISECONDS.toNanos(
+          Long.parseLong(props.getProperty(BURSTY_ON_PROPERTY, BURSTY_ON_PROPERTY_DEFAULT)));
+      long offNs = TimeUnit.MILLISECONDS.toNanos(
+          Long.parseLong(props.getProperty(BURSTY_OFF_PROPERTY, BURSTY_OFF_PROPERTY_DEFAULT)));
+      if (onNs <= 0 || offNs < 0) {
+        throw new IllegalArgumentException(BURSTY_ON_PROPERTY + " must be positive and "
+            + BURSTY_OFF_PROPERTY + " must not be negative");
+      }
+      return new Bursty(profile, meanGapNs, onNs, offNs);
+    default:
+      throw new IllegalArgumentException("Unknown " + ARRIVAL_PROPERTY + " \"" + arrival + "\"");
+    }
+  }
+
+  protected ArrivalScheduler(TargetProfile profile) {
+    this.profile = profile;
+  }
+
+  /**
+   * @return The target rate of this thread over time.
+   */
+  protected TargetProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * @return The offset from the start of the run of the next arrival, or {@link Long#MAX_VALUE}
+   *         once the target profile has ended. Successive calls return non-decreasing offsets.
+   */
+  protected abstract long nextOffsetNs();
+
+  private long nextArrival() {
+    long offset = nextOffsetNs();
+    return offset == Long.MAX_VALUE ? Long.MAX_VALUE : startTimeNanos + offset;
+  }
+
+  /**
+   * Anchors the arrival process.
+   *
+   * @param nowNanos The start of the run, as given by {@link System#nanoTime()}.
+   */
+  public void start(long nowNanos) {
+    startTimeNanos = nowNanos;
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * @return The intended start time of the next operation, as a {@link System#nanoTime()} value,
+   *         or {@link Long#MAX_VALUE} if the target profile has ended.
+   */
+  public long next() {
+    if (size > 0) {
+      long arrival = pending[head];
+      head = (head + 1) % pending.length;
+      size--;
+      return arrival;
+    }
+    return nextArrival();
+  }
+
+  /**
+   * @return The start of the run, as given by {@link System#nanoTime()}.
+   */
+  protected long getStartTimeNanos() {
+    return startTimeNanos;
+  }
+
+  /**
+   * Counts the arrivals that are already due but whose operations have not been issued. Random arrivals can only
+   * be counted by drawing them, so at most {@link #MAX_LOOKAHEAD} of them are counted.
+   *
+   * @param nowNanos The current time, as given by {@link System#nanoTime()}.
+   * @return The number of overdue arrivals.
+   */
+  public long backlog(long nowNanos) {
+    while (size == 0 || pending[(head + size - 1) % pending.length] <= nowNanos) {
+      if (size == MAX_LOOKAHEAD) {
+        // At least this many.
+        return size;
+      }
+      long arrival = nextArrival();
+      enqueue(arrival);
+      if (arrival > nowNanos) {
+        break;
+      }
+    }
+    // The last pending arrival is in the future.
+    return size - 1;
+  }
+
+  private void enqueue(long arrival) {
+    if (size == pending.length) {
+      long[] grown = new long[pending.length * 2];
+      for (int i = 0; i < size; i++) {
+        grown[i] = pending[(head + i) % pending.length];
+      }
+      pending = grown;
+      head = 0;
+    }
+    pending[(head + size) % pending.length] = arrival;
+    size++;
+  }
+
+  /**
+   * Exponentially distributed gap with the given mean.
+   */
+  static double exponentialGap(double meanNs) {
+    return -Math.log(1.0 - Utils.random().nextDouble()) * meanNs;
+  }
+
+  /**
+   * Arrivals spaced evenly in terms of the target profile.
+   */
+  static final class Constant extends ArrivalScheduler {
+    private long count;
+
+    Constant(TargetProfile profile) {
+      super(profile);
+    }
+
+    @Override
+    public void start(long nowNanos) {
+      super.start(nowNanos);
+      count = 0;
+    }
+
+    @Override
+    protected long nextOffsetNs() {
+      return getProfile().offsetForOps(++count);
+    }
+
+    /**
+     * Counts the overdue arrivals from the profile instead of drawing them, however far behind the thread is.
+     */
+    @Override
+    public long backlog(long nowNanos) {
+      long offset = nowNanos - getStartTimeNanos();
+      // The profile's count of operations up to now, corrected for rounding against the arrival times.
+      long due = Math.max(count, (long) getProfile().opsUntil(offset));
+      while (due > count && getProfile().offsetForOps(due) > offset) {
+        due--;
+      }
+      while (getProfile().offsetForOps(due + 1) <= offset) {
+        due++;
+      }
+      return due - count;
+    }
+  }
+
+  /**
+   * Poisson arrivals, i.e. exponentially distributed gaps, following the target profile.
+   */
+  static final class Poisson extends ArrivalScheduler {
+    private double ops;
+
+    Poisson(TargetProfile profile) {
+      super(profile);
+    }
+
+    @Override
+    public void start(long nowNanos) {
+      super.start(nowNanos);
+      ops = 0;
+    }
+
+    @Override
+    protected long nextOffsetNs() {
+      ops += exponentialGap(1);
+      return getProfile().offsetForOps(ops);
+    }
+  }
+
+  /**
+   * ON/OFF arrivals for a constant target rate. Poisson arrivals are drawn on a clock that only runs during ON periods,
+   * at a rate raised so that the average over a whole ON/OFF cycle matches the target.
+   */
+  static final class Bursty extends ArrivalScheduler {
+    private final double onGapNs;
+    private final long onNs;
+    private final long offNs;
+    private double activeNs;
+
+    Bursty(TargetProfile profile, double meanGapNs, long onNs, long offNs) {
+      super(profile);
+      this.onGapNs = meanGapNs * onNs / (onNs + offNs);
+      this.onNs = onNs;
+      this.offNs = offNs;
+    }
+
+    @Override
+    public void start(long nowNanos) {
+      super.start(nowNanos);
+      activeNs = 0;
+    }
+
+    @Override
+    protected long nextOffsetNs() {
+      activeNs += exponentialGap(onGapNs);
+      long active = (long) activeNs;
+      return (active / onNs) * (onNs + offNs) + active % onNs;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A layer for accessing a database through a non-blocking driver. Each method returns
+ * immediately with a future that is completed with the {@link Status} of the operation
+ * once the database responds, so a single client thread may keep many operations in
+ * flight at once.
+ *
+ * As with {@link DB}, there is one instance per client thread, but unlike {@link DB} the
+ * instance must tolerate several outstanding operations at a time. Completion callbacks
+ * may run on a driver thread, so implementations must not assume they complete on the
+ * thread that issued them.
+ *
+ * The blocking {@link DB} methods are implemented by waiting on the corresponding future.
+ * Bindings with a native blocking path may override them.
+ */
+public abstract class AsyncDB extends DB {
+
+  /**
+   * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
+   * The result map is only safe to inspect once the returned future has completed.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @return A future completed with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                                      Map<String, ByteIterator> result);
+
+  /**
+   * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
+   * in a HashMap. The result vector is only safe to inspect once the returned future has completed.
+   *
+   * @param table The name of the table
+   * @param startkey The record key of the first record to read.
+   * @param recordcount The number of records to read
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return A future completed with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount,
+                                                      Set<String> fields,
+                                                      Vector<HashMap<String, ByteIterator>> result);
+
+  /**
+   * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
+   * record with the specified record key, overwriting any existing values with the same field name.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return A future completed with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> updateAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the
+   * record with the specified record key.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return A future completed with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> insertAsync(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Delete a record from the database.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to delete.
+   * @return A future completed with the result of the operation.
+   */
+  public abstract CompletableFuture<Status> deleteAsync(String table, String key);
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return await(readAsync(table, key, fields, result));
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    return await(scanAsync(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    return await(updateAsync(table, key, values));
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return await(insertAsync(table, key, values));
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return await(deleteAsync(table, key));
+  }
+
+  /**
+   * Block until the future completes, mapping a failed future to {@link Status#ERROR}.
+   */
+  private static Status await(CompletableFuture<Status> future) {
+    try {
+      return future.join();
+    } catch (RuntimeException e) {
+      return Status.ERROR;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Exposes blocking {@link DB} bindings through the {@link AsyncDB} interface.
+ *
+ * Since a {@link DB} instance only ever serves one operation at a time, the adapter owns a
+ * pool of them, one per permitted outstanding operation, and runs each operation on a
+ * dedicated worker thread against whichever instance is idle. This does not save any
+ * threads over the synchronous client but lets every binding take part in asynchronous runs.
+ */
+public class AsyncDBAdapter extends AsyncDB {
+  private final List<DB> dbs;
+  private final BlockingQueue<DB> idle;
+  private final ExecutorService executor;
+
+  /**
+   * @param dbs The unwrapped DB instances to pool. Their number bounds the operations in flight.
+   */
+  public AsyncDBAdapter(final List<DB> dbs) {
+    if (dbs.isEmpty()) {
+      throw new IllegalArgumentException("At least one DB instance is required");
+    }
+    this.dbs = dbs;
+    idle = new ArrayBlockingQueue<>(dbs.size(), false, dbs);
+    executor = Executors.newFixedThreadPool(dbs.size(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "AsyncDBAdapter");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    super.setProperties(p);
+    for (DB db : dbs) {
+      db.setProperties(p);
+    }
+  }
+
+  @Override
+  public void init() throws DBException {
+    for (DB db : dbs) {
+      db.init();
+    }
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (DB db : dbs) {
+      db.cleanup();
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> readAsync(final String table, final String key, final Set<String> fields,
+                                             final Map<String, ByteIterator> result) {
+    return submit(db -> db.read(table, key, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> scanAsync(final String table, final String startkey, final int recordcount,
+                                             final Set<String> fields,
+                                             final Vector<HashMap<String, ByteIterator>> result) {
+    return submit(db -> db.scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(final String table, final String key,
+                                               final Map<String, ByteIterator> values) {
+    return submit(db -> db.update(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insertAsync(final String table, final String key,
+                                               final Map<String, ByteIterator> values) {
+    return submit(db -> db.insert(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> deleteAsync(final String table, final String key) {
+    return submit(db -> db.delete(table, key));
+  }
+
+  private CompletableFuture<Status> submit(final Function<DB, Status> operation) {
+    return CompletableFuture.supplyAsync(() -> {
+      DB db;
+      try {
+        db = idle.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return Status.ERROR;
+      }
+      try {
+        return operation.apply(db);
+      } finally {
+        idle.add(db);
+      }
+    }, executor);
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.Tracer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Wrapper around an {@link AsyncDB} that lets a client thread keep up to a fixed number of
+ * operations in flight. Each call blocks only while the window is full, hands the operation
+ * to the binding and returns {@link Status#BATCHED_OK} right away. Latency and the real
+ * return code are recorded when the operation completes.
+ *
+ * Since workloads see the operation before it has finished, values read back cannot be
+ * inspected by the workload (so the "dataintegrity" check is not available) and latencies
+ * measured by the workload itself, such as READ-MODIFY-WRITE, only cover issuing the calls.
+ * A workload that must know when a record is present inserts it with
+ * {@link #insert(String, String, Map, Runnable)}, whose callback runs on completion.
+ */
+public class AsyncDBWrapper extends DBWrapper {
+  private final AsyncDB db;
+  private final Measurements measurements;
+  private final int maxOutstanding;
+  private final Semaphore window;
+
+  /**
+   * @param db The binding to issue operations to.
+   * @param tracer The tracer for init and cleanup spans.
+   * @param maxOutstanding The number of operations the calling thread may have in flight.
+   */
+  public AsyncDBWrapper(final AsyncDB db, final Tracer tracer, final int maxOutstanding) {
+    super(db, tracer);
+    if (maxOutstanding < 1) {
+      throw new IllegalArgumentException("maxOutstanding must be at least 1");
+    }
+    this.db = db;
+    this.maxOutstanding = maxOutstanding;
+    measurements = Measurements.getMeasurements();
+    window = new Semaphore(maxOutstanding);
+  }
+
+  /**
+   * Wait for all outstanding operations before cleaning up the binding.
+   */
+  @Override
+  public void cleanup() throws DBException {
+    window.acquireUninterruptibly(maxOutstanding);
+    window.release(maxOutstanding);
+    super.cleanup();
+  }
+
+  /**
+   * @return The number of operations issued but not yet completed.
+   */
+  public int getOutstanding() {
+    return maxOutstanding - window.availablePermits();
+  }
+
+  @Override
+  public Status read(final String table, final String key, final Set<String> fields,
+                     final Map<String, ByteIterator> result) {
+    return submit(getReadIds(), () -> db.readAsync(table, key, fields, result), null);
+  }
+
+  @Override
+  public Status scan(final String table, final String startkey, final int recordcount, final Set<String> fields,
+                     final Vector<HashMap<String, ByteIterator>> result) {
+    return submit(getScanIds(), () -> db.scanAsync(table, startkey, recordcount, fields, result), null);
+  }
+
+  @Override
+  public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
+    return submit(getUpdateIds(), () -> db.updateAsync(table, key, values), null);
+  }
+
+  @Override
+  public Status insert(final String table, final String key, final Map<String, ByteIterator> values) {
+    return submit(getInsertIds(), () -> db.insertAsync(table, key, values), null);
+  }
+
+  /**
+   * Runs the callback once the insert completes, not when this returns.
+   */
+  @Override
+  public Status insert(final String table, final String key, final Map<String, ByteIterator> values,
+                       final Runnable completed) {
+    return submit(getInsertIds(), () -> db.insertAsync(table, key, values), completed);
+  }
+
+  @Override
+  public Status delete(final String table, final String key) {
+    return submit(getDeleteIds(), () -> db.deleteAsync(table, key), null);
+  }
+
+  private Status submit(final OperationIds op, final Supplier<CompletableFuture<Status>> operation,
+                        final Runnable completed) {
+    // The intended start time is taken before waiting on the window so that time spent
+    // blocked behind earlier operations is charged to the intended latency.
+    final long ist = measurements.getIntendedtartTimeNs();
+    window.acquireUninterruptibly();
+    final long st = System.nanoTime();
+    final CompletableFuture<Status> future;
+    try {
+      future = operation.get();
+    } catch (RuntimeException e) {
+      complete(op, Status.ERROR, ist, st, completed);
+      return Status.ERROR;
+    }
+    future.whenComplete((res, error) -> complete(op, error == null ? res : Status.ERROR, ist, st, completed));
+    return Status.BATCHED_OK;
+  }
+
+  private void complete(final OperationIds op, final Status res, final long ist, final long st,
+                        final Runnable completed) {
+    try {
+      measure(op, res, ist, st, System.nanoTime());
+      measurements.reportStatus(op.getId(), res);
+      if (completed != null) {
+        completed.run();
+      }
+    } finally {
+      window.release();
+    }
+  }
+}
@@ -0,0 +1,403 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.htrace.core.Tracer;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.OneMeasurementRaw;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Measures the throughput ceiling of the client itself.
+ *
+ * Takes the same arguments as {@link Client} in transaction mode, but runs the workload against
+ * {@link CalibrationDB}, an in-process database that does no work, unthrottled, for
+ * "calibration.time" seconds after "calibration.warmup" seconds of warmup. It reports the
+ * throughput per thread and the cost of an operation, broken down into:
+ * <ul>
+ * <li><b>ValueGeneration</b>: generating the field values, which happens as the database
+ * reads them</li>
+ * <li><b>Measurement</b>: recording a latency and a return code, timed in isolation at the
+ * same thread count</li>
+ * <li><b>KeyGenerationAndWorkload</b>: the rest, mostly choosing the operation and the key</li>
+ * </ul>
+ * and separately <b>Throttling</b>, the bookkeeping a throttled run adds to every operation,
+ * not counting the wait itself.
+ *
+ * Pass the reported ceiling to later runs as "calibration.ceiling" to be warned when a database
+ * appears to be as fast as the client can drive it.
+ */
+public final class Calibration {
+  /**
+   * The length of the measured part of the calibration in seconds.
+   */
+  public static final String TIME_PROPERTY = "calibration.time";
+  public static final String TIME_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The length of the warmup preceding it in seconds.
+   */
+  public static final String WARMUP_PROPERTY = "calibration.warmup";
+  public static final String WARMUP_PROPERTY_DEFAULT = "5";
+
+  /**
+   * A file to write the ceiling to, as properties that later runs can load with -P.
+   */
+  public static final String OUTPUT_PROPERTY = "calibration.output";
+
+  /**
+   * The calibrated throughput ceiling of the client, in operations per second per thread.
+   */
+  public static final String CEILING_PROPERTY = "calibration.ceiling";
+
+  /**
+   * A run warns when its throughput per thread is within this fraction of the ceiling.
+   */
+  public static final String MARGIN_PROPERTY = "calibration.margin";
+  public static final String MARGIN_PROPERTY_DEFAULT = "0.2";
+
+  // How long the costs timed in isolation are measured for.
+  private static final long ISOLATED_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  // Time all calibration databases spent reading field values.
+  private static final LongAdder VALUE_NANOS = new LongAdder();
+
+  private Calibration() {
+    // not used
+  }
+
+  /**
+   * A {@link BasicDB} that reads the values it is given, as a real database would, and
+   * records how long that took.
+   */
+  public static class CalibrationDB extends BasicDB {
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      readValues(values);
+      return super.update(table, key, values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      readValues(values);
+      return super.insert(table, key, values);
+    }
+
+    private static void readValues(Map<String, ByteIterator> values) {
+      long st = System.nanoTime();
+      for (ByteIterator value : values.values()) {
+        value.toArray();
+      }
+      VALUE_NANOS.add(System.nanoTime() - st);
+    }
+  }
+
+  public static void main(String[] args) {
+    Properties props = Client.parseArguments(args);
+    if (!Boolean.valueOf(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      System.err.println("The calibration only runs the transaction phase.");
+      System.exit(0);
+    }
+    final int time = Integer.parseInt(props.getProperty(TIME_PROPERTY, TIME_PROPERTY_DEFAULT));
+    final int warmup = Integer.parseInt(props.getProperty(WARMUP_PROPERTY, WARMUP_PROPERTY_DEFAULT));
+    if (time <= 0 || warmup < 0) {
+      System.err.println("Invalid calibration settings.");
+      System.exit(0);
+    }
+
+    // The ceiling is measured unthrottled, without think time, against a database doing nothing.
+    props.remove(Client.TARGET_PROPERTY);
+    props.remove(Client.TARGET_PROFILE_PROPERTY);
+    props.remove(Client.THINK_TIME_PROPERTY);
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "0");
+    props.setProperty(BasicDB.VERBOSE, "false");
+    props.setProperty(BasicDB.SIMULATE_DELAY, "0");
+    props.setProperty(BasicDB.COUNT, "false");
+    // Nothing is exported, so nothing is written either.
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_PROPERTY, "false");
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, "");
+    int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+
+    ThreadFactory threadFactory = null;
+    try {
+      threadFactory = ClientThreadFactory.create(props);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+
+    Thread warningthread = Client.setupWarningThread();
+    warningthread.start();
+    Measurements.setProperties(props);
+    Workload workload = Client.getWorkload(props);
+    Tracer tracer = Client.getTracer(props, workload);
+    Client.initWorkload(props, warningthread, workload, tracer);
+
+    System.err.println("Calibrating for " + warmup + " + " + time + " sec.");
+    final CountDownLatch completeLatch = new CountDownLatch(threadcount);
+    List<ClientThread> clients = Client.initDb(CalibrationDB.class.getName(), props, threadcount, null,
+        workload, tracer, completeLatch);
+    List<Thread> threads = new ArrayList<>(threadcount);
+    for (ClientThread client : clients) {
+      threads.add(threadFactory.newThread(tracer.wrap(client, "ClientThread")));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    sleep(TimeUnit.SECONDS.toNanos(warmup));
+    long st = System.nanoTime();
+    long opsStart = opsDone(clients);
+    long valueStart = VALUE_NANOS.sum();
+    sleep(TimeUnit.SECONDS.toNanos(time));
+    long en = System.nanoTime();
+    long ops = opsDone(clients) - opsStart;
+    long valueNanos = VALUE_NANOS.sum() - valueStart;
+    workload.requestStop();
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+
+    double throughput = 1e9 * ops / (en - st);
+    double costNanos = (double) (en - st) * threadcount / ops;
+    double valueCost = (double) valueNanos / ops;
+    double measurementCost = measurementCost(props, threadcount);
+    double throttlingCost = throttlingCost(props, threadcount);
+    discard(Measurements.getMeasurements());
+
+    try {
+      workload.cleanup();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+
+    try {
+      MeasurementsExporter exporter = Client.newExporter(props);
+      try {
+        exporter.write("CALIBRATION", "Threads", threadcount);
+        exporter.write("CALIBRATION", "Operations", ops);
+        exporter.write("CALIBRATION", "Throughput(ops/sec)", throughput);
+        exporter.write("CALIBRATION", "ThroughputPerThread(ops/sec)", throughput / threadcount);
+        exporter.write("CALIBRATION", "CostPerOperation(ns)", costNanos);
+        exporter.write("CALIBRATION", "KeyGenerationAndWorkload(ns)",
+            Math.max(0, costNanos - valueCost - measurementCost));
+        exporter.write("CALIBRATION", "ValueGeneration(ns)", valueCost);
+        exporter.write("CALIBRATION", "Measurement(ns)", measurementCost);
+        exporter.write("CALIBRATION", "Throttling(ns)", throttlingCost);
+      } finally {
+        exporter.close();
+      }
+      String output = props.getProperty(OUTPUT_PROPERTY);
+      if (output != null) {
+        Properties ceiling = new Properties();
+        ceiling.setProperty(CEILING_PROPERTY, Long.toString((long) (throughput / threadcount)));
+        try (OutputStream out = new FileOutputStream(output)) {
+          ceiling.store(out, "Client ceiling at " + threadcount + " threads");
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write the calibration result, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+    System.err.println("Pass -p " + CEILING_PROPERTY + "=" + (long) (throughput / threadcount)
+        + " to be warned when a run comes close to this ceiling.");
+    System.exit(0);
+  }
+
+  /**
+   * Warns if a run's throughput per thread is within the configured margin of the calibrated
+   * ceiling, in which case the client rather than the database may have been the bottleneck.
+   *
+   * @param props The run properties.
+   * @param threadcount The number of client threads.
+   * @param throughput The achieved throughput in operations per second.
+   */
+  static void warnNearCeiling(Properties props, int threadcount, double throughput) {
+    String ceilingValue = props.getProperty(CEILING_PROPERTY);
+    if (ceilingValue == null || threadcount <= 0) {
+      return;
+    }
+    double ceiling = Double.parseDouble(ceilingValue);
+    double margin = Double.parseDouble(props.getProperty(MARGIN_PROPERTY, MARGIN_PROPERTY_DEFAULT));
+    double perThread = throughput / threadcount;
+    if (isNearCeiling(perThread, ceiling, margin)) {
+      System.err.println("[WARN] The throughput of " + (long) perThread + " ops/sec per thread is within "
+          + (int) (margin * 100) + "% of the client's own ceiling of " + (long) ceiling
+          + " ops/sec per thread; the client may have limited this run.");
+    }
+  }
+
+  static boolean isNearCeiling(double perThread, double ceiling, double margin) {
+    return ceiling > 0 && perThread >= ceiling * (1 - margin);
+  }
+
+  /**
+   * The cost of recording the latency and return code of an operation, with all threads
+   * recording into the same measurements as they do in a run.
+   */
+  static double measurementCost(Properties props, int threadcount) {
+    final Measurements measurements = new Measurements(props);
+    final int id = measurements.getOperationId("CALIBRATION");
+    try {
+      return perOperationNanos(threadcount, new Callable<Runnable>() {
+        @Override
+        public Runnable call() {
+          return new Runnable() {
+            private long latency;
+
+            @Override
+            public void run() {
+              measurements.measureNanos(id, 1000 + (latency++ & 0xffff));
+              measurements.reportStatus(id, Status.OK);
+            }
+          };
+        }
+      });
+    } finally {
+      discard(measurements);
+    }
+  }
+
+  /**
+   * The bookkeeping a throttled client thread does for every operation with the configured
+   * arrival process, assuming operations are issued on time.
+   */
+  static double throttlingCost(final Properties props, int threadcount) {
+    final Measurements measurements = new Measurements(props);
+    try {
+      return perOperationNanos(threadcount, new Callable<Runnable>() {
+        @Override
+        public Runnable call() {
+          final ArrivalScheduler arrivals = ArrivalScheduler.create(props, TargetProfile.constant(1000));
+          arrivals.start(System.nanoTime());
+          return new Runnable() {
+            @Override
+            public void run() {
+              long deadline = arrivals.next();
+              measurements.setIntendedStartTimeNs(deadline);
+              arrivals.backlog(Math.max(deadline, System.nanoTime()));
+            }
+          };
+        }
+      });
+    } finally {
+      discard(measurements);
+    }
+  }
+
+  /**
+   * Releases the files and threads of measurements that are not exported.
+   */
+  private static void discard(Measurements measurements) {
+    try {
+      measurements.discard();
+    } catch (IOException e) {
+      System.err.println("Could not release the calibration measurements, error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs an operation on every thread for a while.
+   *
+   * @param factory Creates the operation run by a thread.
+   * @return The average time an operation took on one thread, in nanoseconds.
+   */
+  private static double perOperationNanos(int threadcount, final Callable<Runnable> factory) {
+    final LongAdder count = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    List<Thread> threads = new ArrayList<>(threadcount);
+    for (int i = 0; i < threadcount; i++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          Runnable op;
+          try {
+            op = factory.call();
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+          long st = System.nanoTime();
+          long deadline = st + ISOLATED_NANOS;
+          long n = 0;
+          long now;
+          do {
+            for (int j = 0; j < 1024; j++) {
+              op.run();
+            }
+            n += 1024;
+            now = System.nanoTime();
+          } while (now < deadline);
+          count.add(n);
+          nanos.add(now - st);
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+    return (double) nanos.sum() / count.sum();
+  }
+
+  private static long opsDone(List<ClientThread> clients) {
+    long ops = 0;
+    for (ClientThread client : clients) {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+
+  private static void sleep(long nanos) {
+    long deadline = System.nanoTime() + nanos;
+    long left;
+    while ((left = deadline - System.nanoTime()) > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(left);
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+  }
+}
@@ -31,17 +31,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
 import org.apache.htrace.core.HTraceConfiguration;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
+import com.yahoo.ycsb.measurements.IntervalSnapshot;
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
 
 /**
  * A thread to periodically show the status of the experiment to reassure you
@@ -76,6 +79,21 @@ class StatusThread extends Thread {
   private long lastGCCount = 0;
   private long lastGCTime = 0;
 
+  // The requested throughput over the run, or null if unthrottled.
+  private final TargetProfile targetprofile;
+
+  // Seconds since the start at the end of each interval, with the requested and achieved
+  // throughput over it. Only kept when there is a target profile.
+  private final List<Long> intervalEnds = new ArrayList<>();
+  private final List<Double> intervalRequested = new ArrayList<>();
+  private final List<Double> intervalAchieved = new ArrayList<>();
+
+  // Streams the intervals as JSON, or null.
+  private StatusJsonSink jsonSink;
+
+  // Serves the last interval for scraping, or null.
+  private MetricsHttpServer metricsServer;
+
   /**
    * Creates a new StatusThread without JVM stat tracking.
    *
@@ -109,6 +127,27 @@ class StatusThread extends Thread {
   public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
       String label, boolean standardstatus, int statusIntervalSeconds,
       boolean trackJVMStats) {
+    this(completeLatch, clients, label, standardstatus, statusIntervalSeconds, trackJVMStats, null);
+  }
+
+  /**
+   * Creates a new StatusThread that reports the requested throughput next to the achieved one.
+   *
+   * @param completeLatch         The latch that each client thread will
+   *                              {@link CountDownLatch#countDown()}
+   *                              as they complete.
+   * @param clients               The clients to collect metrics from.
+   * @param label                 The label for the status.
+   * @param standardstatus        If true the status is printed to stdout in
+   *                              addition to stderr.
+   * @param statusIntervalSeconds The number of seconds between status updates.
+   * @param trackJVMStats         Whether or not to track JVM stats.
+   * @param targetprofile         The requested throughput of all clients over time, or null.
+   */
+  public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
+      String label, boolean standardstatus, int statusIntervalSeconds,
+      boolean trackJVMStats, TargetProfile targetprofile) {
+    this.targetprofile = targetprofile;
     this.completeLatch = completeLatch;
     this.clients = clients;
     this.label = label;
@@ -118,6 +157,24 @@ class StatusThread extends Thread {
     this.trackJVMStats = trackJVMStats;
   }
 
+  /**
+   * Also streams every interval to a sink, which is closed when the thread ends.
+   *
+   * @param jsonSink The sink.
+   */
+  void setJsonSink(StatusJsonSink jsonSink) {
+    this.jsonSink = jsonSink;
+  }
+
+  /**
+   * Also serves every interval over HTTP. The server is stopped when the thread ends.
+   *
+   * @param metricsServer The server.
+   */
+  void setMetricsServer(MetricsHttpServer metricsServer) {
+    this.metricsServer = metricsServer;
+  }
+
   /**
    * Run and periodically report status.
    */
@@ -151,6 +208,17 @@ class StatusThread extends Thread {
     }
     // Print the final stats.
     computeStats(startTimeMs, startIntervalMs, System.currentTimeMillis(), lastTotalOps);
+
+    if (jsonSink != null) {
+      try {
+        jsonSink.close();
+      } catch (IOException e) {
+        System.err.println("Could not close the status stream: " + e.getMessage());
+      }
+    }
+    if (metricsServer != null) {
+      metricsServer.close();
+    }
   }
 
   /**
@@ -168,11 +236,13 @@ class StatusThread extends Thread {
 
     long totalops = 0;
     long todoops = 0;
+    long backlog = 0;
 
     // Calculate the total number of operations completed.
     for (ClientThread t : clients) {
       totalops += t.getOpsDone();
       todoops += t.getOpsTodo();
+      backlog += t.getBacklog();
     }
 
     long interval = endIntervalMs - startTimeMs;
@@ -190,20 +260,79 @@ class StatusThread extends Thread {
     if (totalops != 0) {
       msg.append(d.format(curthroughput)).append(" current ops/sec; ");
     }
+    double requested = Double.NaN;
+    if (targetprofile != null && endIntervalMs > startIntervalMs) {
+      requested = 1000.0 * (targetprofile.opsUntil(TimeUnit.MILLISECONDS.toNanos(endIntervalMs - startTimeMs))
+          - targetprofile.opsUntil(TimeUnit.MILLISECONDS.toNanos(startIntervalMs - startTimeMs)))
+          / (endIntervalMs - startIntervalMs);
+      msg.append(d.format(requested)).append(" target ops/sec; ");
+      intervalEnds.add((endIntervalMs - startTimeMs) / 1000);
+      intervalRequested.add(requested);
+      intervalAchieved.add(curthroughput);
+    }
+    if (backlog != 0) {
+      msg.append(backlog).append(" ops behind schedule; ");
+    }
+    if (measurements.isWarmup()) {
+      msg.append("warming up; ");
+    }
     if (todoops != 0) {
       msg.append("est completion in ").append(RemainingFormatter.format(estremaining));
     }
 
-    msg.append(Measurements.getMeasurements().getSummary());
+    List<IntervalSnapshot> snapshots = null;
+    if (jsonSink != null || metricsServer != null) {
+      // The snapshots end the interval, so the status line is built from them.
+      snapshots = measurements.getIntervalSnapshots(snapshotPercentiles());
+      for (IntervalSnapshot snapshot : snapshots) {
+        msg.append(snapshot.getSummary()).append(" ");
+      }
+    } else {
+      msg.append(measurements.getSummary());
+    }
 
     System.err.println(msg);
 
     if (standardstatus) {
       System.out.println(msg);
     }
+
+    if (jsonSink != null) {
+      try {
+        jsonSink.write(endIntervalMs, interval, totalops, curthroughput, requested, backlog,
+            measurements.isWarmup(), snapshots);
+      } catch (IOException e) {
+        System.err.println("Could not write to the status stream, it is closed: " + e.getMessage());
+        jsonSink = null;
+      }
+    }
+    if (metricsServer != null) {
+      metricsServer.update(totalops, curthroughput, requested, backlog, measurements.isWarmup(), snapshots,
+          measurements.getStatusCounts());
+    }
     return totalops;
   }
 
+  /**
+   * @return The percentiles needed by the JSON sink and the metrics server, sorted.
+   */
+  private double[] snapshotPercentiles() {
+    TreeSet<Double> percentiles = new TreeSet<>();
+    for (double[] needed : new double[][]{
+        jsonSink == null ? new double[0] : jsonSink.getPercentiles(),
+        metricsServer == null ? new double[0] : metricsServer.getPercentiles()}) {
+      for (double percentile : needed) {
+        percentiles.add(percentile);
+      }
+    }
+    double[] ret = new double[percentiles.size()];
+    int i = 0;
+    for (double percentile : percentiles) {
+      ret[i++] = percentile;
+    }
+    return ret;
+  }
+
   /**
    * Waits for all of the client to finish or the deadline to expire.
    *
@@ -241,7 +370,7 @@ class StatusThread extends Thread {
     if (threads > maxThreads) {
       maxThreads = threads;
     }
-    measurements.measure("THREAD_COUNT", threads);
+    measurements.measureValue("THREAD_COUNT", threads);
 
     // TODO - once measurements allow for other number types, switch to using
     // the raw bytes. Otherwise we can track in MB to avoid negative values
@@ -253,14 +382,14 @@ class StatusThread extends Thread {
     if (usedMem > maxUsedMem) {
       maxUsedMem = usedMem;
     }
-    measurements.measure("USED_MEM_MB", usedMem);
+    measurements.measureValue("USED_MEM_MB", usedMem);
 
     // Some JVMs may not implement this feature so if the value is less than
     // zero, just ommit it.
     final double systemLoad = Utils.getSystemLoadAverage();
     if (systemLoad >= 0) {
       // TODO - store the double if measurements allows for them
-      measurements.measure("SYS_LOAD_AVG", (int) systemLoad);
+      measurements.measureValue("SYS_LOAD_AVG", (int) systemLoad);
       if (systemLoad > maxLoadAvg) {
         maxLoadAvg = systemLoad;
       }
@@ -270,11 +399,15 @@ class StatusThread extends Thread {
     }
 
     final long gcs = Utils.getGCTotalCollectionCount();
-    measurements.measure("GCS", (int) (gcs - lastGCCount));
+    measurements.measureValue("GCS", (int) (gcs - lastGCCount));
     final long gcTime = Utils.getGCTotalTime();
-    measurements.measure("GCS_TIME", (int) (gcTime - lastGCTime));
+    measurements.measureValue("GCS_TIME", (int) (gcTime - lastGCTime));
     lastGCCount = gcs;
     lastGCTime = gcTime;
+
+    if (metricsServer != null) {
+      metricsServer.updateJvm(threads, Utils.getUsedMemoryBytes(), systemLoad, gcs, gcTime);
+    }
   }
 
   /**
@@ -319,6 +452,20 @@ class StatusThread extends Thread {
     return minLoadAvg;
   }
 
+  /**
+   * Writes the requested and achieved throughput of every status interval, keyed by the
+   * number of seconds into the run at which the interval ended.
+   *
+   * @param exporter The exporter to write to.
+   * @throws IOException if writing fails.
+   */
+  public void exportIntervalThroughput(MeasurementsExporter exporter) throws IOException {
+    for (int i = 0; i < intervalEnds.size(); i++) {
+      exporter.write("TARGET_THROUGHPUT", Long.toString(intervalEnds.get(i)), intervalRequested.get(i));
+      exporter.write("ACHIEVED_THROUGHPUT", Long.toString(intervalEnds.get(i)), intervalAchieved.get(i));
+    }
+  }
+
   /**
    * @return Whether or not the thread is tracking JVM stats.
    */
@@ -364,173 +511,6 @@ final class RemainingFormatter {
   }
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- */
-class ClientThread implements Runnable {
-  // Counts down each of the clients completing.
-  private final CountDownLatch completeLatch;
-
-  private static boolean spinSleep;
-  private DB db;
-  private boolean dotransactions;
-  private Workload workload;
-  private int opcount;
-  private double targetOpsPerMs;
-
-  private int opsdone;
-  private int threadid;
-  private int threadcount;
-  private Object workloadstate;
-  private Properties props;
-  private long targetOpsTickNs;
-  private final Measurements measurements;
-
-  /**
-   * Constructor.
-   *
-   * @param db                   the DB implementation to use
-   * @param dotransactions       true to do transactions, false to insert data
-   * @param workload             the workload to use
-   * @param props                the properties defining the experiment
-   * @param opcount              the number of operations (transactions or
-   *                             inserts) to do
-   * @param targetperthreadperms target number of operations per thread per ms
-   * @param completeLatch        The latch tracking the completion of all clients.
-   */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount,
-      double targetperthreadperms, CountDownLatch completeLatch) {
-    this.db = db;
-    this.dotransactions = dotransactions;
-    this.workload = workload;
-    this.opcount = opcount;
-    opsdone = 0;
-    if (targetperthreadperms > 0) {
-      targetOpsPerMs = targetperthreadperms;
-      targetOpsTickNs = (long) (1000000 / targetOpsPerMs);
-    }
-    this.props = props;
-    measurements = Measurements.getMeasurements();
-    spinSleep = Boolean.valueOf(this.props.getProperty("spin.sleep", "false"));
-    this.completeLatch = completeLatch;
-  }
-
-  public void setThreadId(final int threadId) {
-    threadid = threadId;
-  }
-
-  public void setThreadCount(final int threadCount) {
-    threadcount = threadCount;
-  }
-
-  public int getOpsDone() {
-    return opsdone;
-  }
-
-  @Override
-  public void run() {
-    try {
-      db.init();
-    } catch (DBException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try {
-      workloadstate = workload.initThread(props, threadid, threadcount);
-    } catch (WorkloadException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    // NOTE: Switching to using nanoTime and parkNanos for time management here such
-    // that the measurements
-    // and the client thread have the same view on time.
-
-    // spread the thread operations out so they don't all hit the DB at the same
-    // time
-    // GH issue 4 - throws exception if _target>1 because random.nextInt argument
-    // must be >0
-    // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0)) {
-      long randomMinorDelay = Utils.random().nextInt((int) targetOpsTickNs);
-      sleepUntil(System.nanoTime() + randomMinorDelay);
-    }
-    try {
-
-      if (dotransactions) {
-        long startTimeNanos = System.nanoTime();
-
-        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
-
-          if (!workload.doTransaction(db, workloadstate)) {
-            break;
-          }
-
-          opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      } else {
-        long startTimeNanos = System.nanoTime();
-
-        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
-
-          if (!workload.doInsert(db, workloadstate)) {
-            break;
-          }
-
-          opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
-    }
-
-    try {
-      measurements.setIntendedStartTimeNs(0);
-      db.cleanup();
-    } catch (DBException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-    } finally {
-      completeLatch.countDown();
-    }
-  }
-
-  private static void sleepUntil(long deadline) {
-    while (System.nanoTime() < deadline) {
-      if (!spinSleep) {
-        LockSupport.parkNanos(deadline - System.nanoTime());
-      }
-    }
-  }
-
-  private void throttleNanos(long startTimeNanos) {
-    // throttle the operations
-    if (targetOpsPerMs > 0) {
-      // delay until next tick
-      long deadline = startTimeNanos + opsdone * targetOpsTickNs;
-      sleepUntil(deadline);
-      measurements.setIntendedStartTimeNs(deadline);
-    }
-  }
-
-  /**
-   * The total amount of work this thread is still expected to do.
-   */
-  int getOpsTodo() {
-    int todo = opcount - opsdone;
-    return todo < 0 ? 0 : todo;
-  }
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -592,6 +572,12 @@ public final class Client {
    */
   public static final String TARGET_PROPERTY = "target";
 
+  /**
+   * A file describing how the target number of operations per second changes over the run.
+   * See {@link TargetProfile} for the format. Cannot be combined with {@link #TARGET_PROPERTY}.
+   */
+  public static final String TARGET_PROFILE_PROPERTY = "targetprofile";
+
   /**
    * The maximum amount of time (in seconds) for which the benchmark will be run.
    */
@@ -612,6 +598,42 @@ public final class Client {
    */
   public static final String LABEL_PROPERTY = "label";
 
+  /**
+   * Whether client threads issue operations asynchronously, keeping several in flight at once.
+   */
+  public static final String ASYNC_PROPERTY = "async";
+
+  /**
+   * The maximum number of operations each client thread keeps in flight when running asynchronously.
+   */
+  public static final String ASYNC_MAX_OUTSTANDING_PROPERTY = "async.maxoutstanding";
+
+  /**
+   * Default value of {@link #ASYNC_MAX_OUTSTANDING_PROPERTY}.
+   */
+  public static final String ASYNC_MAX_OUTSTANDING_PROPERTY_DEFAULT = "64";
+
+  /**
+   * The time in milliseconds an unthrottled client thread waits after each operation before
+   * issuing the next one, like a user pausing between requests.
+   */
+  public static final String THINK_TIME_PROPERTY = "thinktime";
+
+  /**
+   * Default value of {@link #THINK_TIME_PROPERTY}.
+   */
+  public static final String THINK_TIME_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How think times are distributed: "constant", or "exponential" with the think time as mean.
+   */
+  public static final String THINK_TIME_DISTRIBUTION_PROPERTY = "thinktime.distribution";
+
+  /**
+   * Default value of {@link #THINK_TIME_DISTRIBUTION_PROPERTY}.
+   */
+  public static final String THINK_TIME_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
   /**
    * An optional thread used to track progress and measure JVM stats.
    */
@@ -652,14 +674,16 @@ public final class Client {
     System.out.println("  " + WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. " +
         "com.yahoo.ycsb.workloads.CoreWorkload)");
     System.out.println("");
-    System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
-    System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
-    System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records " +
-        "to be inserted");
+    System.out.println("To run a phase from multiple servers, start a coordinator with the usual arguments and");
+    System.out.println("  -p " + Coordinator.WORKERS_PROPERTY + "=n, then a client on each server with only");
+    System.out.println("  -p " + Worker.COORDINATOR_PROPERTY + "=host:port and any properties specific to it. The");
+    System.out.println("coordinator divides up the records, operations and target, and merges the measurements.");
+    System.out.println("To run a phase in several JVMs on this server, set " + ForkedRun.JVMS_PROPERTY + "=n.");
   }
 
   public static boolean checkRequiredProperties(Properties props) {
-    if (props.getProperty(WORKLOAD_PROPERTY) == null) {
+    // A worker is sent the workload by the coordinator.
+    if (props.getProperty(WORKLOAD_PROPERTY) == null && props.getProperty(Worker.COORDINATOR_PROPERTY) == null) {
       System.out.println("Missing property: " + WORKLOAD_PROPERTY);
       return false;
     }
@@ -671,38 +695,32 @@ public final class Client {
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    *
+   * @param opcount  The number of operations completed after the warmup.
+   * @param runtime  The time in milliseconds from the end of the warmup to the end of the run.
+   * @param warmup   The finished warmup, or null.
    * @throws IOException Either failed to write to output stream or failed to
    *                     close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
-      throws IOException {
+  private static void exportMeasurements(Properties props, long opcount, long runtime,
+      TargetProfile targetprofile, Warmup warmup) throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = newExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+      long warmupTime = 0;
+      if (warmup != null) {
+        warmupTime = warmup.getTimeMs();
+        exporter.write("OVERALL", "WarmupTime(ms)", warmupTime);
+        exporter.write("OVERALL", "WarmupOperations", warmup.getOps());
+      }
+      if (targetprofile != null) {
+        exporter.write("OVERALL", "TargetThroughput(ops/sec)",
+            1000.0 * (targetprofile.opsUntil(TimeUnit.MILLISECONDS.toNanos(warmupTime + runtime))
+                - targetprofile.opsUntil(TimeUnit.MILLISECONDS.toNanos(warmupTime))) / runtime);
+      }
 
       final Map<String, Long[]> gcs = Utils.getGCStatst();
       long totalGCCount = 0;
@@ -727,6 +745,9 @@ public final class Client {
         exporter.write("MAX_SYS_LOAD_AVG", "Load", statusthread.getMaxLoadAvg());
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
+      if (statusthread != null && targetprofile != null) {
+        statusthread.exportIntervalThroughput(exporter);
+      }
 
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
@@ -736,9 +757,54 @@ public final class Client {
     }
   }
 
+  /**
+   * Creates the exporter configured by the properties, writing to the export file or stdout.
+   *
+   * @throws IOException if the export file could not be opened.
+   */
+  static MeasurementsExporter newExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static void main(String[] args) {
     Properties props = parseArguments(args);
+    if (props.getProperty(Worker.COORDINATOR_PROPERTY) != null) {
+      Worker.work(props);
+      return;
+    }
+    if (props.getProperty(ForkedRun.FILE_PROPERTY) != null) {
+      ForkedRun.work(props);
+      return;
+    }
+    if (props.getProperty(ForkedRun.JVMS_PROPERTY) != null) {
+      ForkedRun.fork(props);
+      return;
+    }
+    if (props.getProperty(Coordinator.WORKERS_PROPERTY) != null) {
+      Coordinator.coordinate(props);
+      return;
+    }
 
     boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
     String label = props.getProperty(LABEL_PROPERTY, "");
@@ -749,12 +815,23 @@ public final class Client {
     int threadcount = Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY, "1"));
     String dbname = props.getProperty(DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
     int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
+    String targetprofileFile = props.getProperty(TARGET_PROFILE_PROPERTY);
 
     // compute the target throughput
-    double targetperthreadperms = -1;
-    if (target > 0) {
-      double targetperthread = ((double) target) / ((double) threadcount);
-      targetperthreadperms = targetperthread / 1000.0;
+    TargetProfile targetprofile = null;
+    if (targetprofileFile != null) {
+      if (target > 0) {
+        System.err.println("Only one of " + TARGET_PROPERTY + " and " + TARGET_PROFILE_PROPERTY + " may be set.");
+        System.exit(0);
+      }
+      try {
+        targetprofile = TargetProfile.load(targetprofileFile);
+      } catch (IOException | IllegalArgumentException e) {
+        System.err.println("Could not read target profile " + targetprofileFile + ": " + e.getMessage());
+        System.exit(0);
+      }
+    } else if (target > 0) {
+      targetprofile = TargetProfile.constant(target);
     }
 
     Thread warningthread = setupWarningThread();
@@ -771,9 +848,20 @@ public final class Client {
     System.err.println("Starting test.");
     final CountDownLatch completeLatch = new CountDownLatch(threadcount);
 
-    final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
+    final List<ClientThread> clients = initDb(dbname, props, threadcount, targetprofile,
         workload, tracer, completeLatch);
 
+    Warmup warmup = null;
+    try {
+      warmup = Warmup.create(props);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+    for (ClientThread client : clients) {
+      client.setWarmup(warmup);
+    }
+
     if (status) {
       boolean standardstatus = false;
       if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "").compareTo("timeseries") == 0) {
@@ -783,22 +871,49 @@ public final class Client {
       boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY,
           Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
       statusthread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
-          trackJVMStats);
+          trackJVMStats, targetprofile);
+      try {
+        statusthread.setJsonSink(StatusJsonSink.create(props));
+      } catch (IOException | IllegalArgumentException e) {
+        System.err.println("Could not open the status stream: " + e.getMessage());
+        System.exit(0);
+      }
+      try {
+        MetricsHttpServer metricsServer = MetricsHttpServer.create(props);
+        if (metricsServer != null) {
+          System.err.println("Serving metrics at http://localhost:" + metricsServer.getPort() + "/metrics");
+        }
+        statusthread.setMetricsServer(metricsServer);
+      } catch (IOException | IllegalArgumentException e) {
+        System.err.println("Could not start the metrics server: " + e.getMessage());
+        System.exit(0);
+      }
       statusthread.start();
     }
 
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
+    long opsDone;
+
+    ThreadFactory threadFactory = null;
+    try {
+      threadFactory = ClientThreadFactory.create(props);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
       final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        threads.put(threadFactory.newThread(tracer.wrap(client, "ClientThread")), client);
       }
 
+      if (warmup != null) {
+        warmup.start();
+      }
       st = System.currentTimeMillis();
 
       for (Thread t : threads.keySet()) {
@@ -853,7 +968,16 @@ public final class Client {
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+        if (warmup != null && warmup.isActive()) {
+          System.err.println("The run ended before the warmup did; reporting the whole run.");
+          warmup = null;
+        }
+        if (warmup != null) {
+          st = warmup.getEndTimeMs();
+          opsDone -= warmup.getOps();
+        }
+        exportMeasurements(props, opsDone, en - st, targetprofile, warmup);
+        Calibration.warnNearCeiling(props, threadcount, 1000.0 * opsDone / (en - st));
       }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -864,36 +988,50 @@ public final class Client {
     System.exit(0);
   }
 
-  private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
-      double targetperthreadperms, Workload workload, Tracer tracer,
+  static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
+      TargetProfile targetprofile, Workload workload, Tracer tracer,
       CountDownLatch completeLatch) {
     boolean initFailed = false;
     boolean dotransactions = Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    boolean async = Boolean.valueOf(props.getProperty(ASYNC_PROPERTY, String.valueOf(false)));
+    int maxOutstanding = Integer.parseInt(props.getProperty(ASYNC_MAX_OUTSTANDING_PROPERTY,
+        ASYNC_MAX_OUTSTANDING_PROPERTY_DEFAULT));
+
+    if (async && Boolean.parseBoolean(props.getProperty(CoreWorkload.DATA_INTEGRITY_PROPERTY,
+        CoreWorkload.DATA_INTEGRITY_PROPERTY_DEFAULT))) {
+      System.err.println("The " + CoreWorkload.DATA_INTEGRITY_PROPERTY + " check is not supported with "
+          + ASYNC_PROPERTY + "=true.");
+      System.exit(0);
+    }
 
     final List<ClientThread> clients = new ArrayList<>(threadcount);
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
-      int opcount;
+      long opcount;
       if (dotransactions) {
-        opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
+        opcount = Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY, "0"));
       } else {
         if (props.containsKey(INSERT_COUNT_PROPERTY)) {
-          opcount = Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
+          opcount = Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY, "0"));
         } else {
-          opcount = Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+          opcount = Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
         }
       }
 
       for (int threadid = 0; threadid < threadcount; threadid++) {
         DB db;
         try {
-          db = DBFactory.newDB(dbname, props, tracer);
+          if (async) {
+            db = DBFactory.newAsyncDB(dbname, props, tracer, maxOutstanding);
+          } else {
+            db = DBFactory.newDB(dbname, props, tracer);
+          }
         } catch (UnknownDBException e) {
           System.out.println("Unknown DB " + dbname);
           initFailed = true;
           break;
         }
 
-        int threadopcount = opcount / threadcount;
+        long threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of
         // threadcount
@@ -901,8 +1039,15 @@ public final class Client {
           ++threadopcount;
         }
 
-        ClientThread t = new ClientThread(db, dotransactions, workload, props, threadopcount, targetperthreadperms,
-            completeLatch);
+        ClientThread t;
+        try {
+          t = new ClientThread(db, dotransactions, workload, props, threadopcount,
+              targetprofile == null ? null : targetprofile.scale(1.0 / threadcount), completeLatch);
+        } catch (IllegalArgumentException e) {
+          System.err.println(e.getMessage());
+          System.exit(0);
+          return clients;
+        }
         t.setThreadId(threadid);
         t.setThreadCount(threadcount);
         clients.add(t);
@@ -916,13 +1061,13 @@ public final class Client {
     return clients;
   }
 
-  private static Tracer getTracer(Properties props, Workload workload) {
+  static Tracer getTracer(Properties props, Workload workload) {
     return new Tracer.Builder("YCSB " + workload.getClass().getSimpleName())
         .conf(getHTraceConfiguration(props))
         .build();
   }
 
-  private static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
+  static void initWorkload(Properties props, Thread warningthread, Workload workload, Tracer tracer) {
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_INIT_SPAN)) {
         workload.init(props);
@@ -945,7 +1090,7 @@ public final class Client {
     return HTraceConfiguration.fromMap(filteredProperties);
   }
 
-  private static Thread setupWarningThread() {
+  static Thread setupWarningThread() {
     // show a warning message that creating the workload is taking a while
     // but only do so if it is taking longer than 2 seconds
     // (showing the message right away if the setup wasn't taking very long was
@@ -963,7 +1108,7 @@ public final class Client {
     };
   }
 
-  private static Workload getWorkload(Properties props) {
+  static Workload getWorkload(Properties props) {
     ClassLoader classLoader = Client.class.getClassLoader();
 
     try {
@@ -989,7 +1134,7 @@ public final class Client {
     return null;
   }
 
-  private static Properties parseArguments(String[] args) {
+  static Properties parseArguments(String[] args) {
     Properties props = new Properties();
     System.err.print("Command line:");
     for (String arg : args) {
@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2010-2016 Yahoo! Inc., 2017 YCSB contributors All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread for executing transactions or data inserts to the database.
+ */
+class ClientThread implements Runnable {
+  // Counts down each of the clients completing.
+  private final CountDownLatch completeLatch;
+
+  private static boolean spinSleep;
+  private DB db;
+  private boolean dotransactions;
+  private Workload workload;
+  private long opcount;
+  private double targetOpsPerMs;
+
+  private volatile long opsdone;
+  private int threadid;
+  private int threadcount;
+  private Object workloadstate;
+  private Properties props;
+  private long targetOpsTickNs;
+  private ArrivalScheduler arrivals;
+  private volatile long backlog;
+  private volatile long startTimeNanos;
+  private volatile long endTimeNanos;
+  private long thinkTimeNs;
+  private boolean exponentialThinkTime;
+  private Warmup warmup;
+  private final Measurements measurements;
+
+  /**
+   * Constructor.
+   *
+   * @param db                   the DB implementation to use
+   * @param dotransactions       true to do transactions, false to insert data
+   * @param workload             the workload to use
+   * @param props                the properties defining the experiment
+   * @param opcount              the number of operations (transactions or
+   *                             inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch        The latch tracking the completion of all clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount,
+      double targetperthreadperms, CountDownLatch completeLatch) {
+    this(db, dotransactions, workload, props, opcount,
+        targetperthreadperms > 0 ? TargetProfile.constant(targetperthreadperms * 1000) : null, completeLatch);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param db                   the DB implementation to use
+   * @param dotransactions       true to do transactions, false to insert data
+   * @param workload             the workload to use
+   * @param props                the properties defining the experiment
+   * @param opcount              the number of operations (transactions or
+   *                             inserts) to do
+   * @param targetprofile        the target throughput of this thread over time,
+   *                             or null for unthrottled operation
+   * @param completeLatch        The latch tracking the completion of all clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount,
+      TargetProfile targetprofile, CountDownLatch completeLatch) {
+    this.db = db;
+    this.dotransactions = dotransactions;
+    this.workload = workload;
+    this.opcount = opcount;
+    opsdone = 0;
+    if (targetprofile != null) {
+      if (targetprofile.isConstant()) {
+        targetOpsPerMs = targetprofile.rateAt(0) / 1000;
+        targetOpsTickNs = (long) (1000000 / targetOpsPerMs);
+      }
+      arrivals = ArrivalScheduler.create(props, targetprofile);
+    }
+    this.props = props;
+    measurements = Measurements.getMeasurements();
+    spinSleep = Boolean.valueOf(this.props.getProperty("spin.sleep", "false"));
+    thinkTimeNs = TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(props.getProperty(Client.THINK_TIME_PROPERTY, Client.THINK_TIME_PROPERTY_DEFAULT)));
+    String thinkTimeDistribution = props.getProperty(Client.THINK_TIME_DISTRIBUTION_PROPERTY,
+        Client.THINK_TIME_DISTRIBUTION_PROPERTY_DEFAULT);
+    if ("exponential".equals(thinkTimeDistribution)) {
+      exponentialThinkTime = true;
+    } else if (!"constant".equals(thinkTimeDistribution)) {
+      throw new IllegalArgumentException("Unknown " + Client.THINK_TIME_DISTRIBUTION_PROPERTY + " \""
+          + thinkTimeDistribution + "\"");
+    }
+    this.completeLatch = completeLatch;
+  }
+
+  public void setThreadId(final int threadId) {
+    threadid = threadId;
+  }
+
+  public void setThreadCount(final int threadCount) {
+    threadcount = threadCount;
+  }
+
+  /**
+   * @param warmup The warmup shared by all client threads, or null.
+   */
+  public void setWarmup(final Warmup warmup) {
+    this.warmup = warmup;
+  }
+
+  public long getOpsDone() {
+    return opsdone;
+  }
+
+  /**
+   * @return When the thread started issuing operations, as a {@link System#nanoTime()} value.
+   */
+  public long getStartTimeNanos() {
+    return startTimeNanos;
+  }
+
+  /**
+   * @return When the thread issued its last operation, as a {@link System#nanoTime()} value.
+   */
+  public long getEndTimeNanos() {
+    return endTimeNanos;
+  }
+
+  /**
+   * @return The number of arrivals that were already due when the thread last issued an
+   *         operation, or 0 if the thread is not throttled or keeps up.
+   */
+  public long getBacklog() {
+    return backlog;
+  }
+
+  @Override
+  public void run() {
+    try {
+      db.init();
+    } catch (DBException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+
+    try {
+      workloadstate = workload.initThread(props, threadid, threadcount);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+
+    // NOTE: Switching to using nanoTime and parkNanos for time management here such
+    // that the measurements
+    // and the client thread have the same view on time.
+
+    // spread the thread operations out so they don't all hit the DB at the same
+    // time
+    // GH issue 4 - throws exception if _target>1 because random.nextInt argument
+    // must be >0
+    // and the sleep() doesn't make sense for granularities < 1 ms anyway
+    if ((targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0)) {
+      long randomMinorDelay = Utils.random().nextInt((int) targetOpsTickNs);
+      sleepUntil(System.nanoTime() + randomMinorDelay);
+    } else if (arrivals == null && thinkTimeNs > 0) {
+      // likewise keep clients with a think time from issuing their operations in lockstep
+      sleepUntil(System.nanoTime() + (long) (Utils.random().nextDouble() * thinkTimeNs));
+    }
+    try {
+
+      if (dotransactions) {
+        startTimeNanos = System.nanoTime();
+        if (arrivals != null) {
+          arrivals.start(startTimeNanos);
+        }
+
+        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+
+          if (!workload.doTransaction(db, workloadstate)) {
+            break;
+          }
+
+          opsdone++;
+          if (warmup != null && warmup.isActive()) {
+            warmup.opDone();
+          }
+
+          if (!throttleNanos()) {
+            break;
+          }
+        }
+      } else {
+        startTimeNanos = System.nanoTime();
+        if (arrivals != null) {
+          arrivals.start(startTimeNanos);
+        }
+
+        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+
+          if (!workload.doInsert(db, workloadstate)) {
+            break;
+          }
+
+          opsdone++;
+          if (warmup != null && warmup.isActive()) {
+            warmup.opDone();
+          }
+
+          if (!throttleNanos()) {
+            break;
+          }
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+    endTimeNanos = System.nanoTime();
+
+    try {
+      measurements.setIntendedStartTimeNs(0);
+      db.cleanup();
+    } catch (DBException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    } finally {
+      // Hand what this thread recorded to the measurements before it is gone.
+      measurements.retireShards();
+      completeLatch.countDown();
+    }
+  }
+
+  private static void sleepUntil(long deadline) {
+    while (System.nanoTime() < deadline) {
+      if (!spinSleep) {
+        LockSupport.parkNanos(deadline - System.nanoTime());
+      }
+    }
+  }
+
+  /**
+   * Waits for the next arrival if the thread is throttled, or for the think time otherwise.
+   *
+   * @return False if the target profile has ended and no more operations should be issued.
+   */
+  private boolean throttleNanos() {
+    // throttle the operations
+    if (arrivals != null) {
+      // delay until the next arrival
+      long deadline = arrivals.next();
+      if (deadline == Long.MAX_VALUE) {
+        backlog = 0;
+        return false;
+      }
+      sleepUntil(deadline);
+      measurements.setIntendedStartTimeNs(deadline);
+      backlog = arrivals.backlog(System.nanoTime());
+    } else if (thinkTimeNs > 0) {
+      long think = exponentialThinkTime ? (long) ArrivalScheduler.exponentialGap(thinkTimeNs) : thinkTimeNs;
+      sleepUntil(System.nanoTime() + think);
+    }
+    return true;
+  }
+
+  /**
+   * The total amount of work this thread is still expected to do.
+   */
+  long getOpsTodo() {
+    long todo = opcount - opsdone;
+    return todo < 0 ? 0 : todo;
+  }
+}
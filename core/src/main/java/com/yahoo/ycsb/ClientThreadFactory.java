@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads that run the {@link ClientThread}s.
+ *
+ * With "threadmode=virtual" every client runs on a virtual thread, so tens of thousands of
+ * clients blocking in their bindings only cost a small heap-allocated stack each. Virtual threads
+ * need a JVM that has them (Java 21 or later); on older JVMs the clients fall back to platform
+ * threads with a small stack, see {@link #THREAD_STACK_SIZE_PROPERTY}.
+ */
+final class ClientThreadFactory {
+  /**
+   * How client threads are run.
+   * <ul>
+   * <li><b>platform</b>: one operating system thread per client (the default)</li>
+   * <li><b>virtual</b>: one virtual thread per client</li>
+   * </ul>
+   */
+  public static final String THREAD_MODE_PROPERTY = "threadmode";
+
+  /**
+   * Default value of {@link #THREAD_MODE_PROPERTY}.
+   */
+  public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
+  /**
+   * The stack size in bytes of platform client threads, or 0 for the JVM default. When virtual
+   * threads were requested but are not available it defaults to
+   * {@link #FALLBACK_STACK_SIZE}.
+   */
+  public static final String THREAD_STACK_SIZE_PROPERTY = "thread.stacksize";
+
+  /**
+   * The stack size of the platform threads used in place of virtual threads.
+   */
+  static final long FALLBACK_STACK_SIZE = 256 * 1024;
+
+  private ClientThreadFactory() {
+    // not used
+  }
+
+  /**
+   * Creates the thread factory configured by the properties.
+   *
+   * @param props The run properties.
+   * @return The factory.
+   * @throws IllegalArgumentException if the thread mode is unknown.
+   */
+  static ThreadFactory create(Properties props) {
+    final String mode = props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT);
+    final String stackSize = props.getProperty(THREAD_STACK_SIZE_PROPERTY);
+    switch (mode) {
+    case "platform":
+      return platform(stackSize == null ? 0 : Long.parseLong(stackSize));
+    case "virtual":
+      ThreadFactory factory = virtual();
+      if (factory == null) {
+        System.err.println("Virtual threads are not available in this JVM, using platform threads instead.");
+        return platform(stackSize == null ? FALLBACK_STACK_SIZE : Long.parseLong(stackSize));
+      }
+      return factory;
+    default:
+      throw new IllegalArgumentException("Unknown " + THREAD_MODE_PROPERTY + " \"" + mode + "\"");
+    }
+  }
+
+  private static ThreadFactory platform(final long stackSize) {
+    final AtomicInteger count = new AtomicInteger();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        return new Thread(null, r, "ClientThread-" + count.getAndIncrement(), stackSize);
+      }
+    };
+  }
+
+  /**
+   * Looks up Thread.ofVirtual().name(...).factory() reflectively so the client still builds
+   * and runs on JVMs without virtual threads.
+   *
+   * @return The factory, or null if virtual threads are not available.
+   */
+  private static ThreadFactory virtual() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      Method name = builderClass.getMethod("name", String.class, long.class);
+      builder = name.invoke(builder, "ClientThread-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      // Older JVM, or virtual threads disabled as a preview feature.
+      return null;
+    }
+  }
+}
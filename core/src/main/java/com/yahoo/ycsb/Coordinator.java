@@ -0,0 +1,414 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Runs a phase of the workload on several {@link Worker}s, typically on different hosts, as one.
+ *
+ * The coordinator waits for "distributed.workers" workers to connect and sends each the
+ * properties of the run, with its share of the work: the load phase splits the keys from
+ * "insertstart" on among the workers, the transaction phase splits "operationcount" and
+ * interleaves the keys the workers insert through "insertstride" and "insertoffset", and both
+ * split "target". Once every worker has initialized its workload and database, the coordinator
+ * starts them all at once. The workers send their interval HdrHistograms as they run and their
+ * return codes at the end; the coordinator adds the histograms up, so the reported percentiles
+ * are those of all operations, not averages of each worker's.
+ *
+ * Messages are a type byte followed by its fields, written with {@link DataOutputStream}.
+ */
+final class Coordinator implements Closeable {
+  /**
+   * The number of workers to run the phase on. Setting it makes the client the coordinator.
+   */
+  public static final String WORKERS_PROPERTY = "distributed.workers";
+
+  /**
+   * The port the coordinator listens on.
+   */
+  public static final String PORT_PROPERTY = "distributed.port";
+  public static final String PORT_PROPERTY_DEFAULT = "6788";
+
+  /**
+   * How long the coordinator waits for the workers to connect, and workers for the
+   * coordinator to accept them, in seconds.
+   */
+  public static final String TIMEOUT_PROPERTY = "distributed.timeout";
+  public static final String TIMEOUT_PROPERTY_DEFAULT = "300";
+
+  /**
+   * The index of a worker, from 0, set by the coordinator.
+   */
+  public static final String WORKER_INDEX_PROPERTY = "distributed.workerindex";
+
+  /**
+   * The number of workers of the run, set by the coordinator.
+   */
+  public static final String WORKER_COUNT_PROPERTY = "distributed.workercount";
+
+  // Coordinator to worker.
+  static final byte PROPERTIES = 1;
+  static final byte START = 2;
+  // Worker to coordinator.
+  static final byte READY = 3;
+  static final byte INTERVAL = 4;
+  static final byte DONE = 5;
+
+  /**
+   * A connected worker.
+   */
+  private static final class Connection {
+    private final int index;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    // Set by the reading thread.
+    private volatile IOException failure;
+
+    private Connection(int index, Socket socket) throws IOException {
+      this.index = index;
+      this.socket = socket;
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+  }
+
+  private final Properties props;
+  private final int workers;
+  private final int timeout;
+  private final ServerSocket server;
+  private final List<Connection> connections = new ArrayList<>();
+  private final MergedMeasurements measurements;
+
+  /**
+   * Listens for the workers.
+   *
+   * @throws IllegalArgumentException if the run cannot be distributed.
+   * @throws IOException if the port could not be bound.
+   */
+  Coordinator(Properties props) throws IOException {
+    this.props = props;
+    workers = Integer.parseInt(props.getProperty(WORKERS_PROPERTY));
+    timeout = Integer.parseInt(props.getProperty(TIMEOUT_PROPERTY, TIMEOUT_PROPERTY_DEFAULT));
+    if (workers < 1) {
+      throw new IllegalArgumentException(WORKERS_PROPERTY + " must be at least 1, not " + workers);
+    }
+    measurements = new MergedMeasurements(props, workers);
+    server = new ServerSocket(Integer.parseInt(props.getProperty(PORT_PROPERTY, PORT_PROPERTY_DEFAULT)));
+  }
+
+  int getPort() {
+    return server.getLocalPort();
+  }
+
+  /**
+   * @return The properties of one worker, with its share of the insert range, the operations
+   *         and the target throughput.
+   */
+  static Properties split(Properties props, int index, int workers) {
+    Properties worker = new Properties();
+    for (String name : props.stringPropertyNames()) {
+      worker.setProperty(name, props.getProperty(name));
+    }
+    worker.remove(WORKERS_PROPERTY);
+    worker.setProperty(WORKER_INDEX_PROPERTY, Integer.toString(index));
+    worker.setProperty(WORKER_COUNT_PROPERTY, Integer.toString(workers));
+
+    if (Boolean.valueOf(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      long opcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+      if (opcount > 0) {
+        worker.setProperty(Client.OPERATION_COUNT_PROPERTY, Long.toString(share(opcount, index, workers)));
+      }
+      // Worker i inserts the i-th of every workers keys, within whatever stride it was given itself.
+      long stride = Long.parseLong(props.getProperty(Workload.INSERT_STRIDE_PROPERTY,
+          Workload.INSERT_STRIDE_PROPERTY_DEFAULT));
+      long offset = Long.parseLong(props.getProperty(Workload.INSERT_OFFSET_PROPERTY,
+          Workload.INSERT_OFFSET_PROPERTY_DEFAULT));
+      worker.setProperty(Workload.INSERT_STRIDE_PROPERTY, Long.toString(stride * workers));
+      worker.setProperty(Workload.INSERT_OFFSET_PROPERTY, Long.toString(offset + stride * index));
+    } else {
+      long insertstart = Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,
+          Workload.INSERT_START_PROPERTY_DEFAULT));
+      long insertcount;
+      if (props.containsKey(Workload.INSERT_COUNT_PROPERTY)) {
+        insertcount = Long.parseLong(props.getProperty(Workload.INSERT_COUNT_PROPERTY));
+      } else {
+        insertcount = Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT))
+            - insertstart;
+      }
+      long before = (insertcount / workers) * index + Math.min(index, insertcount % workers);
+      worker.setProperty(Workload.INSERT_START_PROPERTY, Long.toString(insertstart + before));
+      worker.setProperty(Workload.INSERT_COUNT_PROPERTY, Long.toString(share(insertcount, index, workers)));
+    }
+
+    int target = Integer.parseInt(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target > 0) {
+      // Zero would mean unthrottled.
+      worker.setProperty(Client.TARGET_PROPERTY, Long.toString(Math.max(1, share(target, index, workers))));
+    }
+    return worker;
+  }
+
+  /**
+   * @return The share of a total of a worker, the first workers taking the remainder.
+   */
+  private static long share(long total, int index, int workers) {
+    return total / workers + (index < total % workers ? 1 : 0);
+  }
+
+  /**
+   * Runs the phase: waits for the workers, starts them together and collects their measurements
+   * until all are done.
+   *
+   * @param status Whether to print the merged status every "status.interval" seconds.
+   * @throws IOException if a worker did not connect in time or failed.
+   */
+  void run(boolean status) throws IOException {
+    System.err.println("Waiting for " + workers + " workers on port " + getPort() + ".");
+    server.setSoTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+    for (int i = 0; i < workers; i++) {
+      Connection connection = new Connection(i, server.accept());
+      connections.add(connection);
+      System.err.println("Worker " + i + " connected from " + connection.socket.getRemoteSocketAddress() + ".");
+      connection.out.writeByte(PROPERTIES);
+      writeProperties(connection.out, split(props, i, workers));
+      connection.out.flush();
+    }
+
+    for (Connection connection : connections) {
+      // A worker that hangs while initializing must not hang the run.
+      connection.socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+      try {
+        expect(connection, READY);
+      } catch (SocketTimeoutException e) {
+        throw new IOException("Worker " + connection.index + " did not get ready in " + timeout + " seconds.", e);
+      }
+      // Intervals may be far apart, so reading them waits as long as it takes.
+      connection.socket.setSoTimeout(0);
+    }
+    // The workers start as soon as they read this, so send it to all before anything else.
+    for (Connection connection : connections) {
+      connection.out.writeByte(START);
+      connection.out.flush();
+    }
+    final long st = System.currentTimeMillis();
+    System.err.println("Starting test.");
+
+    List<Thread> readers = new ArrayList<>();
+    for (final Connection connection : connections) {
+      Thread reader = new Thread(() -> receive(connection), "coordinator-worker-" + connection.index);
+      reader.setDaemon(true);
+      reader.start();
+      readers.add(reader);
+    }
+
+    int statusInterval = Integer.parseInt(props.getProperty("status.interval", "10"));
+    long lastTotalOps = 0;
+    long lastMs = st;
+    for (Thread reader : readers) {
+      while (reader.isAlive()) {
+        try {
+          reader.join(status ? TimeUnit.SECONDS.toMillis(statusInterval) : 0);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the workers.", e);
+        }
+        if (status && reader.isAlive()) {
+          long now = System.currentTimeMillis();
+          lastTotalOps = measurements.printStatus(st, lastMs, now, lastTotalOps);
+          lastMs = now;
+        }
+      }
+    }
+    if (status) {
+      measurements.printStatus(st, lastMs, System.currentTimeMillis(), lastTotalOps);
+    }
+
+    for (Connection connection : connections) {
+      if (connection.failure != null) {
+        throw new IOException("Worker " + connection.index + " failed: " + connection.failure.getMessage(),
+            connection.failure);
+      }
+    }
+  }
+
+  private static void expect(Connection connection, byte type) throws IOException {
+    byte read;
+    try {
+      read = connection.in.readByte();
+    } catch (EOFException e) {
+      throw new IOException("Worker " + connection.index + " disconnected.", e);
+    }
+    if (read != type) {
+      throw new IOException("Unexpected message " + read + " from worker " + connection.index + ".");
+    }
+  }
+
+  /**
+   * Reads the intervals of a worker until it is done.
+   */
+  private void receive(Connection connection) {
+    try {
+      while (!measurements.receive(connection.index, connection.in)) {
+        // next interval
+      }
+    } catch (IOException e) {
+      connection.failure = e instanceof EOFException ? new IOException("disconnected", e) : e;
+    }
+  }
+
+  /**
+   * Exports the merged measurements of a finished run.
+   */
+  void export(MeasurementsExporter exporter) throws IOException {
+    measurements.export(exporter);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Connection connection : connections) {
+      connection.socket.close();
+    }
+    server.close();
+  }
+
+  /**
+   * Coordinates a run of {@link Client}, exporting the merged measurements like a local run.
+   */
+  static void coordinate(Properties props) {
+    boolean status = Boolean.valueOf(props.getProperty(Client.STATUS_PROPERTY, String.valueOf(false)));
+    try (Coordinator coordinator = new Coordinator(props)) {
+      coordinator.run(status);
+      MeasurementsExporter exporter = Client.newExporter(props);
+      try {
+        coordinator.export(exporter);
+      } finally {
+        exporter.close();
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    } catch (IOException e) {
+      System.err.println("The distributed run failed: " + e.getMessage());
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+
+  static void writeProperties(DataOutputStream out, Properties props) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    props.store(bytes, null);
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  static Properties readProperties(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    Properties props = new Properties();
+    props.load(new ByteArrayInputStream(bytes));
+    return props;
+  }
+
+  static void writeHistograms(DataOutputStream out, Map<String, Histogram> histograms) throws IOException {
+    out.writeInt(histograms.size());
+    for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+      ByteBuffer buffer = ByteBuffer.allocate(histogram.getValue().getNeededByteBufferCapacity());
+      int length = histogram.getValue().encodeIntoCompressedByteBuffer(buffer);
+      out.writeUTF(histogram.getKey());
+      out.writeInt(length);
+      out.write(buffer.array(), 0, length);
+    }
+  }
+
+  static Map<String, Histogram> readHistograms(DataInputStream in) throws IOException {
+    Map<String, Histogram> histograms = new LinkedHashMap<>();
+    for (int count = in.readInt(); count > 0; count--) {
+      String name = in.readUTF();
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      try {
+        histograms.put(name, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0));
+      } catch (DataFormatException e) {
+        throw new IOException("Malformed histogram of " + name, e);
+      }
+    }
+    return histograms;
+  }
+
+  static void writeStatusCounts(DataOutputStream out, Map<String, Map<String, Long>> counts) throws IOException {
+    out.writeInt(counts.size());
+    for (Map.Entry<String, Map<String, Long>> operation : counts.entrySet()) {
+      out.writeUTF(operation.getKey());
+      out.writeInt(operation.getValue().size());
+      for (Map.Entry<String, Long> count : operation.getValue().entrySet()) {
+        out.writeUTF(count.getKey());
+        out.writeLong(count.getValue());
+      }
+    }
+  }
+
+  static Map<String, Map<String, Long>> readStatusCounts(DataInputStream in) throws IOException {
+    Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+    for (int operations = in.readInt(); operations > 0; operations--) {
+      String name = in.readUTF();
+      Map<String, Long> operation = new LinkedHashMap<>();
+      for (int codes = in.readInt(); codes > 0; codes--) {
+        operation.put(in.readUTF(), in.readLong());
+      }
+      counts.put(name, operation);
+    }
+    return counts;
+  }
+
+  /**
+   * @return The address of a "host:port" string.
+   */
+  static InetSocketAddress parseAddress(String address) {
+    int colon = address.lastIndexOf(':');
+    if (colon < 0) {
+      return new InetSocketAddress(address, Integer.parseInt(PORT_PROPERTY_DEFAULT));
+    }
+    return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+  }
+}
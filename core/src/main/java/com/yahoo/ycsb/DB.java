@@ -124,6 +124,25 @@ public abstract class DB {
    */
   public abstract Status insert(String table, String key, Map<String, ByteIterator> values);
 
+  /**
+   * Insert a record in the database and run a callback once the insert has completed. A DB that returns before its
+   * operations complete, like {@link AsyncDBWrapper}, runs the callback later, so a workload can wait to consider the
+   * record present until it is.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @param completed Run once the insert has completed, whatever its result.
+   * @return The result of the operation.
+   */
+  public Status insert(String table, String key, Map<String, ByteIterator> values, Runnable completed) {
+    try {
+      return insert(table, key, values);
+    } finally {
+      completed.run();
+    }
+  }
+
   /**
    * Delete a record from the database.
    *
@@ -19,6 +19,8 @@ package com.yahoo.ycsb;
 
 import org.apache.htrace.core.Tracer;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -30,6 +32,43 @@ public final class DBFactory {
   }
 
   public static DB newDB(String dbname, Properties properties, final Tracer tracer) throws UnknownDBException {
+    DB ret = instantiate(dbname, properties);
+    if (ret == null) {
+      return null;
+    }
+
+    return new DBWrapper(ret, tracer);
+  }
+
+  /**
+   * Create a DB layer that issues operations asynchronously with up to maxOutstanding
+   * operations in flight. Bindings extending {@link AsyncDB} are used directly; any other
+   * binding is pooled behind an {@link AsyncDBAdapter}.
+   */
+  public static DB newAsyncDB(String dbname, Properties properties, final Tracer tracer, int maxOutstanding)
+      throws UnknownDBException {
+    DB first = instantiate(dbname, properties);
+    if (first == null) {
+      return null;
+    }
+
+    AsyncDB async;
+    if (first instanceof AsyncDB) {
+      async = (AsyncDB) first;
+    } else {
+      List<DB> pool = new ArrayList<>(maxOutstanding);
+      pool.add(first);
+      while (pool.size() < maxOutstanding) {
+        pool.add(instantiate(dbname, properties));
+      }
+      async = new AsyncDBAdapter(pool);
+      async.setProperties(properties);
+    }
+
+    return new AsyncDBWrapper(async, tracer, maxOutstanding);
+  }
+
+  private static DB instantiate(String dbname, Properties properties) {
     ClassLoader classLoader = DBFactory.class.getClassLoader();
 
     DB ret;
@@ -45,7 +84,7 @@ public final class DBFactory {
 
     ret.setProperties(properties);
 
-    return new DBWrapper(ret, tracer);
+    return ret;
   }
 
 }
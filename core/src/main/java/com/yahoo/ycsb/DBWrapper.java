@@ -49,10 +49,85 @@ public class DBWrapper extends DB {
   private final String scopeStringScan;
   private final String scopeStringUpdate;
 
+  /**
+   * The measurement ids of one kind of operation and of its failures, looked up once so that
+   * measuring an operation does not build or hash names.
+   */
+  final class OperationIds {
+    private final String op;
+    private final int okId;
+    private final int failedId;
+    // Failure return codes seen so far and the ids they are measured under.
+    private volatile Status[] errors = new Status[0];
+    private volatile int[] errorIds = new int[0];
+
+    private OperationIds(String op) {
+      this.op = op;
+      okId = measurements.getOperationId(op);
+      failedId = measurements.getOperationId(op + "-FAILED");
+    }
+
+    /**
+     * @return The id of the operation, under which its return codes are counted.
+     */
+    int getId() {
+      return okId;
+    }
+
+    /**
+     * @return The id to measure the latency of an operation with the given result under.
+     */
+    int forResult(Status result) {
+      if (result != null && result.isOk()) {
+        return okId;
+      }
+      Status[] seen = errors;
+      for (int i = 0; i < seen.length; i++) {
+        if (seen[i] == result) {
+          return errorIds[i];
+        }
+      }
+      return addError(result);
+    }
+
+    private synchronized int addError(Status result) {
+      int id;
+      if (reportLatencyForEachError || latencyTrackedErrors.contains(result.getName())) {
+        id = measurements.getOperationId(op + "-" + result.getName());
+      } else {
+        id = failedId;
+      }
+      // Only the first few distinct return codes are remembered, in case a binding creates a
+      // new Status object for every failure.
+      if (errors.length < 16) {
+        int[] ids = Arrays.copyOf(errorIds, errorIds.length + 1);
+        ids[ids.length - 1] = id;
+        Status[] seen = Arrays.copyOf(errors, errors.length + 1);
+        seen[seen.length - 1] = result;
+        errorIds = ids;
+        errors = seen;
+      }
+      return id;
+    }
+  }
+
+  private final OperationIds cleanupIds;
+  private final OperationIds deleteIds;
+  private final OperationIds insertIds;
+  private final OperationIds readIds;
+  private final OperationIds scanIds;
+  private final OperationIds updateIds;
+
   public DBWrapper(final DB db, final Tracer tracer) {
     this.db = db;
     measurements = Measurements.getMeasurements();
     this.tracer = tracer;
+    cleanupIds = new OperationIds("CLEANUP");
+    deleteIds = new OperationIds("DELETE");
+    insertIds = new OperationIds("INSERT");
+    readIds = new OperationIds("READ");
+    scanIds = new OperationIds("SCAN");
+    updateIds = new OperationIds("UPDATE");
     final String simple = db.getClass().getSimpleName();
     scopeStringCleanup = simple + "#cleanup";
     scopeStringDelete = simple + "#delete";
@@ -113,7 +188,7 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure(cleanupIds, Status.OK, ist, st, en);
     }
   }
 
@@ -134,8 +209,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      measure("READ", res, ist, st, en);
-      measurements.reportStatus("READ", res);
+      measure(readIds, res, ist, st, en);
+      measurements.reportStatus(readIds.getId(), res);
       return res;
     }
   }
@@ -158,27 +233,37 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      measurements.reportStatus("SCAN", res);
+      measure(scanIds, res, ist, st, en);
+      measurements.reportStatus(scanIds.getId(), res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
+  void measure(OperationIds op, Status result, long intendedStartTimeNanos,
                        long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result == null || !result.isOk()) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
-      }
-    }
-    measurements.measure(measurementName,
-        (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
-        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
+    int measurementId = op.forResult(result);
+    measurements.measureNanos(measurementId, endTimeNanos - startTimeNanos);
+    measurements.measureIntendedNanos(measurementId, endTimeNanos - intendedStartTimeNanos);
+  }
+
+  OperationIds getReadIds() {
+    return readIds;
+  }
+
+  OperationIds getScanIds() {
+    return scanIds;
+  }
+
+  OperationIds getUpdateIds() {
+    return updateIds;
+  }
+
+  OperationIds getInsertIds() {
+    return insertIds;
+  }
+
+  OperationIds getDeleteIds() {
+    return deleteIds;
   }
 
   /**
@@ -197,8 +282,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      measurements.reportStatus("UPDATE", res);
+      measure(updateIds, res, ist, st, en);
+      measurements.reportStatus(updateIds.getId(), res);
       return res;
     }
   }
@@ -220,8 +305,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      measurements.reportStatus("INSERT", res);
+      measure(insertIds, res, ist, st, en);
+      measurements.reportStatus(insertIds.getId(), res);
       return res;
     }
   }
@@ -239,8 +324,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      measurements.reportStatus("DELETE", res);
+      measure(deleteIds, res, ist, st, en);
+      measurements.reportStatus(deleteIds.getId(), res);
       return res;
     }
   }
@@ -0,0 +1,415 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Runs a phase in several JVMs on this host, for when one JVM cannot drive the database hard
+ * enough, e.g. because of its garbage collection.
+ *
+ * With "fork.jvms" set, the client forks that many JVMs and splits the threads, the work and the
+ * target among them like a {@link Coordinator} does among its workers. Each forked JVM runs a
+ * {@link Worker} that talks to the parent through a memory-mapped file instead of a socket. The
+ * file has a header, written by the parent, and a slot per JVM:
+ * <pre>
+ * header: int start flag, set once all JVMs are ready
+ * slot:   int state, long acknowledged, int length, int crc, long sequence, message
+ * </pre>
+ * A JVM writes a message, with the next sequence number before it, only once the parent
+ * acknowledged the previous one. The parent polls the slots, merges the new messages and
+ * acknowledges them. Nothing orders the plain writes to the file, so the checksum covers the
+ * sequence number and the message: the parent takes a message only when it sees all of it and
+ * its sequence number is the one after the acknowledged one, never a mix of old and new bytes.
+ */
+final class ForkedRun implements Closeable {
+  /**
+   * The number of JVMs to fork. Setting it makes the client fork.
+   */
+  public static final String JVMS_PROPERTY = "fork.jvms";
+
+  /**
+   * Arguments for the forked JVMs, separated by spaces, e.g. "-Xmx4g -XX:+UseParallelGC".
+   */
+  public static final String JVM_ARGS_PROPERTY = "fork.jvmargs";
+  public static final String JVM_ARGS_PROPERTY_DEFAULT = "";
+
+  /**
+   * The bytes of the shared file for each JVM; its messages must fit.
+   */
+  public static final String SLOT_SIZE_PROPERTY = "fork.slotsize";
+  public static final String SLOT_SIZE_PROPERTY_DEFAULT = "1048576";
+
+  /**
+   * The shared file, set for the forked JVMs.
+   */
+  public static final String FILE_PROPERTY = "fork.file";
+
+  private static final int HEADER_SIZE = 64;
+  private static final int START = 0;
+
+  private static final int STATE = 0;
+  private static final int ACKNOWLEDGED = 8;
+  private static final int LENGTH = 16;
+  private static final int CRC = 20;
+  private static final int SEQUENCE = 24;
+  private static final int MESSAGE = 32;
+
+  private static final int STATE_READY = 1;
+  private static final int STATE_FAILED = 2;
+
+  // How often the parent and the JVMs look at the shared file.
+  private static final long POLL_MS = 10;
+
+  private final Properties props;
+  private final int jvms;
+  private final int slotSize;
+  private final int timeout;
+  private final File file;
+  private final FileChannel channel;
+  private final MappedByteBuffer shared;
+  private final MergedMeasurements measurements;
+  private final List<File> propertyFiles = new ArrayList<>();
+  private final List<Process> processes = new ArrayList<>();
+
+  /**
+   * Creates the shared file.
+   *
+   * @throws IllegalArgumentException if the run cannot be split among JVMs.
+   * @throws IOException if the file could not be created.
+   */
+  ForkedRun(Properties props) throws IOException {
+    this.props = props;
+    jvms = Integer.parseInt(props.getProperty(JVMS_PROPERTY));
+    slotSize = Integer.parseInt(props.getProperty(SLOT_SIZE_PROPERTY, SLOT_SIZE_PROPERTY_DEFAULT));
+    timeout = Integer.parseInt(props.getProperty(Coordinator.TIMEOUT_PROPERTY, Coordinator.TIMEOUT_PROPERTY_DEFAULT));
+    if (jvms < 1) {
+      throw new IllegalArgumentException(JVMS_PROPERTY + " must be at least 1, not " + jvms);
+    }
+    if (slotSize <= MESSAGE) {
+      throw new IllegalArgumentException(SLOT_SIZE_PROPERTY + " is too small: " + slotSize);
+    }
+    long size = size(jvms, slotSize);
+    measurements = new MergedMeasurements(props, jvms);
+    file = File.createTempFile("ycsb-fork", ".shm");
+    file.deleteOnExit();
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    shared = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  /**
+   * @return The size of the shared file for the given number of JVMs.
+   * @throws IllegalArgumentException if a buffer cannot map that much.
+   */
+  static long size(int jvms, int slotSize) {
+    long size = HEADER_SIZE + (long) jvms * slotSize;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The shared file of " + size + " bytes is too large, lower "
+          + SLOT_SIZE_PROPERTY + " or " + JVMS_PROPERTY + ".");
+    }
+    return size;
+  }
+
+  /**
+   * @return The offset of the slot of a JVM, which fits an int once {@link #size} accepted the file.
+   */
+  static int slot(int index, int slotSize) {
+    return (int) (HEADER_SIZE + (long) index * slotSize);
+  }
+
+  /**
+   * @return The properties of one JVM: its share of the threads and of the work.
+   */
+  static Properties split(Properties props, int index, int jvms) {
+    Properties jvm = Coordinator.split(props, index, jvms);
+    jvm.remove(JVMS_PROPERTY);
+    int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    jvm.setProperty(Client.THREAD_COUNT_PROPERTY,
+        Integer.toString(Math.max(1, threadcount / jvms + (index < threadcount % jvms ? 1 : 0))));
+    return jvm;
+  }
+
+  /**
+   * Forks the JVMs, starts them together once all are ready and merges their measurements until
+   * all are done.
+   *
+   * @param status Whether to print the merged status every "status.interval" seconds.
+   * @throws IOException if a JVM could not be forked or failed.
+   */
+  void run(boolean status) throws IOException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    String jvmArgs = props.getProperty(JVM_ARGS_PROPERTY, JVM_ARGS_PROPERTY_DEFAULT).trim();
+    for (int i = 0; i < jvms; i++) {
+      Properties jvm = split(props, i, jvms);
+      jvm.setProperty(FILE_PROPERTY, file.getPath());
+      File propertyFile = File.createTempFile("ycsb-fork", ".properties");
+      propertyFile.deleteOnExit();
+      propertyFiles.add(propertyFile);
+      try (OutputStream out = new FileOutputStream(propertyFile)) {
+        jvm.store(out, null);
+      }
+      List<String> command = new ArrayList<>();
+      command.add(java);
+      if (!jvmArgs.isEmpty()) {
+        command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+      }
+      command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), Client.class.getName(),
+          "-P", propertyFile.getPath()));
+      processes.add(new ProcessBuilder(command).inheritIO().start());
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+    for (int i = 0; i < jvms; i++) {
+      while (shared.getInt(slot(i) + STATE) != STATE_READY) {
+        check(i);
+        if (System.nanoTime() > deadline) {
+          throw new IOException("JVM " + i + " did not get ready in " + timeout + " seconds.");
+        }
+        sleep();
+      }
+    }
+    shared.putInt(START, 1);
+    final long st = System.currentTimeMillis();
+    System.err.println("Starting test.");
+
+    long statusIntervalMs = TimeUnit.SECONDS.toMillis(Integer.parseInt(props.getProperty("status.interval", "10")));
+    long lastTotalOps = 0;
+    long lastMs = st;
+    boolean done = false;
+    while (!done) {
+      sleep();
+      done = true;
+      for (int i = 0; i < jvms; i++) {
+        if (!measurements.isDone(i)) {
+          poll(i);
+          if (!measurements.isDone(i)) {
+            check(i);
+            done = false;
+          }
+        }
+      }
+      long now = System.currentTimeMillis();
+      if (status && (done || now - lastMs >= statusIntervalMs)) {
+        lastTotalOps = measurements.printStatus(st, lastMs, now, lastTotalOps);
+        lastMs = now;
+      }
+    }
+    for (Process process : processes) {
+      try {
+        process.waitFor();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the JVMs to exit.", e);
+      }
+    }
+  }
+
+  private int slot(int index) {
+    return slot(index, slotSize);
+  }
+
+  /**
+   * Merges the pending message of a JVM, if there is one.
+   */
+  private void poll(int index) throws IOException {
+    int slot = slot(index);
+    long acknowledged = shared.getLong(slot + ACKNOWLEDGED);
+    int length = shared.getInt(slot + LENGTH);
+    if (length < 0 || length > slotSize - MESSAGE) {
+      return;
+    }
+    byte[] payload = new byte[MESSAGE - SEQUENCE + length];
+    ByteBuffer view = shared.duplicate();
+    view.position(slot + SEQUENCE);
+    view.get(payload);
+    if (crc(payload) != shared.getInt(slot + CRC)) {
+      // Not all of it is visible yet.
+      return;
+    }
+    ByteBuffer wrapped = ByteBuffer.wrap(payload);
+    long sequence = wrapped.getLong();
+    if (sequence != acknowledged + 1) {
+      // Taken already, or the JVM did not send yet.
+      return;
+    }
+    measurements.receive(index, new DataInputStream(new ByteArrayInputStream(payload, MESSAGE - SEQUENCE, length)));
+    shared.putLong(slot + ACKNOWLEDGED, sequence);
+  }
+
+  /**
+   * @throws IOException if the JVM failed or exited before it was done.
+   */
+  private void check(int index) throws IOException {
+    if (shared.getInt(slot(index) + STATE) == STATE_FAILED) {
+      throw new IOException("JVM " + index + " failed.");
+    }
+    Process process = processes.get(index);
+    if (!process.isAlive()) {
+      // Its last message may have arrived after the last poll.
+      poll(index);
+      if (!measurements.isDone(index)) {
+        throw new IOException("JVM " + index + " exited with " + process.exitValue() + ".");
+      }
+    }
+  }
+
+  private static int crc(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    return (int) crc.getValue();
+  }
+
+  private static void sleep() throws IOException {
+    try {
+      Thread.sleep(POLL_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted.", e);
+    }
+  }
+
+  /**
+   * Exports the merged measurements of a finished run.
+   */
+  void export(MeasurementsExporter exporter) throws IOException {
+    measurements.export(exporter);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Process process : processes) {
+      if (process.isAlive()) {
+        process.destroy();
+      }
+    }
+    channel.close();
+    file.delete();
+    for (File propertyFile : propertyFiles) {
+      propertyFile.delete();
+    }
+  }
+
+  /**
+   * Runs {@link Client} in several JVMs, exporting the merged measurements like a single JVM.
+   */
+  static void fork(Properties props) {
+    boolean status = Boolean.valueOf(props.getProperty(Client.STATUS_PROPERTY, String.valueOf(false)));
+    try (ForkedRun run = new ForkedRun(props)) {
+      run.run(status);
+      MeasurementsExporter exporter = Client.newExporter(props);
+      try {
+        run.export(exporter);
+      } finally {
+        exporter.close();
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    } catch (IOException e) {
+      System.err.println("The forked run failed: " + e.getMessage());
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Runs a forked JVM's share of the phase.
+   */
+  static void work(Properties props) {
+    final int index = Integer.parseInt(props.getProperty(Coordinator.WORKER_INDEX_PROPERTY));
+    final int slotSize = Integer.parseInt(props.getProperty(SLOT_SIZE_PROPERTY, SLOT_SIZE_PROPERTY_DEFAULT));
+    final long timeoutNs = TimeUnit.SECONDS.toNanos(Integer.parseInt(props.getProperty(
+        Coordinator.TIMEOUT_PROPERTY, Coordinator.TIMEOUT_PROPERTY_DEFAULT)));
+    final int jvms = Integer.parseInt(props.getProperty(Coordinator.WORKER_COUNT_PROPERTY));
+    final long size = size(jvms, slotSize);
+    final int slot = slot(index, slotSize);
+    MappedByteBuffer mapped = null;
+    try (FileChannel fileChannel = FileChannel.open(new File(props.getProperty(FILE_PROPERTY)).toPath(),
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final MappedByteBuffer shared = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      mapped = shared;
+      Worker.run(props, new Worker.Channel() {
+          private long sequence;
+
+          @Override
+          public void ready() {
+            shared.putInt(slot + STATE, STATE_READY);
+          }
+
+          @Override
+          public void awaitStart() throws IOException {
+            long deadline = System.nanoTime() + timeoutNs;
+            while (shared.getInt(START) == 0) {
+              if (System.nanoTime() > deadline) {
+                throw new IOException("Not started in time.");
+              }
+              sleep();
+            }
+          }
+
+          @Override
+          public void send(byte[] message) throws IOException {
+            if (message.length > slotSize - MESSAGE) {
+              throw new IOException("A message of " + message.length + " bytes does not fit, raise "
+                  + SLOT_SIZE_PROPERTY + ".");
+            }
+            long deadline = System.nanoTime() + timeoutNs;
+            while (shared.getLong(slot + ACKNOWLEDGED) != sequence) {
+              if (System.nanoTime() > deadline) {
+                throw new IOException("The previous message was not taken in time.");
+              }
+              sleep();
+            }
+            sequence++;
+            byte[] payload = new byte[MESSAGE - SEQUENCE + message.length];
+            ByteBuffer.wrap(payload).putLong(sequence).put(message);
+            ByteBuffer view = shared.duplicate();
+            view.position(slot + SEQUENCE);
+            view.put(payload);
+            shared.putInt(slot + LENGTH, message.length);
+            shared.putInt(slot + CRC, crc(payload));
+          }
+        });
+    } catch (IOException e) {
+      System.err.println("JVM " + index + " failed: " + e.getMessage());
+      if (mapped != null) {
+        mapped.putInt(slot + STATE, STATE_FAILED);
+      }
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.HistogramLog;
+import com.yahoo.ycsb.measurements.LatencyUnit;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+
+/**
+ * Merges the interval histogram logs written with "hdrhistogram.fileoutput=true", e.g. by the
+ * clients of a run spread over several processes or hosts, into one histogram and prints its
+ * percentiles. Percentiles of the individual clients cannot be averaged; their histograms can
+ * be added.
+ *
+ * The intervals can be restricted to a time range, relative to the earliest interval of all
+ * logs, broken down into a time series, written to a merged log and printed as a percentile
+ * spectrum. An interval belongs to the range or the step of the series its start falls into.
+ */
+public final class HistogramLogTool {
+  public static final String PERCENTILES_DEFAULT = "50,90,95,99,99.9,99.99";
+
+  private HistogramLogTool() {
+    // Not instantiable.
+  }
+
+  /**
+   * Reads all intervals of a log.
+   *
+   * @param in The log.
+   * @param into The list to add the intervals to.
+   * @return The unit of the values, or null if the log does not name it.
+   * @throws IOException if the log could not be read or is malformed.
+   */
+  static LatencyUnit read(InputStream in, List<Histogram> into) throws IOException {
+    try (HistogramLog.Reader reader = new HistogramLog.Reader(in)) {
+      for (Histogram interval = reader.next(); interval != null; interval = reader.next()) {
+        into.add(interval);
+      }
+      return reader.getUnit();
+    }
+  }
+
+  /**
+   * @return The earliest start of the intervals, in milliseconds since the epoch.
+   */
+  static long getStart(List<Histogram> intervals) {
+    long start = Long.MAX_VALUE;
+    for (Histogram interval : intervals) {
+      start = Math.min(start, interval.getStartTimeStamp());
+    }
+    return start;
+  }
+
+  /**
+   * @return The highest precision of the intervals, which their sums keep.
+   */
+  static int getSignificantDigits(List<Histogram> intervals) {
+    int significantDigits = 0;
+    for (Histogram interval : intervals) {
+      significantDigits = Math.max(significantDigits, interval.getNumberOfSignificantValueDigits());
+    }
+    return significantDigits;
+  }
+
+  /**
+   * Adds up the intervals starting in [startMs, endMs).
+   */
+  static Histogram merge(List<Histogram> intervals, long startMs, long endMs) {
+    Histogram merged = new Histogram(getSignificantDigits(intervals));
+    merged.setStartTimeStamp(startMs);
+    merged.setEndTimeStamp(startMs);
+    for (Histogram interval : intervals) {
+      if (interval.getStartTimeStamp() >= startMs && interval.getStartTimeStamp() < endMs) {
+        merged.add(interval);
+        merged.setEndTimeStamp(Math.max(merged.getEndTimeStamp(), interval.getEndTimeStamp()));
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Adds up the intervals starting in [startMs, endMs) by steps of stepMs.
+   *
+   * @return The merged steps that have an interval, by the offset of the step to startMs.
+   */
+  static SortedMap<Long, Histogram> series(List<Histogram> intervals, long startMs, long endMs, long stepMs) {
+    SortedMap<Long, Histogram> series = new TreeMap<>();
+    int significantDigits = getSignificantDigits(intervals);
+    for (Histogram interval : intervals) {
+      if (interval.getStartTimeStamp() < startMs || interval.getStartTimeStamp() >= endMs) {
+        continue;
+      }
+      long offset = (interval.getStartTimeStamp() - startMs) / stepMs * stepMs;
+      Histogram step = series.get(offset);
+      if (step == null) {
+        step = new Histogram(significantDigits);
+        step.setStartTimeStamp(startMs + offset);
+        step.setEndTimeStamp(startMs + offset + stepMs);
+        series.put(offset, step);
+      }
+      step.add(interval);
+    }
+    return series;
+  }
+
+  public static void usageMessage() {
+    System.out.println("Usage: java com.yahoo.ycsb.HistogramLogTool [options] log...");
+    System.out.println("Options:");
+    System.out.println("  -start s: ignore the intervals starting less than s seconds after the earliest one");
+    System.out.println("  -end s: ignore the intervals starting s or more seconds after the earliest one");
+    System.out.println("  -percentiles list: the percentiles to print (default: " + PERCENTILES_DEFAULT + ")");
+    System.out.println("  -interval s: also print the merged histograms of every s seconds");
+    System.out.println("  -spectrum: also print the percentile spectrum of the merged histogram");
+    System.out.println("  -output file: write the merged intervals to a log, by steps of -interval");
+    System.out.println("          seconds, or of one second");
+  }
+
+  private static String argument(String[] args, int index) {
+    if (index >= args.length) {
+      usageMessage();
+      System.out.println("Missing argument value for " + args[index - 1] + ".");
+      System.exit(0);
+    }
+    return args[index];
+  }
+
+  public static void main(String[] args) {
+    double startSec = 0;
+    double endSec = Double.POSITIVE_INFINITY;
+    String percentileString = PERCENTILES_DEFAULT;
+    double intervalSec = 0;
+    boolean spectrum = false;
+    String output = null;
+    int argindex = 0;
+    try {
+      while (argindex < args.length && args[argindex].startsWith("-")) {
+        String option = args[argindex++];
+        if (option.equals("-start")) {
+          startSec = Double.parseDouble(argument(args, argindex++));
+        } else if (option.equals("-end")) {
+          endSec = Double.parseDouble(argument(args, argindex++));
+        } else if (option.equals("-percentiles")) {
+          percentileString = argument(args, argindex++);
+        } else if (option.equals("-interval")) {
+          intervalSec = Double.parseDouble(argument(args, argindex++));
+        } else if (option.equals("-spectrum")) {
+          spectrum = true;
+        } else if (option.equals("-output")) {
+          output = argument(args, argindex++);
+        } else {
+          usageMessage();
+          System.out.println("Unknown option " + option);
+          System.exit(0);
+        }
+      }
+    } catch (NumberFormatException e) {
+      usageMessage();
+      System.out.println("Invalid number: " + e.getMessage());
+      System.exit(0);
+    }
+    if (argindex >= args.length) {
+      usageMessage();
+      System.out.println("At least one log is required.");
+      System.exit(0);
+    }
+    double[] percentiles = null;
+    try {
+      percentiles = Utils.parsePercentiles("-percentiles", percentileString);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+
+    List<Histogram> intervals = new ArrayList<>();
+    LatencyUnit unit = null;
+    for (int i = argindex; i < args.length; i++) {
+      try (InputStream in = new FileInputStream(args[i])) {
+        LatencyUnit logUnit = read(in, intervals);
+        if (logUnit != null && unit != null && logUnit != unit) {
+          System.err.println(args[i] + " is in " + logUnit.getAbbreviation() + ", the logs before it in "
+              + unit.getAbbreviation() + ".");
+          System.exit(0);
+        }
+        if (logUnit != null) {
+          unit = logUnit;
+        }
+      } catch (IOException e) {
+        System.err.println("Could not read " + args[i] + ": " + e.getMessage());
+        System.exit(0);
+      }
+    }
+    if (intervals.isEmpty()) {
+      System.err.println("The logs have no intervals.");
+      System.exit(0);
+    }
+    // YCSB records in microseconds unless told otherwise.
+    String abbreviation = unit == null ? "us" : unit.getAbbreviation();
+
+    long base = getStart(intervals);
+    long startMs = base + Math.round(startSec * 1000);
+    long endMs = Double.isInfinite(endSec) ? Long.MAX_VALUE : base + Math.round(endSec * 1000);
+    Histogram merged = merge(intervals, startMs, endMs);
+
+    System.out.println("[MERGED], Logs, " + (args.length - argindex));
+    System.out.println(String.format(Locale.US, "[MERGED], Time(s), %.3f",
+        (merged.getEndTimeStamp() - startMs) / 1000.0));
+    System.out.println("[MERGED], Operations, " + merged.getTotalCount());
+    if (merged.getTotalCount() > 0) {
+      System.out.println("[MERGED], AverageLatency(" + abbreviation + "), " + merged.getMean());
+      System.out.println("[MERGED], MinLatency(" + abbreviation + "), " + merged.getMinValue());
+      System.out.println("[MERGED], MaxLatency(" + abbreviation + "), " + merged.getMaxValue());
+      for (double percentile : percentiles) {
+        System.out.println("[MERGED], " + OneMeasurementHdrHistogram.ordinal(percentile) + "PercentileLatency("
+            + abbreviation + "), " + merged.getValueAtPercentile(percentile));
+      }
+    }
+
+    long stepMs = intervalSec > 0 ? Math.max(1, Math.round(intervalSec * 1000)) : 0;
+    if (stepMs > 0) {
+      System.out.println();
+      System.out.println("Time(s), Operations, p50, p99, p99.9, Max");
+      for (Map.Entry<Long, Histogram> step : series(intervals, startMs, endMs, stepMs).entrySet()) {
+        Histogram h = step.getValue();
+        System.out.println(String.format(Locale.US, "%.3f, %d, %d, %d, %d, %d", step.getKey() / 1000.0,
+            h.getTotalCount(), h.getValueAtPercentile(50), h.getValueAtPercentile(99),
+            h.getValueAtPercentile(99.9), h.getMaxValue()));
+      }
+    }
+
+    if (spectrum && merged.getTotalCount() > 0) {
+      System.out.println();
+      merged.outputPercentileDistribution(System.out, 5, 1.0);
+    }
+
+    if (output != null) {
+      try (HistogramLog.Writer writer = new HistogramLog.Writer(new FileOutputStream(output),
+          "[Merged from " + (args.length - argindex) + " logs]", unit == null ? LatencyUnit.MICROSECONDS : unit,
+          startMs)) {
+        for (Histogram step : series(intervals, startMs, endMs, stepMs > 0 ? stepMs : 1000).values()) {
+          writer.write(step);
+        }
+      } catch (IOException e) {
+        System.err.println("Could not write " + output + ": " + e.getMessage());
+        System.exit(0);
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * The measurements of a run split among {@link Worker}s, merged from the messages they send.
+ * Their interval HdrHistograms are added up, so percentiles are those of all operations rather
+ * than averages of each worker's.
+ */
+final class MergedMeasurements {
+  private final Properties props;
+  private final long[] ops;
+  private final long[] runtimes;
+  // By name.
+  private final Map<String, OneMeasurementHdrHistogram> measurements = new TreeMap<>();
+
+  /**
+   * @throws IllegalArgumentException if the run cannot be split among workers.
+   */
+  MergedMeasurements(Properties props, int workers) {
+    if (!"hdrhistogram".equals(props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram"))) {
+      throw new IllegalArgumentException("Running on several workers needs " + Measurements.MEASUREMENT_TYPE_PROPERTY
+          + "=hdrhistogram.");
+    }
+    if (!"0".equals(props.getProperty(Warmup.WARMUP_TIME_PROPERTY, "0"))
+        || !"0".equals(props.getProperty(Warmup.WARMUP_OPS_PROPERTY, "0"))) {
+      throw new IllegalArgumentException("Running on several workers does not support a warmup.");
+    }
+    this.props = props;
+    ops = new long[workers];
+    runtimes = new long[workers];
+    Arrays.fill(runtimes, -1);
+  }
+
+  /**
+   * Reads an {@link Coordinator#INTERVAL} or {@link Coordinator#DONE} message of a worker and
+   * merges it.
+   *
+   * @return Whether the worker is done.
+   * @throws IOException if the message could not be read.
+   */
+  boolean receive(int worker, DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    if (type != Coordinator.INTERVAL && type != Coordinator.DONE) {
+      throw new IOException("Unexpected message " + type + ".");
+    }
+    long workerOps = in.readLong();
+    long runtime = type == Coordinator.DONE ? in.readLong() : -1;
+    Map<String, Histogram> histograms = Coordinator.readHistograms(in);
+    Map<String, Map<String, Long>> statusCounts = type == Coordinator.DONE ? Coordinator.readStatusCounts(in) : null;
+    synchronized (this) {
+      ops[worker] = workerOps;
+      for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+        getMeasurement(histogram.getKey()).recordHistogram(histogram.getValue());
+      }
+      if (type == Coordinator.DONE) {
+        runtimes[worker] = runtime;
+        for (Map.Entry<String, Map<String, Long>> operation : statusCounts.entrySet()) {
+          OneMeasurementHdrHistogram measurement = getMeasurement(operation.getKey());
+          for (Map.Entry<String, Long> count : operation.getValue().entrySet()) {
+            measurement.reportStatus(new Status(count.getKey(), ""), count.getValue());
+          }
+        }
+      }
+    }
+    return type == Coordinator.DONE;
+  }
+
+  synchronized boolean isDone(int worker) {
+    return runtimes[worker] >= 0;
+  }
+
+  private OneMeasurementHdrHistogram getMeasurement(String name) {
+    OneMeasurementHdrHistogram measurement = measurements.get(name);
+    if (measurement == null) {
+      measurement = new OneMeasurementHdrHistogram(name, props);
+      measurements.put(name, measurement);
+    }
+    return measurement;
+  }
+
+  /**
+   * Prints a status line like a single client's, ending the status interval of the measurements.
+   *
+   * @param st The start of the run.
+   * @param lastTotalOps The operations done by the end of the previous interval.
+   * @return The operations done so far.
+   */
+  synchronized long printStatus(long st, long startIntervalMs, long endIntervalMs, long lastTotalOps) {
+    long totalops = 0;
+    int done = 0;
+    for (int i = 0; i < ops.length; i++) {
+      totalops += ops[i];
+      if (runtimes[i] >= 0) {
+        done++;
+      }
+    }
+    DecimalFormat d = new DecimalFormat("#.##");
+    StringBuilder msg = new StringBuilder(props.getProperty(Client.LABEL_PROPERTY, ""))
+        .append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS").format(new Date()))
+        .append(" ").append((endIntervalMs - st) / 1000).append(" sec: ")
+        .append(totalops).append(" operations; ");
+    if (endIntervalMs > startIntervalMs) {
+      msg.append(d.format(1000.0 * (totalops - lastTotalOps) / (endIntervalMs - startIntervalMs)))
+          .append(" current ops/sec; ");
+    }
+    msg.append(done).append("/").append(ops.length).append(" workers done; ");
+    for (OneMeasurementHdrHistogram measurement : measurements.values()) {
+      msg.append(measurement.getSummary()).append(" ");
+    }
+    System.err.println(msg);
+    return totalops;
+  }
+
+  /**
+   * Exports the merged measurements of a finished run. The run time is that of the slowest worker.
+   */
+  synchronized void export(MeasurementsExporter exporter) throws IOException {
+    long opsDone = 0;
+    long runtime = 0;
+    for (int i = 0; i < ops.length; i++) {
+      opsDone += ops[i];
+      runtime = Math.max(runtime, runtimes[i]);
+    }
+    exporter.write("OVERALL", "RunTime(ms)", runtime);
+    exporter.write("OVERALL", "Throughput(ops/sec)", 1000.0 * opsDone / runtime);
+    exporter.write("OVERALL", "Workers", ops.length);
+    for (OneMeasurementHdrHistogram measurement : measurements.values()) {
+      measurement.exportMeasurements(exporter);
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.measurements.IntervalSnapshot;
+import com.yahoo.ycsb.measurements.LatencyUnit;
+
+/**
+ * Serves the state of the run at /metrics in the Prometheus text format, so a long run can be
+ * scraped like any other service. The page is rendered by the status thread at the end of every
+ * status interval, from the same snapshots the status line is built from; scrapes in between
+ * see the last interval.
+ *
+ * Latency quantiles are those of the last interval, while the counters run from the start.
+ * Only measurements kept as an HdrHistogram provide latencies.
+ */
+final class MetricsHttpServer implements Closeable {
+  /**
+   * The port to serve the metrics on. No metrics are served if it is not set.
+   */
+  public static final String PORT_PROPERTY = "metrics.port";
+
+  /**
+   * The address to listen on, all of them by default.
+   */
+  public static final String HOST_PROPERTY = "metrics.host";
+
+  /**
+   * The latency percentiles served for each operation.
+   */
+  public static final String PERCENTILES_PROPERTY = "metrics.percentiles";
+  public static final String PERCENTILES_PROPERTY_DEFAULT = "50,90,99,99.9,99.99";
+
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  // The values measureJVM records as measurements, which are served as gauges instead.
+  private static final Set<String> JVM_MEASUREMENTS = new HashSet<>(
+      Arrays.asList("THREAD_COUNT", "USED_MEM_MB", "SYS_LOAD_AVG", "GCS", "GCS_TIME"));
+
+  private final HttpServer server;
+  private final double[] percentiles;
+  private final String[] quantileLabels;
+
+  // Summed over the intervals, by operation. Only used by the status thread.
+  private final Map<String, Long> latencyCounts = new HashMap<>();
+  private final Map<String, Double> latencySums = new HashMap<>();
+
+  // The last JVM statistics, if tracked. Only used by the status thread.
+  private boolean jvmTracked;
+  private int jvmThreads;
+  private long jvmUsedMemoryBytes;
+  private double systemLoadAverage;
+  private long gcCount;
+  private long gcTimeMs;
+
+  private volatile byte[] page = new byte[0];
+
+  /**
+   * Starts the server configured by the properties.
+   *
+   * @param props The run properties.
+   * @return The running server, or null if none is configured.
+   * @throws IOException if the port could not be bound.
+   * @throws IllegalArgumentException if the port or the percentiles are not numbers.
+   */
+  static MetricsHttpServer create(Properties props) throws IOException {
+    String port = props.getProperty(PORT_PROPERTY);
+    if (port == null) {
+      return null;
+    }
+    InetSocketAddress address;
+    try {
+      String host = props.getProperty(HOST_PROPERTY);
+      address = host == null ? new InetSocketAddress(Integer.parseInt(port))
+          : new InetSocketAddress(host, Integer.parseInt(port));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid " + PORT_PROPERTY + " \"" + port + "\"");
+    }
+    return new MetricsHttpServer(address, Utils.parsePercentiles(PERCENTILES_PROPERTY,
+        props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT)));
+  }
+
+  MetricsHttpServer(InetSocketAddress address, double[] percentiles) throws IOException {
+    this.percentiles = percentiles.clone();
+    quantileLabels = new String[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      quantileLabels[i] = "quantile=\"" + new BigDecimal(Double.toString(percentiles[i])).movePointLeft(2)
+          .stripTrailingZeros().toPlainString() + "\"";
+    }
+    server = HttpServer.create(address, 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] body = page;
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  /**
+   * @return The port the server listens on.
+   */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * @return The percentiles the snapshots need to have.
+   */
+  double[] getPercentiles() {
+    return percentiles;
+  }
+
+  /**
+   * Keeps the JVM statistics for the next update.
+   *
+   * @param threads The number of active threads.
+   * @param usedMemoryBytes The heap in use.
+   * @param loadAverage The system load average, negative if not available.
+   * @param collections The number of garbage collections since the JVM started.
+   * @param collectionTimeMs The time spent collecting garbage since the JVM started.
+   */
+  void updateJvm(int threads, long usedMemoryBytes, double loadAverage, long collections, long collectionTimeMs) {
+    jvmTracked = true;
+    jvmThreads = threads;
+    jvmUsedMemoryBytes = usedMemoryBytes;
+    systemLoadAverage = loadAverage;
+    gcCount = collections;
+    gcTimeMs = collectionTimeMs;
+  }
+
+  /**
+   * Renders the page served until the next update.
+   *
+   * @param operations The number of operations completed since the start of the run.
+   * @param throughput The throughput over the interval.
+   * @param targetThroughput The requested throughput over the interval, or NaN if unthrottled.
+   * @param behindSchedule The number of operations behind schedule.
+   * @param warmup True while warming up.
+   * @param snapshots The measurements of the interval.
+   * @param statusCounts The return codes counted so far, by operation and code.
+   */
+  void update(long operations, double throughput, double targetThroughput, long behindSchedule, boolean warmup,
+      List<IntervalSnapshot> snapshots, Map<String, Map<String, Long>> statusCounts) {
+    StringBuilder out = new StringBuilder();
+
+    family(out, "ycsb_operations_total", "counter", "Operations completed by all client threads.");
+    sample(out, "ycsb_operations_total", null, null, operations);
+    family(out, "ycsb_throughput", "gauge", "Operations per second over the last status interval.");
+    sample(out, "ycsb_throughput", null, null, throughput);
+    if (!Double.isNaN(targetThroughput)) {
+      family(out, "ycsb_target_throughput", "gauge",
+          "Requested operations per second over the last status interval.");
+      sample(out, "ycsb_target_throughput", null, null, targetThroughput);
+    }
+    family(out, "ycsb_behind_schedule", "gauge", "Operations behind the requested schedule.");
+    sample(out, "ycsb_behind_schedule", null, null, behindSchedule);
+    family(out, "ycsb_warmup", "gauge", "1 while warming up.");
+    sample(out, "ycsb_warmup", null, null, warmup ? 1 : 0);
+
+    family(out, "ycsb_operation_throughput", "gauge", "Measured operations per second over the last status interval.");
+    for (IntervalSnapshot snapshot : snapshots) {
+      if (isLatency(snapshot)) {
+        sample(out, "ycsb_operation_throughput", "operation=\"" + escape(snapshot.getName()) + "\"", null,
+            snapshot.getThroughput());
+      }
+    }
+
+    family(out, "ycsb_latency_seconds", "summary", "Latency quantiles over the last status interval.");
+    for (IntervalSnapshot snapshot : snapshots) {
+      if (!isLatency(snapshot)) {
+        continue;
+      }
+      String name = snapshot.getName();
+      String label = "operation=\"" + escape(name) + "\"";
+      long count = snapshot.getCount();
+      for (int i = 0; i < percentiles.length; i++) {
+        double value = count == 0 ? Double.NaN : seconds(snapshot, snapshot.getPercentileValue(percentiles[i]));
+        sample(out, "ycsb_latency_seconds", label, quantileLabels[i], value);
+      }
+      Long total = latencyCounts.get(name);
+      Double sum = latencySums.get(name);
+      total = (total == null ? 0 : total) + count;
+      sum = (sum == null ? 0 : sum) + seconds(snapshot, snapshot.getMean()) * count;
+      latencyCounts.put(name, total);
+      latencySums.put(name, sum);
+      sample(out, "ycsb_latency_seconds_sum", label, null, sum);
+      sample(out, "ycsb_latency_seconds_count", label, null, total);
+    }
+
+    family(out, "ycsb_latency_max_seconds", "gauge", "Highest latency over the last status interval.");
+    for (IntervalSnapshot snapshot : snapshots) {
+      if (isLatency(snapshot)) {
+        double max = snapshot.getCount() == 0 ? Double.NaN : seconds(snapshot, snapshot.getMax());
+        sample(out, "ycsb_latency_max_seconds", "operation=\"" + escape(snapshot.getName()) + "\"", null, max);
+      }
+    }
+
+    family(out, "ycsb_return_codes_total", "counter", "Return codes of the operations.");
+    for (Map.Entry<String, Map<String, Long>> operation : statusCounts.entrySet()) {
+      String label = "operation=\"" + escape(operation.getKey()) + "\"";
+      for (Map.Entry<String, Long> code : operation.getValue().entrySet()) {
+        sample(out, "ycsb_return_codes_total", label, "code=\"" + escape(code.getKey()) + "\"", code.getValue());
+      }
+    }
+
+    if (jvmTracked) {
+      family(out, "ycsb_jvm_threads", "gauge", "Active threads.");
+      sample(out, "ycsb_jvm_threads", null, null, jvmThreads);
+      family(out, "ycsb_jvm_used_memory_bytes", "gauge", "Heap in use.");
+      sample(out, "ycsb_jvm_used_memory_bytes", null, null, jvmUsedMemoryBytes);
+      if (systemLoadAverage >= 0) {
+        family(out, "ycsb_system_load_average", "gauge", "System load average over the last minute.");
+        sample(out, "ycsb_system_load_average", null, null, systemLoadAverage);
+      }
+      family(out, "ycsb_jvm_gc_collections_total", "counter", "Garbage collections.");
+      sample(out, "ycsb_jvm_gc_collections_total", null, null, gcCount);
+      family(out, "ycsb_jvm_gc_seconds_total", "counter", "Time spent collecting garbage.");
+      sample(out, "ycsb_jvm_gc_seconds_total", null, null, gcTimeMs / 1000.0);
+    }
+
+    page = out.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static boolean isLatency(IntervalSnapshot snapshot) {
+    return snapshot.hasStatistics() && !JVM_MEASUREMENTS.contains(snapshot.getName());
+  }
+
+  private static double seconds(IntervalSnapshot snapshot, double latency) {
+    return snapshot.getUnit().convert(latency, LatencyUnit.NANOSECONDS) / 1e9;
+  }
+
+  private static void family(StringBuilder out, String name, String type, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, String label1, String label2, long value) {
+    labels(out.append(name), label1, label2).append(' ').append(value).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, String label1, String label2, double value) {
+    labels(out.append(name), label1, label2).append(' ');
+    if (Double.isNaN(value)) {
+      out.append("NaN");
+    } else if (Double.isInfinite(value)) {
+      out.append(value > 0 ? "+Inf" : "-Inf");
+    } else {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+
+  private static StringBuilder labels(StringBuilder out, String label1, String label2) {
+    if (label1 != null) {
+      out.append('{').append(label1);
+      if (label2 != null) {
+        out.append(',').append(label2);
+      }
+      out.append('}');
+    }
+    return out;
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
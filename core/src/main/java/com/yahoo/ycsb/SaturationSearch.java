@@ -0,0 +1,348 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+
+import org.HdrHistogram.Histogram;
+import org.apache.htrace.core.Tracer;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.DefaultPrettyPrinter;
+
+import com.yahoo.ycsb.measurements.LatencyUnit;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+
+/**
+ * Finds the highest throughput a database sustains while meeting a latency objective.
+ *
+ * Takes the same arguments as {@link Client} in transaction mode and runs a series of short steps,
+ * each at a constant target throughput. A step passes if the configured latency percentile stays
+ * at or below the objective and the client achieves most of the requested throughput. The target
+ * doubles from "saturation.min" until a step fails or "saturation.max" is reached, then a binary
+ * search narrows the gap between the last passing and the first failing target. Every step is
+ * reported, in order of target throughput, as a JSON document.
+ *
+ * Latencies are taken from the interval HdrHistogram of one operation, "saturation.operation",
+ * so "measurementtype" must be "hdrhistogram". With "measurement.interval=intended" the
+ * objective applies to latency measured from each operation's scheduled start, and so it does
+ * with "both", whose latencies from the actual start are left out. A step's throughput counts
+ * from the first operation to the last, leaving out the time the threads take to set up.
+ */
+public final class SaturationSearch {
+  /**
+   * The lowest target throughput to try, in operations per second.
+   */
+  public static final String MIN_PROPERTY = "saturation.min";
+  public static final String MIN_PROPERTY_DEFAULT = "100";
+
+  /**
+   * The highest target throughput to try, in operations per second.
+   */
+  public static final String MAX_PROPERTY = "saturation.max";
+  public static final String MAX_PROPERTY_DEFAULT = "1000000";
+
+  /**
+   * The length of each step in seconds.
+   */
+  public static final String STEP_TIME_PROPERTY = "saturation.steptime";
+  public static final String STEP_TIME_PROPERTY_DEFAULT = "30";
+
+  /**
+   * The operation whose latency the objective applies to, e.g. READ or UPDATE.
+   */
+  public static final String OPERATION_PROPERTY = "saturation.operation";
+  public static final String OPERATION_PROPERTY_DEFAULT = "READ";
+
+  /**
+   * The latency percentile the objective applies to.
+   */
+  public static final String PERCENTILE_PROPERTY = "saturation.percentile";
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  /**
+   * The latency objective in microseconds.
+   */
+  public static final String SLO_PROPERTY = "saturation.slo";
+  public static final String SLO_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * The fraction of the target throughput a step must achieve to pass.
+   */
+  public static final String MIN_ACHIEVED_PROPERTY = "saturation.minachieved";
+  public static final String MIN_ACHIEVED_PROPERTY_DEFAULT = "0.95";
+
+  /**
+   * The search stops once the failing target is within this fraction of the passing one.
+   */
+  public static final String PRECISION_PROPERTY = "saturation.precision";
+  public static final String PRECISION_PROPERTY_DEFAULT = "0.05";
+
+  /**
+   * The file to write the JSON result to. Defaults to stdout.
+   */
+  public static final String OUTPUT_PROPERTY = "saturation.output";
+
+  private SaturationSearch() {
+    // not used
+  }
+
+  /**
+   * The outcome of one step.
+   */
+  static final class Step {
+    private final double target;
+    private final double throughput;
+    private final Histogram latency;
+    private final LatencyUnit unit;
+    private final boolean pass;
+
+    Step(double target, double throughput, Histogram latency, LatencyUnit unit, boolean pass) {
+      this.target = target;
+      this.throughput = throughput;
+      this.latency = latency;
+      this.unit = unit;
+      this.pass = pass;
+    }
+
+    /**
+     * @return A latency percentile of the step in microseconds.
+     */
+    double getLatencyAtPercentile(double percentile) {
+      return unit.convert(latency.getValueAtPercentile(percentile), LatencyUnit.MICROSECONDS);
+    }
+
+    double getTarget() {
+      return target;
+    }
+
+    boolean isPass() {
+      return pass;
+    }
+  }
+
+  public static void main(String[] args) {
+    Properties props = Client.parseArguments(args);
+    if (!Boolean.valueOf(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      System.err.println("The saturation search only runs the transaction phase.");
+      System.exit(0);
+    }
+    if (props.getProperty(Client.TARGET_PROPERTY) != null
+        || props.getProperty(Client.TARGET_PROFILE_PROPERTY) != null) {
+      System.err.println("The saturation search sets the target throughput itself.");
+      System.exit(0);
+    }
+    if (!"hdrhistogram".equals(props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram"))) {
+      System.err.println("The saturation search needs " + Measurements.MEASUREMENT_TYPE_PROPERTY + "=hdrhistogram.");
+      System.exit(0);
+    }
+
+    final double min = Double.parseDouble(props.getProperty(MIN_PROPERTY, MIN_PROPERTY_DEFAULT));
+    final double max = Double.parseDouble(props.getProperty(MAX_PROPERTY, MAX_PROPERTY_DEFAULT));
+    final int steptime = Integer.parseInt(props.getProperty(STEP_TIME_PROPERTY, STEP_TIME_PROPERTY_DEFAULT));
+    final String operation = props.getProperty(OPERATION_PROPERTY, OPERATION_PROPERTY_DEFAULT);
+    final double percentile = Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY,
+        PERCENTILE_PROPERTY_DEFAULT));
+    final long slo = Long.parseLong(props.getProperty(SLO_PROPERTY, SLO_PROPERTY_DEFAULT));
+    final double minAchieved = Double.parseDouble(props.getProperty(MIN_ACHIEVED_PROPERTY,
+        MIN_ACHIEVED_PROPERTY_DEFAULT));
+    final double precision = Double.parseDouble(props.getProperty(PRECISION_PROPERTY, PRECISION_PROPERTY_DEFAULT));
+    if (min <= 0 || max < min || steptime <= 0 || precision <= 0) {
+      System.err.println("Invalid saturation search settings.");
+      System.exit(0);
+    }
+
+    // Steps are bounded by time only.
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "0");
+    int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    String dbname = props.getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
+
+    ThreadFactory threadFactory = null;
+    try {
+      threadFactory = ClientThreadFactory.create(props);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+
+    Thread warningthread = Client.setupWarningThread();
+    warningthread.start();
+    Measurements.setProperties(props);
+    Workload workload = Client.getWorkload(props);
+    Tracer tracer = Client.getTracer(props, workload);
+    Client.initWorkload(props, warningthread, workload, tracer);
+
+    List<Step> steps = new ArrayList<>();
+    double passing = 0;
+    double failing = 0;
+    for (double target = min; failing == 0; target = Math.min(target * 2, max)) {
+      Step step = runStep(dbname, props, threadcount, threadFactory, workload, tracer, target, steptime,
+          operation, percentile, slo, minAchieved);
+      steps.add(step);
+      if (step.isPass()) {
+        passing = target;
+        if (target >= max) {
+          break;
+        }
+      } else {
+        failing = target;
+      }
+    }
+    while (failing > 0 && passing > 0 && failing > passing * (1 + precision)) {
+      double target = (passing + failing) / 2;
+      Step step = runStep(dbname, props, threadcount, threadFactory, workload, tracer, target, steptime,
+          operation, percentile, slo, minAchieved);
+      steps.add(step);
+      if (step.isPass()) {
+        passing = target;
+      } else {
+        failing = target;
+      }
+    }
+
+    try {
+      workload.cleanup();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+
+    try {
+      String outputFile = props.getProperty(OUTPUT_PROPERTY);
+      OutputStream out = outputFile == null ? System.out : new FileOutputStream(outputFile);
+      writeResult(out, steps, passing, operation, percentile, slo);
+      if (outputFile != null) {
+        out.close();
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write the saturation search result, error: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Runs the workload at one target throughput and judges the step against the objective.
+   */
+  private static Step runStep(String dbname, Properties props, int threadcount, ThreadFactory threadFactory,
+      Workload workload, Tracer tracer, double target, int steptime, String operation, double percentile, long slo,
+      double minAchieved) {
+    System.err.println("Running " + steptime + " sec step at " + target + " ops/sec.");
+    final CountDownLatch completeLatch = new CountDownLatch(threadcount);
+    List<ClientThread> clients = Client.initDb(dbname, props, threadcount,
+        TargetProfile.constant(target, steptime), workload, tracer, completeLatch);
+
+    // Drop whatever the previous step left behind.
+    Measurements.getMeasurements().getIntervalHistograms();
+
+    List<Thread> threads = new ArrayList<>(threadcount);
+    for (ClientThread client : clients) {
+      threads.add(threadFactory.newThread(tracer.wrap(client, "ClientThread")));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    long opsDone = 0;
+    long st = Long.MAX_VALUE;
+    long en = Long.MIN_VALUE;
+    for (int i = 0; i < threads.size(); i++) {
+      try {
+        threads.get(i).join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+      ClientThread client = clients.get(i);
+      if (client.getOpsDone() > 0) {
+        opsDone += client.getOpsDone();
+        st = Math.min(st, client.getStartTimeNanos());
+        en = Math.max(en, client.getEndTimeNanos());
+      }
+    }
+
+    // With both intervals measured, only the intended latencies count.
+    boolean both = "both".equals(props.getProperty(Measurements.MEASUREMENT_INTERVAL));
+    Histogram latency = Measurements.getMeasurements().getIntervalHistograms()
+        .get(both ? "Intended-" + operation : operation);
+    double throughput = en > st ? 1e9 * opsDone / (en - st) : 0;
+    LatencyUnit unit = OneMeasurementHdrHistogram.getUnit(props);
+    double sloLatency = latency == null ? 0 : unit.convert(latency.getValueAtPercentile(percentile),
+        LatencyUnit.MICROSECONDS);
+    boolean pass = latency != null && latency.getTotalCount() > 0
+        && sloLatency <= slo
+        && throughput >= minAchieved * target;
+    System.err.println("Achieved " + throughput + " ops/sec, " + percentile + "th percentile " + operation + " latency "
+        + (latency == null ? "n/a" : sloLatency + " us")
+        + (pass ? ": pass" : ": fail"));
+    return new Step(target, throughput, latency, unit, pass);
+  }
+
+  /**
+   * Writes the objective, the highest passing target and the throughput-latency curve.
+   */
+  static void writeResult(OutputStream out, List<Step> steps, double passing, String operation, double percentile,
+      long slo) throws IOException {
+    List<Step> curve = new ArrayList<>(steps);
+    Collections.sort(curve, new Comparator<Step>() {
+      @Override
+      public int compare(Step a, Step b) {
+        return Double.compare(a.getTarget(), b.getTarget());
+      }
+    });
+
+    JsonGenerator g = new JsonFactory().createJsonGenerator(new OutputStreamWriter(out, "UTF-8"));
+    g.setPrettyPrinter(new DefaultPrettyPrinter());
+    g.writeStartObject();
+    g.writeStringField("operation", operation);
+    g.writeNumberField("percentile", percentile);
+    g.writeNumberField("sloLatency(us)", slo);
+    g.writeNumberField("maxThroughput(ops/sec)", passing);
+    g.writeArrayFieldStart("steps");
+    for (Step step : curve) {
+      g.writeStartObject();
+      g.writeNumberField("target(ops/sec)", step.target);
+      g.writeNumberField("throughput(ops/sec)", step.throughput);
+      g.writeBooleanField("pass", step.pass);
+      if (step.latency != null) {
+        g.writeNumberField("operations", step.latency.getTotalCount());
+        g.writeNumberField("averageLatency(us)", step.unit.convert(step.latency.getMean(), LatencyUnit.MICROSECONDS));
+        g.writeNumberField("50thPercentileLatency(us)", step.getLatencyAtPercentile(50));
+        g.writeNumberField("99thPercentileLatency(us)", step.getLatencyAtPercentile(99));
+        g.writeNumberField("99.9thPercentileLatency(us)", step.getLatencyAtPercentile(99.9));
+        g.writeNumberField("sloPercentileLatency(us)", step.getLatencyAtPercentile(percentile));
+        g.writeNumberField("maxLatency(us)", step.getLatencyAtPercentile(100));
+      }
+      g.writeEndObject();
+    }
+    g.writeEndArray();
+    g.writeEndObject();
+    g.writeRaw('\n');
+    g.flush();
+  }
+}
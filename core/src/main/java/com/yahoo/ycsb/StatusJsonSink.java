@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
+
+import com.yahoo.ycsb.measurements.IntervalSnapshot;
+
+/**
+ * Streams every status interval as one JSON object per line, for dashboards to follow a run
+ * as it progresses. A line looks like
+ *
+ * <pre>
+ * {"timestamp":1500000000000,"elapsedMs":10000,"operations":52000,"throughput":5200.0,
+ *  "behindSchedule":0,"warmup":false,"measurements":[{"name":"READ","count":26010,
+ *  "throughput":2601.0,"unit":"us","min":41.0,"mean":180.2,"max":9051.0,
+ *  "percentiles":{"50":150.0,"99":820.0}}]}
+ * </pre>
+ *
+ * with "targetThroughput" added when the run is throttled. Measurements that are not kept as an
+ * HdrHistogram only have their "summary".
+ */
+final class StatusJsonSink implements Closeable {
+  /**
+   * The file to write the intervals to, or "-" for stdout.
+   */
+  public static final String OUTPUT_PROPERTY = "status.json";
+
+  /**
+   * The latency percentiles written for each measurement.
+   */
+  public static final String PERCENTILES_PROPERTY = "status.json.percentiles";
+  public static final String PERCENTILES_PROPERTY_DEFAULT = "50,90,99,99.9,99.99";
+
+  private final OutputStream out;
+  private final JsonGenerator generator;
+  private final double[] percentiles;
+  private final String[] percentileNames;
+
+  /**
+   * Creates the sink configured by the properties.
+   *
+   * @param props The run properties.
+   * @return The sink, or null if none is configured.
+   * @throws IOException if the output file could not be opened.
+   * @throws IllegalArgumentException if the percentiles are not numbers.
+   */
+  static StatusJsonSink create(Properties props) throws IOException {
+    String output = props.getProperty(OUTPUT_PROPERTY);
+    if (output == null) {
+      return null;
+    }
+    double[] percentiles = Utils.parsePercentiles(PERCENTILES_PROPERTY,
+        props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
+    return new StatusJsonSink("-".equals(output) ? System.out : new FileOutputStream(output), percentiles);
+  }
+
+  StatusJsonSink(OutputStream out, double[] percentiles) throws IOException {
+    this.out = out;
+    this.generator = new JsonFactory().createJsonGenerator(new OutputStreamWriter(out, "UTF-8"));
+    // Objects are separated by the line breaks written after each.
+    this.generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+    this.percentiles = percentiles.clone();
+    percentileNames = new String[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      percentileNames[i] = percentiles[i] == Math.rint(percentiles[i]) ?
+          Long.toString((long) percentiles[i]) : Double.toString(percentiles[i]);
+    }
+  }
+
+  /**
+   * @return The percentiles the snapshots need to have.
+   */
+  double[] getPercentiles() {
+    return percentiles;
+  }
+
+  /**
+   * Writes one interval.
+   *
+   * @param timestampMs The end of the interval, as given by {@link System#currentTimeMillis()}.
+   * @param elapsedMs The time since the start of the run.
+   * @param operations The number of operations completed since the start of the run.
+   * @param throughput The throughput over the interval.
+   * @param targetThroughput The requested throughput over the interval, or NaN if unthrottled.
+   * @param behindSchedule The number of operations behind schedule.
+   * @param warmup True while warming up.
+   * @param snapshots The measurements of the interval.
+   * @throws IOException if writing failed.
+   */
+  void write(long timestampMs, long elapsedMs, long operations, double throughput, double targetThroughput,
+      long behindSchedule, boolean warmup, List<IntervalSnapshot> snapshots) throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField("timestamp", timestampMs);
+    generator.writeNumberField("elapsedMs", elapsedMs);
+    generator.writeNumberField("operations", operations);
+    writeDouble("throughput", throughput);
+    if (!Double.isNaN(targetThroughput)) {
+      generator.writeNumberField("targetThroughput", targetThroughput);
+    }
+    generator.writeNumberField("behindSchedule", behindSchedule);
+    generator.writeBooleanField("warmup", warmup);
+    generator.writeArrayFieldStart("measurements");
+    for (IntervalSnapshot snapshot : snapshots) {
+      generator.writeStartObject();
+      generator.writeStringField("name", snapshot.getName());
+      if (snapshot.hasStatistics()) {
+        generator.writeNumberField("count", snapshot.getCount());
+        writeDouble("throughput", snapshot.getThroughput());
+        generator.writeStringField("unit", snapshot.getUnit().getAbbreviation());
+        generator.writeNumberField("min", snapshot.getMin());
+        generator.writeNumberField("mean", snapshot.getMean());
+        generator.writeNumberField("max", snapshot.getMax());
+        generator.writeObjectFieldStart("percentiles");
+        for (int i = 0; i < percentiles.length; i++) {
+          double value = snapshot.getPercentileValue(percentiles[i]);
+          if (!Double.isNaN(value)) {
+            generator.writeNumberField(percentileNames[i], value);
+          }
+        }
+        generator.writeEndObject();
+      } else {
+        generator.writeStringField("summary", snapshot.getSummary());
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+    generator.flush();
+  }
+
+  /**
+   * Writes a number, or null if it is not finite, e.g. the throughput of an empty interval.
+   */
+  private void writeDouble(String field, double value) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      generator.writeNullField(field);
+    } else {
+      generator.writeNumberField(field, value);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.flush();
+    if (out != System.out) {
+      out.close();
+    }
+  }
+}
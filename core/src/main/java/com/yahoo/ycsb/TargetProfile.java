@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A target throughput that changes over the course of a run.
+ *
+ * A profile is read from a text file with one segment per line. Each line gives the offset
+ * in seconds from the start of the run at which the segment begins, its shape and the shape's
+ * parameters in operations per second. A segment lasts until the next one begins.
+ * <ul>
+ * <li><b>step r</b>: a constant rate r</li>
+ * <li><b>ramp a b</b>: a rate changing linearly from a to b. Cannot be the last segment.</li>
+ * <li><b>sine m a p</b>: a rate of m + a * sin(2 * pi * t / p), t being seconds into the segment
+ * and p the period in seconds. a must not exceed m.</li>
+ * <li><b>end</b>: the run stops here.</li>
+ * </ul>
+ * Blank lines and lines starting with '#' are ignored. If the profile has no end, its last
+ * segment lasts until the operation count or maximum execution time is reached. For example:
+ * <pre>
+ * 0    ramp 100 1000
+ * 300  step 1000
+ * 600  sine 1000 500 600
+ * 3000 end
+ * </pre>
+ */
+public final class TargetProfile {
+  private enum Shape { STEP, RAMP, SINE }
+
+  private final Shape[] shapes;
+  // Start of each segment in seconds.
+  private final double[] starts;
+  // Shape parameters of each segment: the rates for step and ramp, m, a and p for sine.
+  private final double[][] params;
+  // Expected number of operations before each segment starts.
+  private final double[] cumulative;
+  // The end of the profile in seconds, or infinity.
+  private final double end;
+
+  private TargetProfile(Shape[] shapes, double[] starts, double[][] params, double end) {
+    this.shapes = shapes;
+    this.starts = starts;
+    this.params = params;
+    this.end = end;
+    cumulative = new double[shapes.length];
+    for (int i = 1; i < shapes.length; i++) {
+      cumulative[i] = cumulative[i - 1] + opsInto(i - 1, starts[i] - starts[i - 1]);
+    }
+  }
+
+  /**
+   * @param opsPerSec The target rate.
+   * @return A profile with a constant rate and no end.
+   */
+  public static TargetProfile constant(double opsPerSec) {
+    if (opsPerSec <= 0) {
+      throw new IllegalArgumentException("The target rate must be positive");
+    }
+    return new TargetProfile(new Shape[] {Shape.STEP}, new double[] {0},
+        new double[][] {{opsPerSec}}, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * @param opsPerSec The target rate.
+   * @param seconds The length of the profile.
+   * @return A profile with a constant rate that ends after the given time.
+   */
+  public static TargetProfile constant(double opsPerSec, double seconds) {
+    if (opsPerSec <= 0 || seconds <= 0) {
+      throw new IllegalArgumentException("The target rate and duration must be positive");
+    }
+    return new TargetProfile(new Shape[] {Shape.STEP}, new double[] {0},
+        new double[][] {{opsPerSec}}, seconds);
+  }
+
+  /**
+   * Reads a profile file.
+   *
+   * @param filename The file to read.
+   * @return The profile.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalArgumentException if the file is malformed.
+   */
+  public static TargetProfile load(String filename) throws IOException {
+    try (Reader reader = new FileReader(filename)) {
+      return parse(reader);
+    }
+  }
+
+  /**
+   * Parses a profile.
+   *
+   * @param reader The profile text.
+   * @return The profile.
+   * @throws IOException if the text cannot be read.
+   * @throws IllegalArgumentException if the text is malformed.
+   */
+  public static TargetProfile parse(Reader reader) throws IOException {
+    List<Shape> shapes = new ArrayList<>();
+    List<Double> starts = new ArrayList<>();
+    List<double[]> params = new ArrayList<>();
+    double end = Double.POSITIVE_INFINITY;
+
+    BufferedReader in = new BufferedReader(reader);
+    String line;
+    int lineno = 0;
+    while ((line = in.readLine()) != null) {
+      lineno++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      if (end != Double.POSITIVE_INFINITY) {
+        throw new IllegalArgumentException("Line " + lineno + ": segment after end of target profile");
+      }
+      String[] tokens = line.split("\\s+");
+      try {
+        double start = Double.parseDouble(tokens[0]);
+        if (starts.isEmpty() ? start != 0 : start <= starts.get(starts.size() - 1)) {
+          throw new IllegalArgumentException("Line " + lineno
+              + ": the first segment must start at 0 and each later one after the previous");
+        }
+        if (tokens.length < 2) {
+          throw new IllegalArgumentException("Line " + lineno + ": missing segment shape");
+        }
+        String shape = tokens[1];
+        double[] values = new double[tokens.length - 2];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = Double.parseDouble(tokens[i + 2]);
+          if (values[i] < 0) {
+            throw new IllegalArgumentException("Line " + lineno + ": negative value " + tokens[i + 2]);
+          }
+        }
+        if ("end".equals(shape) && values.length == 0) {
+          if (starts.isEmpty()) {
+            throw new IllegalArgumentException("Line " + lineno + ": empty target profile");
+          }
+          end = start;
+          continue;
+        } else if ("step".equals(shape) && values.length == 1) {
+          shapes.add(Shape.STEP);
+        } else if ("ramp".equals(shape) && values.length == 2) {
+          shapes.add(Shape.RAMP);
+        } else if ("sine".equals(shape) && values.length == 3 && values[1] <= values[0] && values[2] > 0) {
+          shapes.add(Shape.SINE);
+        } else {
+          throw new IllegalArgumentException("Line " + lineno + ": invalid segment \"" + line + "\"");
+        }
+        starts.add(start);
+        params.add(values);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Line " + lineno + ": invalid number in \"" + line + "\"");
+      }
+    }
+
+    if (shapes.isEmpty()) {
+      throw new IllegalArgumentException("Empty target profile");
+    }
+    if (end == Double.POSITIVE_INFINITY && shapes.get(shapes.size() - 1) == Shape.RAMP) {
+      throw new IllegalArgumentException("A ramp cannot be the last segment of a target profile");
+    }
+    double[] startArray = new double[starts.size()];
+    for (int i = 0; i < startArray.length; i++) {
+      startArray[i] = starts.get(i);
+    }
+    return new TargetProfile(shapes.toArray(new Shape[shapes.size()]), startArray,
+        params.toArray(new double[params.size()][]), end);
+  }
+
+  /**
+   * @param factor The factor to multiply every rate by.
+   * @return The same profile at a scaled rate, e.g. the share of one of several client threads.
+   */
+  public TargetProfile scale(double factor) {
+    double[][] scaled = new double[params.length][];
+    for (int i = 0; i < params.length; i++) {
+      scaled[i] = params[i].clone();
+      if (shapes[i] == Shape.SINE) {
+        scaled[i][0] *= factor;
+        scaled[i][1] *= factor;
+      } else {
+        for (int j = 0; j < scaled[i].length; j++) {
+          scaled[i][j] *= factor;
+        }
+      }
+    }
+    return new TargetProfile(shapes, starts, scaled, end);
+  }
+
+  /**
+   * @return True if the profile is a single constant rate without end.
+   */
+  public boolean isConstant() {
+    return shapes.length == 1 && shapes[0] == Shape.STEP && end == Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * @param offsetNs Nanoseconds since the start of the run.
+   * @return The target rate in operations per second at that time.
+   */
+  public double rateAt(long offsetNs) {
+    double t = offsetNs / 1e9;
+    if (t < 0 || t >= end) {
+      return 0;
+    }
+    int i = segmentAt(t);
+    double dt = t - starts[i];
+    double[] p = params[i];
+    switch (shapes[i]) {
+    case RAMP:
+      return p[0] + (p[1] - p[0]) * dt / length(i);
+    case SINE:
+      return p[0] + p[1] * Math.sin(2 * Math.PI * dt / p[2]);
+    default:
+      return p[0];
+    }
+  }
+
+  /**
+   * @param offsetNs Nanoseconds since the start of the run.
+   * @return The number of operations the profile asks for up to that time.
+   */
+  public double opsUntil(long offsetNs) {
+    double t = Math.min(offsetNs / 1e9, end);
+    if (t <= 0) {
+      return 0;
+    }
+    int i = segmentAt(t);
+    return cumulative[i] + opsInto(i, t - starts[i]);
+  }
+
+  /**
+   * The inverse of {@link #opsUntil(long)}.
+   *
+   * @param ops A number of operations.
+   * @return The earliest offset in nanoseconds at which the profile has asked for that many
+   *         operations, or {@link Long#MAX_VALUE} if it never does.
+   */
+  public long offsetForOps(double ops) {
+    int i = 0;
+    while (i + 1 < shapes.length && cumulative[i + 1] < ops) {
+      i++;
+    }
+    double remaining = ops - cumulative[i];
+    double length = length(i);
+    if (!Double.isInfinite(length) && opsInto(i, length) < remaining) {
+      return Long.MAX_VALUE;
+    }
+    double[] p = params[i];
+    double dt;
+    switch (shapes[i]) {
+    case RAMP:
+      double slope = (p[1] - p[0]) / length;
+      dt = slope == 0 ? remaining / p[0]
+          : (Math.sqrt(p[0] * p[0] + 2 * slope * remaining) - p[0]) / slope;
+      break;
+    case SINE:
+      // The cumulative count is monotonic and never below m * dt, so bisect within
+      // [0, remaining / m].
+      double lo = 0;
+      double hi = Math.min(length, remaining / p[0]);
+      for (int n = 0; n < 64 && hi - lo > 1e-9; n++) {
+        double mid = (lo + hi) / 2;
+        if (opsInto(i, mid) < remaining) {
+          lo = mid;
+        } else {
+          hi = mid;
+        }
+      }
+      dt = hi;
+      break;
+    default:
+      dt = remaining / p[0];
+      break;
+    }
+    double t = starts[i] + dt;
+    return Double.isNaN(t) || t > end ? Long.MAX_VALUE : Math.round(t * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /**
+   * @return The length of segment i in seconds, possibly infinite.
+   */
+  private double length(int i) {
+    return (i + 1 < shapes.length ? starts[i + 1] : end) - starts[i];
+  }
+
+  private int segmentAt(double t) {
+    int i = shapes.length - 1;
+    while (starts[i] > t) {
+      i--;
+    }
+    return i;
+  }
+
+  /**
+   * @return The expected number of operations in the first dt seconds of segment i.
+   */
+  private double opsInto(int i, double dt) {
+    double[] p = params[i];
+    switch (shapes[i]) {
+    case RAMP:
+      return p[0] * dt + (p[1] - p[0]) * dt * dt / (2 * length(i));
+    case SINE:
+      return p[0] * dt + p[1] * p[2] / (2 * Math.PI) * (1 - Math.cos(2 * Math.PI * dt / p[2]));
+    default:
+      return p[0] * dt;
+    }
+  }
+}
@@ -36,10 +36,14 @@ public final class Utils {
   private static final Random RAND = new Random();
   private static final ThreadLocal<Random> RNG = new ThreadLocal<Random>();
 
+  /**
+   * The random number generator of the calling thread, a {@link XoshiroRandom}. It is not thread safe, so look it
+   * up on the thread drawing the numbers rather than keep it in an object another thread may use.
+   */
   public static Random random() {
     Random ret = RNG.get();
     if (ret == null) {
-      ret = new Random(RAND.nextLong());
+      ret = new XoshiroRandom(RAND.nextLong());
       RNG.set(ret);
     }
     return ret;
@@ -76,6 +80,19 @@ public final class Utils {
     return Math.abs(hashval);
   }
 
+  /**
+   * 64 bit hash by the finalizer of MurmurHash3, a few multiplies and shifts rather than a loop over the bytes.
+   * It maps values differently from {@link #fnvhash64(long)}, so keys it built cannot be found with that one.
+   *
+   * @param val The value to hash.
+   * @return The hash value, which is not negative.
+   */
+  public static long mix64hash(long val) {
+    val = (val ^ (val >>> 33)) * 0xFF51AFD7ED558CCDL;
+    val = (val ^ (val >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return (val ^ (val >>> 33)) & Long.MAX_VALUE;
+  }
+
   /**
    * Reads a big-endian 8-byte long from an offset in the given array.
    * @param bytes The array to read from.
@@ -227,6 +244,26 @@ public final class Utils {
     return map;
   }
 
+  /**
+   * Parses a comma separated list of percentiles, e.g. "50,99,99.9".
+   * @param property The name of the property the list was read from, for the error message.
+   * @param list The list.
+   * @return The percentiles, in the order listed.
+   * @throws IllegalArgumentException if a percentile is not a number.
+   */
+  public static double[] parsePercentiles(final String property, final String list) {
+    final String[] values = list.split(",");
+    final double[] percentiles = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      try {
+        percentiles[i] = Double.parseDouble(values[i].trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid " + property + " \"" + values[i] + "\"");
+      }
+    }
+    return percentiles;
+  }
+
   /**
    * Simple Fisher-Yates array shuffle to randomize discrete sets.
    * @param array The array to randomly shuffle.
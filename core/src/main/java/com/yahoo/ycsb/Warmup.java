@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * The start of a run during which the client threads execute the workload as usual but whose
+ * latencies are kept apart from the results, under {@link Measurements#WARMUP_PREFIX}. This keeps
+ * JIT compilation, connection setup and cold caches out of the steady state numbers. The
+ * warmup ends once both the configured time has passed and the configured number of
+ * operations has completed, counted over all client threads.
+ */
+final class Warmup {
+  /**
+   * The minimum length of the warmup in seconds.
+   */
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+
+  /**
+   * The minimum number of operations, over all client threads, to complete while warming up.
+   */
+  public static final String WARMUP_OPS_PROPERTY = "warmup.ops";
+
+  private final Measurements measurements;
+  private final long warmupOps;
+  private final long warmupTimeNs;
+  private final AtomicLong ops = new AtomicLong();
+
+  private volatile boolean active;
+  private long deadlineNs;
+  private long startTimeMs;
+  private long endTimeMs;
+  private long endOps;
+
+  /**
+   * Creates the warmup configured by the properties.
+   *
+   * @param props The run properties.
+   * @return The warmup, or null if none is configured.
+   * @throws IllegalArgumentException if the settings are negative.
+   */
+  static Warmup create(Properties props) {
+    long time = Long.parseLong(props.getProperty(WARMUP_TIME_PROPERTY, "0"));
+    long count = Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY, "0"));
+    if (time < 0 || count < 0) {
+      throw new IllegalArgumentException(WARMUP_TIME_PROPERTY + " and " + WARMUP_OPS_PROPERTY
+          + " must not be negative");
+    }
+    if (time == 0 && count == 0) {
+      return null;
+    }
+    return new Warmup(Measurements.getMeasurements(), count, TimeUnit.SECONDS.toNanos(time));
+  }
+
+  Warmup(Measurements measurements, long warmupOps, long warmupTimeNs) {
+    this.measurements = measurements;
+    this.warmupOps = warmupOps;
+    this.warmupTimeNs = warmupTimeNs;
+  }
+
+  /**
+   * Starts warming up. Call before the client threads start.
+   */
+  synchronized void start() {
+    startTimeMs = System.currentTimeMillis();
+    deadlineNs = System.nanoTime() + warmupTimeNs;
+    ops.set(0);
+    active = true;
+    measurements.setWarmup(true);
+  }
+
+  /**
+   * @return True until the warmup has ended.
+   */
+  boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Counts an operation completed while warming up and ends the warmup at its boundary.
+   */
+  void opDone() {
+    if (ops.incrementAndGet() >= warmupOps && System.nanoTime() >= deadlineNs) {
+      finish();
+    }
+  }
+
+  private synchronized void finish() {
+    if (!active) {
+      return;
+    }
+    measurements.setWarmup(false);
+    active = false;
+    endTimeMs = System.currentTimeMillis();
+    endOps = ops.get();
+    System.err.println("Warmup finished after " + (endTimeMs - startTimeMs) + " ms and " + endOps
+        + " operations.");
+  }
+
+  /**
+   * @return The {@link System#currentTimeMillis()} at which the warmup ended and the measured
+   *         part of the run began. Only valid once the warmup is no longer active.
+   */
+  synchronized long getEndTimeMs() {
+    return endTimeMs;
+  }
+
+  /**
+   * @return The length of the warmup in milliseconds. Only valid once the warmup is no longer active.
+   */
+  synchronized long getTimeMs() {
+    return endTimeMs - startTimeMs;
+  }
+
+  /**
+   * @return The number of operations completed while warming up. Only valid once the warmup is
+   *         no longer active.
+   */
+  synchronized long getOps() {
+    return endOps;
+  }
+}
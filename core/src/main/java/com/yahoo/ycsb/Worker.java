@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.htrace.core.Tracer;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Runs its share of a phase for a {@link Coordinator}.
+ *
+ * The worker takes the properties of the run from the coordinator; properties given to the
+ * worker itself, e.g. the address of a database node close to it, take precedence. It sends
+ * its operation count and the interval HdrHistograms of its measurements every second, instead
+ * of printing a status line, and its return codes when it is done, instead of exporting them.
+ */
+final class Worker {
+  /**
+   * How a worker talks to whoever merges its measurements.
+   */
+  interface Channel {
+    /**
+     * Reports that the workload and the database are initialized.
+     */
+    void ready() throws IOException;
+
+    /**
+     * Waits until all workers are to start.
+     */
+    void awaitStart() throws IOException;
+
+    /**
+     * Sends an {@link Coordinator#INTERVAL} or {@link Coordinator#DONE} message.
+     */
+    void send(byte[] message) throws IOException;
+  }
+
+  /**
+   * The "host:port" of the coordinator. Setting it makes the client a worker.
+   */
+  public static final String COORDINATOR_PROPERTY = "distributed.coordinator";
+
+  // Often enough for the status lines of the coordinator to be current.
+  private static final long REPORT_INTERVAL_MS = 1000;
+
+  private Worker() {
+    // not used
+  }
+
+  /**
+   * Connects to the coordinator, retrying until it accepts or the timeout passes.
+   */
+  static Socket connect(InetSocketAddress address, int timeoutSeconds) throws IOException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    while (true) {
+      try {
+        return new Socket(address.getHostString(), address.getPort());
+      } catch (IOException e) {
+        if (System.nanoTime() >= deadline) {
+          throw e;
+        }
+      }
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while connecting to the coordinator.", e);
+      }
+    }
+  }
+
+  /**
+   * Runs a worker of {@link Client}.
+   *
+   * @param local The properties given to the worker.
+   */
+  static void work(Properties local) {
+    String coordinator = local.getProperty(COORDINATOR_PROPERTY);
+    int timeout = Integer.parseInt(local.getProperty(Coordinator.TIMEOUT_PROPERTY,
+        Coordinator.TIMEOUT_PROPERTY_DEFAULT));
+    try (Socket socket = connect(Coordinator.parseAddress(coordinator), timeout)) {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      if (in.readByte() != Coordinator.PROPERTIES) {
+        throw new IOException("Expected the properties of the run.");
+      }
+      Properties props = Coordinator.readProperties(in);
+      for (String name : local.stringPropertyNames()) {
+        props.setProperty(name, local.getProperty(name));
+      }
+      System.err.println("Connected to " + coordinator + " as worker "
+          + props.getProperty(Coordinator.WORKER_INDEX_PROPERTY) + ".");
+      run(props, new Channel() {
+          @Override
+          public void ready() throws IOException {
+            out.writeByte(Coordinator.READY);
+            out.flush();
+          }
+
+          @Override
+          public void awaitStart() throws IOException {
+            if (in.readByte() != Coordinator.START) {
+              throw new IOException("Expected the start of the run.");
+            }
+          }
+
+          @Override
+          public void send(byte[] message) throws IOException {
+            out.write(message);
+            out.flush();
+          }
+        });
+    } catch (IOException e) {
+      System.err.println("Lost the coordinator " + coordinator + ": " + e.getMessage());
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Runs the worker's share of the phase.
+   *
+   * @param props The properties of the worker.
+   * @param channel The channel to the coordinator.
+   * @throws IOException if the channel failed.
+   */
+  static void run(Properties props, final Channel channel) throws IOException {
+    int threadcount = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    String dbname = props.getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
+    int target = Integer.parseInt(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    long maxExecutionTime = Integer.parseInt(props.getProperty(Client.MAX_EXECUTION_TIME, "0"));
+
+    TargetProfile targetprofile = null;
+    String targetprofileFile = props.getProperty(Client.TARGET_PROFILE_PROPERTY);
+    if (targetprofileFile != null) {
+      // The profile is of the whole run; each worker drives its share.
+      int workers = Integer.parseInt(props.getProperty(Coordinator.WORKER_COUNT_PROPERTY, "1"));
+      targetprofile = TargetProfile.load(targetprofileFile).scale(1.0 / workers);
+    } else if (target > 0) {
+      targetprofile = TargetProfile.constant(target);
+    }
+
+    ThreadFactory threadFactory = null;
+    try {
+      threadFactory = ClientThreadFactory.create(props);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+
+    Thread warningthread = Client.setupWarningThread();
+    warningthread.start();
+    Measurements.setProperties(props);
+    final Measurements measurements = Measurements.getMeasurements();
+    Workload workload = Client.getWorkload(props);
+    Tracer tracer = Client.getTracer(props, workload);
+    Client.initWorkload(props, warningthread, workload, tracer);
+    CountDownLatch completeLatch = new CountDownLatch(threadcount);
+    final List<ClientThread> clients = Client.initDb(dbname, props, threadcount, targetprofile, workload, tracer,
+        completeLatch);
+    List<Thread> threads = new ArrayList<>(threadcount);
+    for (ClientThread client : clients) {
+      threads.add(threadFactory.newThread(tracer.wrap(client, "ClientThread")));
+    }
+
+    channel.ready();
+    channel.awaitStart();
+    long st = System.currentTimeMillis();
+    for (Thread t : threads) {
+      t.start();
+    }
+    Thread terminator = null;
+    if (maxExecutionTime > 0) {
+      terminator = new TerminatorThread(maxExecutionTime, threads, workload);
+      terminator.start();
+    }
+
+    final IOException[] failure = new IOException[1];
+    Thread reporter = new Thread(() -> {
+        try {
+          while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(REPORT_INTERVAL_MS);
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(message);
+            out.writeByte(Coordinator.INTERVAL);
+            out.writeLong(getOpsDone(clients));
+            Coordinator.writeHistograms(out, measurements.getIntervalHistograms());
+            channel.send(message.toByteArray());
+          }
+        } catch (InterruptedException e) {
+          // done
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      }, "worker-reporter");
+    reporter.setDaemon(true);
+    reporter.start();
+
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+    long en = System.currentTimeMillis();
+    if (terminator != null && !terminator.isInterrupted()) {
+      terminator.interrupt();
+    }
+    reporter.interrupt();
+    try {
+      reporter.join();
+    } catch (InterruptedException ignored) {
+      // ignored
+    }
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+
+    try {
+      workload.cleanup();
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+
+    ByteArrayOutputStream message = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(message);
+    out.writeByte(Coordinator.DONE);
+    out.writeLong(getOpsDone(clients));
+    out.writeLong(en - st);
+    Coordinator.writeHistograms(out, measurements.getIntervalHistograms());
+    Coordinator.writeStatusCounts(out, measurements.getStatusCounts());
+    channel.send(message.toByteArray());
+  }
+
+  private static long getOpsDone(List<ClientThread> clients) {
+    long ops = 0;
+    for (ClientThread client : clients) {
+      ops += client.getOpsDone();
+    }
+    return ops;
+  }
+}
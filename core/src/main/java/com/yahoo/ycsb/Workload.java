@@ -40,6 +40,15 @@ public abstract class Workload {
   public static final String INSERT_COUNT_PROPERTY = "insertcount";
   
   public static final String INSERT_START_PROPERTY_DEFAULT = "0";
+
+  /**
+   * In the transaction phase, a client inserts every "insertstride"-th key past the loaded records, starting at the
+   * "insertoffset"-th, so clients running the phase together insert disjoint keys.
+   */
+  public static final String INSERT_STRIDE_PROPERTY = "insertstride";
+  public static final String INSERT_STRIDE_PROPERTY_DEFAULT = "1";
+  public static final String INSERT_OFFSET_PROPERTY = "insertoffset";
+  public static final String INSERT_OFFSET_PROPERTY_DEFAULT = "0";
   
   private volatile AtomicBoolean stopRequested = new AtomicBoolean(false);
   
@@ -49,7 +58,8 @@ public abstract class Workload {
     UPDATE,
     INSERT,
     SCAN,
-    DELETE
+    DELETE,
+    READMODIFYWRITE
   }
   
   /**
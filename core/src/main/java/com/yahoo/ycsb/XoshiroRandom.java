@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} for a single thread, generating with xoshiro256** instead of the linear congruential generator of
+ * {@link Random}. Its state is four plain longs: unlike {@link Random}, which updates an atomic seed with a
+ * compare-and-set for every number, it does nothing to be safe to share among threads, so it must not be.
+ * {@link Utils#random()} hands out one per thread.
+ * <p>
+ * The algorithm is by David Blackman and Sebastiano Vigna, see http://xoshiro.di.unimi.it/.
+ */
+public final class XoshiroRandom extends Random {
+  private static final long serialVersionUID = 1L;
+
+  // Set by setSeed(), which the constructor of Random calls before the fields of this class would be initialized.
+  private long s0;
+  private long s1;
+  private long s2;
+  private long s3;
+
+  public XoshiroRandom(long seed) {
+    super(seed);
+  }
+
+  /**
+   * Expands the seed into the state with splitmix64, as its authors advise, so similar seeds give unrelated
+   * sequences.
+   */
+  @Override
+  public void setSeed(long seed) {
+    long x = seed;
+    x += 0x9E3779B97F4A7C15L;
+    s0 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    s1 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    s2 = mix(x);
+    x += 0x9E3779B97F4A7C15L;
+    s3 = mix(x);
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public long nextLong() {
+    long result = Long.rotateLeft(s1 * 5, 7) * 9;
+    long t = s1 << 17;
+    s2 ^= s0;
+    s3 ^= s1;
+    s1 ^= s2;
+    s0 ^= s3;
+    s2 ^= t;
+    s3 = Long.rotateLeft(s3, 45);
+    return result;
+  }
+
+  @Override
+  protected int next(int bits) {
+    return (int) (nextLong() >>> (64 - bits));
+  }
+
+  @Override
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+  @Override
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  @Override
+  public float nextFloat() {
+    return (nextLong() >>> 40) * 0x1.0p-24f;
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return nextLong() < 0;
+  }
+}
@@ -19,7 +19,7 @@ package com.yahoo.ycsb.generator;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A CounterGenerator that reports generated integers via lastInt()
+ * A CounterGenerator that reports generated integers via lastValue()
  * only after they have been acknowledged.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator {
@@ -53,7 +53,7 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
   }
 
   /**
-   * Make a generated counter value available via lastInt().
+   * Make a generated counter value available via lastValue().
    */
   public void acknowledge(long value) {
     final int currentSlot = (int)(value & WINDOW_MASK);
@@ -68,9 +68,9 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
       // over to the "limit" variable
       try {
         // Only loop through the entire window at most once.
-        long beforeFirstSlot = (limit & WINDOW_MASK);
+        final int beforeFirstSlot = (int)(limit & WINDOW_MASK);
         long index;
-        for (index = limit + 1; index != beforeFirstSlot; ++index) {
+        for (index = limit + 1; (int)(index & WINDOW_MASK) != beforeFirstSlot; ++index) {
           int slot = (int)(index & WINDOW_MASK);
           if (!window[slot]) {
             break;
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Generates a distribution by choosing from a discrete set of weighted values in constant time.
+ * <p>
+ * Adding a value rebuilds an alias table (Vose's alias method): every one of the n values owns a column of height
+ * 1/n, holding as much of its own probability as fits and the overflow of one other value, its alias. A draw takes
+ * one random number, picks a column with its integer part and the value or its alias with its fraction, and allocates
+ * nothing. Values should be added before the generator is shared among threads.
+ *
+ * @param <V> The type of the values.
+ */
+public class AliasGenerator<V> extends Generator<V> {
+  /**
+   * The alias table of the values added so far.
+   */
+  private static final class Table {
+    private final Object[] values;
+    private final double[] probabilities;
+    private final int[] aliases;
+    private final boolean empty;
+
+    private Table(List<Object> values, List<Double> weights) {
+      int n = values.size();
+      this.values = values.toArray();
+      probabilities = new double[n];
+      aliases = new int[n];
+      double sum = 0;
+      for (double weight : weights) {
+        sum += weight;
+      }
+      empty = !(sum > 0);
+      if (empty) {
+        return;
+      }
+      double[] scaled = new double[n];
+      int[] small = new int[n];
+      int[] large = new int[n];
+      int smalls = 0;
+      int larges = 0;
+      for (int i = 0; i < n; i++) {
+        scaled[i] = weights.get(i) * n / sum;
+        if (scaled[i] < 1) {
+          small[smalls++] = i;
+        } else {
+          large[larges++] = i;
+        }
+      }
+      while (smalls > 0 && larges > 0) {
+        int s = small[--smalls];
+        int l = large[--larges];
+        probabilities[s] = scaled[s];
+        aliases[s] = l;
+        scaled[l] = (scaled[l] + scaled[s]) - 1;
+        if (scaled[l] < 1) {
+          small[smalls++] = l;
+        } else {
+          large[larges++] = l;
+        }
+      }
+      // What is left is full up to rounding.
+      while (larges > 0) {
+        int l = large[--larges];
+        probabilities[l] = 1;
+        aliases[l] = l;
+      }
+      while (smalls > 0) {
+        int s = small[--smalls];
+        probabilities[s] = 1;
+        aliases[s] = s;
+      }
+    }
+  }
+
+  private final List<Object> values = new ArrayList<>();
+  private final List<Double> weights = new ArrayList<>();
+  private volatile Table table = new Table(values, weights);
+  private V lastvalue;
+
+  /**
+   * Generate the index, in the order they were added, of the next value in the distribution.
+   *
+   * @throws IllegalStateException if no value has a positive weight.
+   */
+  public int nextIndex() {
+    return nextIndex(table);
+  }
+
+  private static int nextIndex(Table t) {
+    if (t.empty) {
+      throw new IllegalStateException("No value with a positive weight to choose from.");
+    }
+    double u = Utils.random().nextDouble() * t.values.length;
+    int column = (int) u;
+    return u - column < t.probabilities[column] ? column : t.aliases[column];
+  }
+
+  /**
+   * Generate the next value in the distribution.
+   *
+   * @throws IllegalStateException if no value has a positive weight.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V nextValue() {
+    Table t = table;
+    V value = (V) t.values[nextIndex(t)];
+    lastvalue = value;
+    return value;
+  }
+
+  /**
+   * Return the previous value generated by the distribution, or the next one if there was none.
+   */
+  @Override
+  public V lastValue() {
+    if (lastvalue == null) {
+      return nextValue();
+    }
+    return lastvalue;
+  }
+
+  /**
+   * Adds a value that is chosen with a probability of its weight over the sum of all weights.
+   */
+  public synchronized void addValue(double weight, V value) {
+    if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+      throw new IllegalArgumentException("Invalid weight " + weight + " of " + value);
+    }
+    values.add(requireNonNull(value));
+    weights.add(weight);
+    table = new Table(values, weights);
+  }
+}
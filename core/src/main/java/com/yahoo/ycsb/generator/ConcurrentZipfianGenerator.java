@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A {@link ZipfianGenerator} for a number of items that keeps growing while many threads draw from it, like the
+ * inserted keys under {@link SkewedLatestGenerator}.
+ * <p>
+ * The parameters that depend on the number of items (zetan and eta) are published together as an immutable
+ * snapshot. Drawing an item only reads the current snapshot; a thread that sees more items than the snapshot was
+ * computed for extends zeta from it and publishes the result with a compare-and-set, so no thread ever waits for
+ * another. Of several threads extending at once, one wins and the others use its snapshot, or a newer one, if it
+ * covers their item count. The number of items never shrinks: a smaller item count is drawn from with the
+ * parameters of the larger one, like {@link ZipfianGenerator} does by default.
+ */
+public class ConcurrentZipfianGenerator extends NumberGenerator {
+  /**
+   * The parameters of the distribution for a number of items.
+   */
+  private static final class Snapshot {
+    private final long count;
+    private final double zetan;
+    private final double eta;
+
+    private Snapshot(long count, double zetan, double theta, double zeta2theta) {
+      this.count = count;
+      this.zetan = zetan;
+      eta = (1 - Math.pow(2.0 / count, 1 - theta)) / (1 - zeta2theta / zetan);
+    }
+  }
+
+  private final long items;
+  private final long base;
+  private final double theta;
+  private final double alpha;
+  private final double zeta2theta;
+  private final AtomicReference<Snapshot> snapshot;
+  // The mean, once computed.
+  private volatile double mean = Double.NaN;
+
+  /**
+   * Create a zipfian generator for the specified number of items.
+   *
+   * @param items The number of items in the distribution.
+   */
+  public ConcurrentZipfianGenerator(long items) {
+    this(0, items - 1, ZipfianGenerator.ZIPFIAN_CONSTANT);
+  }
+
+  /**
+   * Create a zipfian generator for the specified number of items using the specified zipfian constant.
+   *
+   * @param items The number of items in the distribution.
+   * @param zipfianconstant The zipfian constant to use.
+   */
+  public ConcurrentZipfianGenerator(long items, double zipfianconstant) {
+    this(0, items - 1, zipfianconstant);
+  }
+
+  /**
+   * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant.
+   *
+   * @param min The smallest integer to generate in the sequence.
+   * @param max The largest integer to generate in the sequence.
+   * @param zipfianconstant The zipfian constant to use.
+   */
+  public ConcurrentZipfianGenerator(long min, long max, double zipfianconstant) {
+    items = max - min + 1;
+    base = min;
+    theta = zipfianconstant;
+    alpha = 1.0 / (1.0 - theta);
+    zeta2theta = Zeta.zeta(2, theta);
+    snapshot = new AtomicReference<>(new Snapshot(items, Zeta.zeta(items, theta), theta, zeta2theta));
+    nextValue();
+  }
+
+  /**
+   * The parameters for at least itemcount items.
+   */
+  private Snapshot getSnapshot(long itemcount) {
+    Snapshot current = snapshot.get();
+    while (itemcount > current.count) {
+      Snapshot extended = new Snapshot(itemcount, Zeta.zeta(current.count, itemcount, theta, current.zetan), theta,
+          zeta2theta);
+      if (snapshot.compareAndSet(current, extended)) {
+        return extended;
+      }
+      current = snapshot.get();
+    }
+    return current;
+  }
+
+  /**
+   * Generate the next item as a long.
+   *
+   * @param itemcount The number of items in the distribution.
+   * @return The next item in the sequence.
+   */
+  long nextLong(long itemcount) {
+    //from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
+    Snapshot parameters = getSnapshot(itemcount);
+
+    double u = Utils.random().nextDouble();
+    double uz = u * parameters.zetan;
+
+    if (uz < 1.0) {
+      return base;
+    }
+
+    if (uz < 1.0 + Math.pow(0.5, theta)) {
+      return base + 1;
+    }
+
+    long ret = base + (long) ((itemcount) * Math.pow(parameters.eta * u - parameters.eta + 1, alpha));
+    setLastValue(ret);
+    return ret;
+  }
+
+  /**
+   * The number of items zetan was last computed for.
+   */
+  long getCountForZeta() {
+    return snapshot.get().count;
+  }
+
+  /**
+   * The zeta of the number of items it was last computed for.
+   */
+  double getZetan() {
+    return snapshot.get().zetan;
+  }
+
+  /**
+   * Return the next value, skewed by the Zipfian distribution, for the number of items given at construction.
+   */
+  @Override
+  public Long nextValue() {
+    return nextLong(items);
+  }
+
+  /**
+   * The mean of the zipfian distribution over the number of items given at construction, in which the item of
+   * rank i has probability (i+1)^-theta / zeta(n, theta). It is the sum over k = 1 .. n of (k-1) k^-theta, divided
+   * by zeta(n, theta).
+   */
+  @Override
+  public double mean() {
+    double m = mean;
+    if (Double.isNaN(m)) {
+      m = base + firstMoment(items, theta) / Zeta.zeta(items, theta) - 1;
+      mean = m;
+    }
+    return m;
+  }
+
+  /**
+   * Computes the sum over k = 1 .. n of k^(1-theta), term by term up to {@link Zeta#EXACT_LIMIT} terms and beyond
+   * that by adding up the first {@link Zeta#HEAD_TERMS} terms and the Euler-Maclaurin formula of the rest.
+   */
+  static double firstMoment(long n, double theta) {
+    if (n <= Zeta.EXACT_LIMIT) {
+      return Zeta.sum(0, n, theta - 1, 0);
+    }
+    double s = 1 - theta;
+    double m = Zeta.HEAD_TERMS + 1;
+    double fm = Math.pow(m, s);
+    double fn = Math.pow(n, s);
+    double integral = s == -1 ? Math.log(n / m) : (fn * n - fm * m) / (s + 1);
+    return Zeta.sum(0, Zeta.HEAD_TERMS, theta - 1, 0) + integral + (fm + fn) / 2 + s * (fn / n - fm / m) / 12;
+  }
+}
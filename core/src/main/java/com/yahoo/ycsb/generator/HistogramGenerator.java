@@ -16,8 +16,6 @@
  */
 package com.yahoo.ycsb.generator;
 
-import com.yahoo.ycsb.Utils;
-
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
@@ -40,6 +38,7 @@ public class HistogramGenerator extends NumberGenerator {
   private long area;
   private long weightedArea = 0;
   private double meanSize = 0;
+  private final AliasGenerator<Long> values = new AliasGenerator<>();
 
   public HistogramGenerator(String histogramfile) throws IOException {
     try (BufferedReader in = new BufferedReader(new FileReader(histogramfile))) {
@@ -85,21 +84,32 @@ public class HistogramGenerator extends NumberGenerator {
     }
     // calculate average file size
     meanSize = ((double) blockSize) * ((double) weightedArea) / (area);
-  }
-
-  @Override
-  public Long nextValue() {
-    int number = Utils.random().nextInt((int) area);
-    int i;
 
-    for (i = 0; i < (buckets.length - 1); i++) {
-      number -= buckets[i];
-      if (number <= 0) {
-        return (i + 1) * blockSize;
+    // The values have always been chosen by drawing a number below the area and walking the buckets until it is
+    // used up, returning the next multiple of the block size, or the last one if it is never used up; weigh each
+    // value by how many numbers led to it, so the distribution stays the same.
+    long[] weights = new long[Math.max(1, buckets.length)];
+    long lo = 0;
+    long prefix = 0;
+    for (int i = 0; i < buckets.length - 1; i++) {
+      prefix += buckets[i];
+      long hi = Math.min(prefix, area - 1);
+      if (hi >= lo) {
+        weights[i + 1] += hi - lo + 1;
+        lo = hi + 1;
       }
     }
+    weights[weights.length - 1] += Math.max(0, area - lo);
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] > 0) {
+        values.addValue(weights[i], i * blockSize);
+      }
+    }
+  }
 
-    return i * blockSize;
+  @Override
+  public Long nextValue() {
+    return values.nextValue();
   }
 
   @Override
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * A zipfian generator that scatters the popular items across the item space, like
+ * {@link ScrambledZipfianGenerator}, but keeps the distribution exact.
+ * <p>
+ * {@link ScrambledZipfianGenerator} draws from a zipfian distribution over 10 billion items and hashes the result
+ * modulo the number of items, so several ranks land on the same item and the skew of a small item space is not that
+ * of its zipfian constant. This generator draws a rank from a zipfian distribution over exactly the items between
+ * min and max and maps it to an item with a keyed permutation of that range: a four round Feistel network over the
+ * smallest even number of bits that holds the range, walking the cycle until the result falls in it. Every item
+ * therefore has exactly the probability of one rank. The network covers less than four times the range, so a draw
+ * takes fewer than four walks on average, and it allocates nothing.
+ */
+public class PermutedZipfianGenerator extends NumberGenerator {
+  /**
+   * The key of the permutation unless one is given, so runs scatter popular items the same way.
+   */
+  public static final long DEFAULT_KEY = 0x5DEECE66DL;
+
+  private static final int ROUNDS = 4;
+
+  private final ZipfianGenerator gen;
+  private final long min, max, itemcount;
+  private final int halfbits;
+  private final long halfmask;
+  private final long[] roundkeys = new long[ROUNDS];
+
+  /**
+   * Create a zipfian generator for the specified number of items.
+   *
+   * @param items The number of items in the distribution.
+   */
+  public PermutedZipfianGenerator(long items) {
+    this(0, items - 1);
+  }
+
+  /**
+   * Create a zipfian generator for items between min and max.
+   *
+   * @param min The smallest integer to generate in the sequence.
+   * @param max The largest integer to generate in the sequence.
+   */
+  public PermutedZipfianGenerator(long min, long max) {
+    this(min, max, ZipfianGenerator.ZIPFIAN_CONSTANT, DEFAULT_KEY);
+  }
+
+  /**
+   * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant,
+   * scattering them with the permutation of the given key.
+   *
+   * @param min             The smallest integer to generate in the sequence.
+   * @param max             The largest integer to generate in the sequence.
+   * @param zipfianconstant The zipfian constant to use.
+   * @param key             The key of the permutation.
+   */
+  public PermutedZipfianGenerator(long min, long max, double zipfianconstant, long key) {
+    this.min = min;
+    this.max = max;
+    itemcount = this.max - this.min + 1;
+    gen = new ZipfianGenerator(0, itemcount - 1, zipfianconstant);
+
+    int bits = 64 - Long.numberOfLeadingZeros(itemcount - 1);
+    halfbits = Math.max(1, (bits + 1) / 2);
+    halfmask = (1L << halfbits) - 1;
+    long state = key;
+    for (int i = 0; i < ROUNDS; i++) {
+      state += 0x9E3779B97F4A7C15L;
+      roundkeys[i] = mix(state);
+    }
+  }
+
+  /**
+   * The splitmix64 finalizer.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Maps a rank between 0 and itemcount-1 to an offset in the same range; distinct ranks map to distinct offsets.
+   */
+  long permute(long rank) {
+    long x = rank;
+    do {
+      long left = x >>> halfbits;
+      long right = x & halfmask;
+      for (int i = 0; i < ROUNDS; i++) {
+        long next = left ^ (mix(right ^ roundkeys[i]) & halfmask);
+        left = right;
+        right = next;
+      }
+      x = (left << halfbits) | right;
+      // The network permutes all values of 2 * halfbits bits; the ones past the range lead back into it.
+    } while (Long.compareUnsigned(x, itemcount) >= 0);
+    return x;
+  }
+
+  /**
+   * Return the next long in the sequence.
+   */
+  @Override
+  public Long nextValue() {
+    // Rounding may put the rank just past the last item.
+    long rank = Math.min(gen.nextValue(), itemcount - 1);
+    long ret = min + permute(rank);
+    setLastValue(ret);
+    return ret;
+  }
+
+  /**
+   * since the values are scattered over the whole range, the mean is about the middle of the range.
+   */
+  @Override
+  public double mean() {
+    return ((min) + max) / 2.0;
+  }
+}
@@ -61,21 +61,16 @@ public class ScrambledZipfianGenerator extends NumberGenerator {
   /**
    * Create a zipfian generator for the specified number of items using the specified zipfian constant.
    *
-   * @param _items The number of items in the distribution.
-   * @param _zipfianconstant The zipfian constant to use.
+   * @param items The number of items in the distribution.
+   * @param zipfianconstant The zipfian constant to use.
    */
-  /*
-// not supported, as the value of zeta depends on the zipfian constant, and we have only precomputed zeta for one
-zipfian constant
-  public ScrambledZipfianGenerator(long _items, double _zipfianconstant)
-  {
-    this(0,_items-1,_zipfianconstant);
+  public ScrambledZipfianGenerator(long items, double zipfianconstant) {
+    this(0, items - 1, zipfianconstant);
   }
-*/
 
   /**
-   * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you
-   * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+   * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. For a
+   * zipfian constant other than 0.99, zeta of the underlying 10 billion items is computed by {@link Zeta}.
    *
    * @param min             The smallest integer to generate in the sequence.
    * @param max             The largest integer to generate in the sequence.
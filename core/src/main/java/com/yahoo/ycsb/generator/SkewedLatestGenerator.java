@@ -19,14 +19,24 @@ package com.yahoo.ycsb.generator;
 
 /**
  * Generate a popularity distribution of items, skewed to favor recent items significantly more than older items.
+ * The zipfian distribution behind it grows with the basis generator without making the threads drawing from it wait
+ * for each other; see {@link ConcurrentZipfianGenerator}.
  */
 public class SkewedLatestGenerator extends NumberGenerator {
   private CounterGenerator basis;
-  private final ZipfianGenerator zipfian;
+  private final ConcurrentZipfianGenerator zipfian;
 
   public SkewedLatestGenerator(CounterGenerator basis) {
+    this(basis, ZipfianGenerator.ZIPFIAN_CONSTANT);
+  }
+
+  /**
+   * @param basis The generator of the items, the latest of which are the most popular.
+   * @param zipfianconstant The zipfian constant to use.
+   */
+  public SkewedLatestGenerator(CounterGenerator basis, double zipfianconstant) {
     this.basis = basis;
-    zipfian = new ZipfianGenerator(this.basis.lastValue());
+    zipfian = new ConcurrentZipfianGenerator(this.basis.lastValue(), zipfianconstant);
     nextValue();
   }
 
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.stream.LongStream;
+
+/**
+ * The zeta sums of {@link ZipfianGenerator}: zeta(n, theta) = 1/1^theta + 1/2^theta + ... + 1/n^theta.
+ * <p>
+ * Sums of up to {@link #EXACT_LIMIT} terms are added up one term at a time, as they always were. Larger ones
+ * add up the first {@link #HEAD_TERMS} terms and approximate the rest with the Euler-Maclaurin formula, whose
+ * remainder is bounded and far below the rounding error of adding up billions of terms; where the bound is not
+ * below {@link #RELATIVE_ERROR} of the sum, or if exact sums were asked for with {@link #setExact(boolean)}, the
+ * terms are added up on all processors instead. Exact sums of more than {@link #EXACT_LIMIT} terms are kept in the
+ * cache file given to {@link #setCacheFile(File)}, if any, so they are computed once rather than once per run.
+ */
+public final class Zeta {
+  /**
+   * Sums of at most this many terms are always added up term by term.
+   */
+  public static final long EXACT_LIMIT = 1 << 20;
+
+  /**
+   * The number of leading terms the approximation adds up; the rest is smooth enough for three correction terms.
+   */
+  static final long HEAD_TERMS = 1 << 10;
+
+  /**
+   * The largest error bound, relative to the sum, of an approximation that is used.
+   */
+  static final double RELATIVE_ERROR = 1e-12;
+
+  // 2 zeta(6) / (2 pi)^6, bounding the remainder after the B6 term by this times |f'''''(m) - f'''''(n)|.
+  private static final double REMAINDER_FACTOR = 2 * (Math.pow(Math.PI, 6) / 945) / Math.pow(2 * Math.PI, 6);
+
+  // The terms added up by one task of a parallel exact sum.
+  private static final long CHUNK = 1 << 20;
+
+  private static volatile boolean exact = false;
+  private static File cacheFile = null;
+  private static Properties cache = null;
+
+  private Zeta() {
+    // not used
+  }
+
+  /**
+   * Whether sums of more than {@link #EXACT_LIMIT} terms are added up rather than approximated.
+   */
+  public static void setExact(boolean exactSums) {
+    exact = exactSums;
+  }
+
+  /**
+   * The file exact sums are cached in, or null not to cache them.
+   */
+  public static synchronized void setCacheFile(File file) {
+    if (file == null ? cacheFile != null : !file.equals(cacheFile)) {
+      cacheFile = file;
+      cache = null;
+    }
+  }
+
+  /**
+   * Computes zeta(n, theta).
+   *
+   * @param n The number of items to compute zeta over.
+   * @param theta The zipfian constant.
+   */
+  public static double zeta(long n, double theta) {
+    if (n <= EXACT_LIMIT) {
+      return sum(0, n, theta, 0);
+    }
+    if (!exact) {
+      double approximation = approximate(n, theta);
+      if (!Double.isNaN(approximation)) {
+        return approximation;
+      }
+    }
+    return cachedExact(n, theta);
+  }
+
+  /**
+   * Computes zeta(n, theta) from zeta(st, theta).
+   *
+   * @param st The number of items initialsum was computed over.
+   * @param n The number of items to compute zeta over.
+   * @param theta The zipfian constant.
+   * @param initialsum zeta(st, theta).
+   */
+  public static double zeta(long st, long n, double theta, double initialsum) {
+    if (n - st <= EXACT_LIMIT) {
+      return sum(st, n, theta, initialsum);
+    }
+    if (exact) {
+      return initialsum + exact(st, n, theta);
+    }
+    return initialsum + (zeta(n, theta) - zeta(st, theta));
+  }
+
+  /**
+   * Adds up the terms st+1 to n one by one, the way the sums have always been computed.
+   */
+  static double sum(long st, long n, double theta, double initialsum) {
+    double sum = initialsum;
+    for (long i = st; i < n; i++) {
+      sum += 1 / (Math.pow(i + 1, theta));
+    }
+    return sum;
+  }
+
+  /**
+   * Adds up the terms st+1 to n in chunks on the common fork/join pool.
+   */
+  static double exact(final long st, final long n, final double theta) {
+    long chunks = (n - st + CHUNK - 1) / CHUNK;
+    return LongStream.range(0, chunks).parallel()
+        .mapToDouble(c -> sum(st + c * CHUNK, Math.min(n, st + (c + 1) * CHUNK), theta, 0))
+        .sum();
+  }
+
+  /**
+   * Approximates zeta(n, theta) by adding up the first {@link #HEAD_TERMS} terms and the Euler-Maclaurin formula,
+   * up to the B6 term, of the sum of f(x) = x^-theta from {@link #HEAD_TERMS} + 1 to n.
+   *
+   * @return The approximation, or NaN if its error is not bounded by {@link #RELATIVE_ERROR}.
+   */
+  static double approximate(long n, double theta) {
+    if (!(theta > 0) || n <= HEAD_TERMS) {
+      // f''''''(x) keeps its sign only for positive theta, which the bound needs.
+      return Double.NaN;
+    }
+    double m = HEAD_TERMS + 1;
+    double head = sum(0, HEAD_TERMS, theta, 0);
+    double fm = Math.pow(m, -theta);
+    double fn = Math.pow(n, -theta);
+    double integral;
+    if (theta == 1) {
+      integral = Math.log(n / m);
+    } else {
+      // m^(1-theta) (e^((1-theta) ln(n/m)) - 1) / (1-theta), which does not cancel as theta nears 1.
+      double s = 1 - theta;
+      integral = Math.pow(m, s) * Math.expm1(s * Math.log(n / m)) / s;
+    }
+    // f^(j)(x) = (-1)^j theta (theta+1) ... (theta+j-1) x^(-theta-j).
+    double r1 = theta;
+    double r3 = r1 * (theta + 1) * (theta + 2);
+    double r5 = r3 * (theta + 3) * (theta + 4);
+    double corrections = (-r1 * (fn / n - fm / m)) / 12
+        - (-r3 * (fn / Math.pow(n, 3) - fm / Math.pow(m, 3))) / 720
+        + (-r5 * (fn / Math.pow(n, 5) - fm / Math.pow(m, 5))) / 30240;
+    double result = head + integral + (fm + fn) / 2 + corrections;
+    double bound = REMAINDER_FACTOR * r5 * fm / Math.pow(m, 5);
+    if (Double.isNaN(result) || Double.isInfinite(result) || !(bound <= RELATIVE_ERROR * result)) {
+      return Double.NaN;
+    }
+    return result;
+  }
+
+  private static double cachedExact(long n, double theta) {
+    String key = n + "," + theta;
+    synchronized (Zeta.class) {
+      String cached = getCache().getProperty(key);
+      if (cached != null) {
+        try {
+          return Double.parseDouble(cached);
+        } catch (NumberFormatException e) {
+          // computed again below
+        }
+      }
+    }
+    double value = exact(0, n, theta);
+    synchronized (Zeta.class) {
+      getCache().setProperty(key, Double.toString(value));
+      if (cacheFile != null) {
+        try {
+          File temporary = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getAbsoluteFile().getParentFile());
+          try (OutputStream out = new FileOutputStream(temporary)) {
+            cache.store(out, "zeta(n, theta) of ZipfianGenerator, keyed by n,theta");
+          }
+          Files.move(temporary.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+          System.err.println("Could not write the zeta cache " + cacheFile + ": " + e.getMessage());
+        }
+      }
+    }
+    return value;
+  }
+
+  private static Properties getCache() {
+    if (cache == null) {
+      cache = new Properties();
+      if (cacheFile != null && cacheFile.exists()) {
+        try (InputStream in = new FileInputStream(cacheFile)) {
+          cache.load(in);
+        } catch (IOException e) {
+          System.err.println("Could not read the zeta cache " + cacheFile + ": " + e.getMessage());
+        }
+      }
+    }
+    return cache;
+  }
+}
@@ -30,12 +30,12 @@ import com.yahoo.ycsb.Utils;
  * popular, and so on (or min is the most popular, min+1 the next most popular, etc.) If you don't want this clustering,
  * and instead want the popular items scattered throughout the item space, then use ScrambledZipfianGenerator instead.
  *
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a
- * minute for 100 million objects). This is because certain mathematical values need to be computed to properly
- * generate a zipfian skew, and one of those values (zeta) is a sum sequence from 1 to n, where n is the itemcount.
- * Note that if you increase the number of items in the set, we can compute a new zeta incrementally, so it should be
- * fast unless you have added millions of items. However, if you decrease the number of items, we recompute zeta from
- * scratch, so this can take a long time.
+ * Certain mathematical values need to be computed to properly generate a zipfian skew, and one of those values
+ * (zeta) is a sum sequence from 1 to n, where n is the itemcount. For more than a million items it is approximated
+ * by {@link Zeta} rather than added up, so initializing this generator is fast for any number of items; if exact sums
+ * were asked for, initializing it may take a long time (e.g. seconds for 10 billion objects on a few processors)
+ * unless the sum is in the zeta cache. If you increase the number of items in the set, we compute a new zeta
+ * incrementally. However, if you decrease the number of items, we recompute zeta from scratch.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -168,7 +168,7 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param theta The zipfian constant.
    */
   static double zetastatic(long n, double theta) {
-    return zetastatic(0, n, theta, 0);
+    return Zeta.zeta(n, theta);
   }
 
   /**
@@ -196,15 +196,7 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param initialsum The value of zeta we are computing incrementally from.
    */
   static double zetastatic(long st, long n, double theta, double initialsum) {
-    double sum = initialsum;
-    for (long i = st; i < n; i++) {
-
-      sum += 1 / (Math.pow(i + 1, theta));
-    }
-
-    //System.out.println("countforzeta="+countforzeta);
-
-    return sum;
+    return Zeta.zeta(st, n, theta, initialsum);
   }
 
   /****************************************************************************************/
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Reads and writes interval histogram logs in the format of HdrHistogram's HistogramLogWriter,
+ * so the logs work with the HdrHistogram tools. HdrHistogram's own reader and writer encode
+ * with javax.xml.bind, which newer JVMs no longer ship; these use {@link Base64} instead.
+ *
+ * A log written here also names the unit of its values in a "#[Unit: us]" comment.
+ */
+public final class HistogramLog {
+  private static final String LEGEND =
+      "\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\",\"Interval_Compressed_Histogram\"";
+
+  // The maximum of each interval is written in this fraction of the unit, as HdrHistogram does.
+  private static final double MAX_VALUE_RATIO = 1000000.0;
+
+  private HistogramLog() {
+    // Not instantiable.
+  }
+
+  /**
+   * Writes the intervals of one measurement.
+   */
+  public static final class Writer implements Closeable {
+    private final PrintStream out;
+    private final long baseTimeMs;
+    private ByteBuffer buffer;
+
+    /**
+     * Writes the header of the log.
+     *
+     * @param out The stream to write to.
+     * @param comment A comment describing the log.
+     * @param unit The unit of the recorded values.
+     * @param baseTimeMs The time the intervals are relative to.
+     */
+    public Writer(OutputStream out, String comment, LatencyUnit unit, long baseTimeMs) {
+      this.out = new PrintStream(out, false);
+      this.baseTimeMs = baseTimeMs;
+      this.out.println("#" + comment);
+      this.out.println("#[Unit: " + unit.getAbbreviation() + "]");
+      this.out.println("#[Histogram log format version 1.1]");
+      this.out.printf(Locale.US, "#[StartTime: %.3f (seconds since epoch), %s]%n",
+          baseTimeMs / 1000.0, new Date(baseTimeMs));
+      this.out.println(LEGEND);
+    }
+
+    /**
+     * Writes an interval, from its start to its end timestamp.
+     *
+     * @param interval The histogram of the interval.
+     */
+    public void write(Histogram interval) {
+      if (buffer == null || buffer.capacity() < interval.getNeededByteBufferCapacity()) {
+        buffer = ByteBuffer.allocate(interval.getNeededByteBufferCapacity());
+      }
+      buffer.clear();
+      int length = interval.encodeIntoCompressedByteBuffer(buffer, 9);
+      String encoded = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+      double start = (interval.getStartTimeStamp() - baseTimeMs) / 1000.0;
+      double end = (interval.getEndTimeStamp() - baseTimeMs) / 1000.0;
+      out.printf(Locale.US, "%.3f,%.3f,%.3f,%s%n", start, end - start,
+          interval.getMaxValueAsDouble() / MAX_VALUE_RATIO, encoded);
+      out.flush();
+    }
+
+    @Override
+    public void close() {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads the intervals of a log.
+   */
+  public static final class Reader implements Closeable {
+    private final BufferedReader in;
+    private double startTimeSec;
+    private LatencyUnit unit;
+
+    public Reader(InputStream in) {
+      this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return The unit of the values, or null if the log does not name it. Known once the header
+     *         has been read, i.e. after the first call to {@link #next()}.
+     */
+    public LatencyUnit getUnit() {
+      return unit;
+    }
+
+    /**
+     * Reads the next interval.
+     *
+     * @return The interval, with its start and end timestamps in milliseconds since the epoch,
+     *         or null at the end of the log.
+     * @throws IOException if the log could not be read or is malformed.
+     */
+    public Histogram next() throws IOException {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        if (line.startsWith("#[StartTime: ")) {
+          startTimeSec = Double.parseDouble(line.substring(13, line.indexOf(' ', 13)));
+        } else if (line.startsWith("#[Unit: ")) {
+          unit = LatencyUnit.fromAbbreviation(line.substring(8, line.indexOf(']')));
+        } else if (!line.startsWith("#") && !line.startsWith("\"") && !line.isEmpty()) {
+          return parse(line);
+        }
+      }
+      return null;
+    }
+
+    private Histogram parse(String line) throws IOException {
+      String[] fields = line.split(",");
+      if (fields.length != 4) {
+        throw new IOException("Malformed interval \"" + line + "\"");
+      }
+      try {
+        double start = Double.parseDouble(fields[0]);
+        double length = Double.parseDouble(fields[1]);
+        Histogram histogram = Histogram.decodeFromCompressedByteBuffer(
+            ByteBuffer.wrap(Base64.getDecoder().decode(fields[3])), 0);
+        // Relative timestamps start after the log's start time, absolute ones are past it.
+        double absoluteStart = start < startTimeSec ? startTimeSec + start : start;
+        histogram.setStartTimeStamp(Math.round(absoluteStart * 1000));
+        histogram.setEndTimeStamp(Math.round((absoluteStart + length) * 1000));
+        return histogram;
+      } catch (IllegalArgumentException | DataFormatException e) {
+        throw new IOException("Malformed interval \"" + line + "\"", e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
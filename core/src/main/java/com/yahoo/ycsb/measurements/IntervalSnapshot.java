@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+/**
+ * The latencies one measurement recorded during a status interval.
+ *
+ * Measurements kept as an HdrHistogram provide statistics; the other types only provide the
+ * one line summary they print on the status line.
+ */
+public final class IntervalSnapshot {
+  private final String name;
+  private final String summary;
+  private final boolean statistics;
+  private final long count;
+  private final double throughput;
+  private final LatencyUnit unit;
+  private final double min;
+  private final double mean;
+  private final double max;
+  private final double[] percentiles;
+  private final double[] percentileValues;
+
+  /**
+   * A snapshot without statistics.
+   *
+   * @param name The name of the measurement.
+   * @param summary The status line summary of the interval.
+   */
+  public IntervalSnapshot(String name, String summary) {
+    this.name = name;
+    this.summary = summary;
+    this.statistics = false;
+    this.count = 0;
+    this.throughput = 0;
+    this.unit = LatencyUnit.MICROSECONDS;
+    this.min = 0;
+    this.mean = 0;
+    this.max = 0;
+    this.percentiles = new double[0];
+    this.percentileValues = new double[0];
+  }
+
+  /**
+   * A snapshot with statistics.
+   *
+   * @param name The name of the measurement.
+   * @param summary The status line summary of the interval.
+   * @param count The number of latencies recorded.
+   * @param throughput The number of latencies recorded per second.
+   * @param unit The unit of the latencies.
+   * @param min The lowest latency.
+   * @param mean The mean latency.
+   * @param max The highest latency.
+   * @param percentiles The percentiles, e.g. 99.9.
+   * @param percentileValues The latency at each of the percentiles.
+   */
+  public IntervalSnapshot(String name, String summary, long count, double throughput, LatencyUnit unit,
+      double min, double mean, double max, double[] percentiles, double[] percentileValues) {
+    this.name = name;
+    this.summary = summary;
+    this.statistics = true;
+    this.count = count;
+    this.throughput = throughput;
+    this.unit = unit;
+    this.min = min;
+    this.mean = mean;
+    this.max = max;
+    this.percentiles = percentiles.clone();
+    this.percentileValues = percentileValues.clone();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return The interval as summarized on the status line.
+   */
+  public String getSummary() {
+    return summary;
+  }
+
+  /**
+   * @return True if the statistics below are available.
+   */
+  public boolean hasStatistics() {
+    return statistics;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return The number of latencies recorded per second of the interval.
+   */
+  public double getThroughput() {
+    return throughput;
+  }
+
+  /**
+   * @return The unit of the latencies.
+   */
+  public LatencyUnit getUnit() {
+    return unit;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * @return The percentiles, e.g. 99.9, in the order of {@link #getPercentileValues()}.
+   */
+  public double[] getPercentiles() {
+    return percentiles.clone();
+  }
+
+  /**
+   * @return The latency at each of the percentiles.
+   */
+  public double[] getPercentileValues() {
+    return percentileValues.clone();
+  }
+
+  /**
+   * @param percentile One of the percentiles, e.g. 99.9.
+   * @return The latency at the percentile, or NaN if it was not computed.
+   */
+  public double getPercentileValue(double percentile) {
+    for (int i = 0; i < percentiles.length; i++) {
+      if (percentiles[i] == percentile) {
+        return percentileValues[i];
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public String toString() {
+    return summary;
+  }
+}
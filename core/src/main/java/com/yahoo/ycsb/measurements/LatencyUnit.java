@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+/**
+ * The unit latencies are recorded or reported in.
+ */
+public enum LatencyUnit {
+  NANOSECONDS("ns", 1L),
+  MICROSECONDS("us", 1000L),
+  MILLISECONDS("ms", 1000L * 1000L);
+
+  private final String abbreviation;
+  private final long nanos;
+
+  LatencyUnit(String abbreviation, long nanos) {
+    this.abbreviation = abbreviation;
+    this.nanos = nanos;
+  }
+
+  /**
+   * @return The abbreviation used in property values and measurement names, e.g. "us".
+   */
+  public String getAbbreviation() {
+    return abbreviation;
+  }
+
+  /**
+   * @param latencyNanos A latency in nanoseconds.
+   * @return The latency in this unit, truncated.
+   */
+  public long fromNanos(long latencyNanos) {
+    return latencyNanos / nanos;
+  }
+
+  /**
+   * Converts a value in this unit to another unit without truncating.
+   *
+   * @param value The value in this unit.
+   * @param unit The unit to convert to.
+   * @return The value in the other unit.
+   */
+  public double convert(double value, LatencyUnit unit) {
+    return nanos == unit.nanos ? value : value * nanos / unit.nanos;
+  }
+
+  /**
+   * @param abbreviation "ns", "us" or "ms".
+   * @return The unit.
+   * @throws IllegalArgumentException if the abbreviation is not known.
+   */
+  public static LatencyUnit fromAbbreviation(String abbreviation) {
+    for (LatencyUnit unit : values()) {
+      if (unit.abbreviation.equals(abbreviation)) {
+        return unit;
+      }
+    }
+    throw new IllegalArgumentException("Unknown latency unit \"" + abbreviation + "\", expected ns, us or ms");
+  }
+}
@@ -20,9 +20,18 @@ package com.yahoo.ycsb.measurements;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+import org.HdrHistogram.Histogram;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -49,6 +58,20 @@ public class Measurements {
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /**
+   * Whether each thread records into its own shard of every measurement, merged when the
+   * measurements are summarized or exported. This avoids contention between threads on
+   * the hot path at the cost of memory per thread and measurement. The hdrhistogram and
+   * histogram types are sharded; other types record directly.
+   */
+  public static final String MEASUREMENT_SHARDS_PROPERTY = "measurement.shards";
+  public static final String MEASUREMENT_SHARDS_PROPERTY_DEFAULT = "false";
+
+  /**
+   * Prefix of the measurements recorded while warming up.
+   */
+  public static final String WARMUP_PREFIX = "WARMUP-";
+
   private static Measurements singleton = null;
   private static Properties measurementproperties = null;
 
@@ -70,7 +93,11 @@ public class Measurements {
   private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
   private final MeasurementType measurementType;
   private final int measurementInterval;
+  private final boolean sharded;
   private final Properties props;
+  // The properties of measurements of plain values, which record them in the unit they report.
+  private final Properties valueProps;
+  private volatile boolean warmup;
 
   /**
    * Create a new object with the specified properties.
@@ -119,26 +146,37 @@ public class Measurements {
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_INTERVAL + "=" + mIntervalString);
     }
+
+    sharded = Boolean.parseBoolean(this.props.getProperty(MEASUREMENT_SHARDS_PROPERTY,
+        MEASUREMENT_SHARDS_PROPERTY_DEFAULT));
+
+    valueProps = new Properties(props);
+    valueProps.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, props.getProperty(
+        OneMeasurementHdrHistogram.REPORT_UNIT_PROPERTY, OneMeasurementHdrHistogram.REPORT_UNIT_PROPERTY_DEFAULT));
   }
 
   private OneMeasurement constructOneMeasurement(String name) {
+    return constructOneMeasurement(name, props);
+  }
+
+  private OneMeasurement constructOneMeasurement(String name, Properties measurementProps) {
     switch (measurementType) {
     case HISTOGRAM:
-      return new OneMeasurementHistogram(name, props);
+      return new OneMeasurementHistogram(name, measurementProps);
     case HDRHISTOGRAM:
-      return new OneMeasurementHdrHistogram(name, props);
+      return new OneMeasurementHdrHistogram(name, measurementProps);
     case HDRHISTOGRAM_AND_HISTOGRAM:
       return new TwoInOneMeasurement(name,
-          new OneMeasurementHdrHistogram("Hdr" + name, props),
-          new OneMeasurementHistogram("Bucket" + name, props));
+          new OneMeasurementHdrHistogram("Hdr" + name, measurementProps),
+          new OneMeasurementHistogram("Bucket" + name, measurementProps));
     case HDRHISTOGRAM_AND_RAW:
       return new TwoInOneMeasurement(name,
-          new OneMeasurementHdrHistogram("Hdr" + name, props),
-          new OneMeasurementRaw("Raw" + name, props));
+          new OneMeasurementHdrHistogram("Hdr" + name, measurementProps),
+          new OneMeasurementRaw("Raw" + name, measurementProps));
     case TIMESERIES:
-      return new OneMeasurementTimeSeries(name, props);
+      return new OneMeasurementTimeSeries(name, measurementProps);
     case RAW:
-      return new OneMeasurementRaw(name, props);
+      return new OneMeasurementRaw(name, measurementProps);
     default:
       throw new AssertionError("Impossible to be here. Dead code reached. Bugs?");
     }
@@ -162,6 +200,152 @@ public class Measurements {
     }
   };
 
+  /**
+   * A thread's shards, indexed by operation id.
+   */
+  private static final class ShardTable {
+    private OneMeasurement.Shard[] op = new OneMeasurement.Shard[0];
+    private OneMeasurement.Shard[] intended = new OneMeasurement.Shard[0];
+  }
+
+  private final ThreadLocal<ShardTable> tlShards = new ThreadLocal<ShardTable>() {
+    protected ShardTable initialValue() {
+      return new ShardTable();
+    }
+  };
+
+  // Interned operation names. An operation id indexes the arrays below, which are replaced
+  // rather than changed in place when an operation is registered, under registryLock.
+  private final Object registryLock = new Object();
+  private final ConcurrentHashMap<String, Integer> operationIds = new ConcurrentHashMap<>();
+  private volatile String[] operationNames = new String[0];
+  // The id of the WARMUP- counterpart of each operation.
+  private volatile int[] warmupIds = new int[0];
+  // Filled in when an operation is first measured, so that unused operations are not reported.
+  private volatile AtomicReferenceArray<OneMeasurement> opMeasurements = new AtomicReferenceArray<>(0);
+  private volatile AtomicReferenceArray<OneMeasurement> opIntendedMeasurements = new AtomicReferenceArray<>(0);
+
+  /**
+   * Interns an operation name. Callers on the hot path look the id up once, when they are
+   * initialized, and then measure through the id based methods, which neither hash nor allocate.
+   *
+   * @param operation The name of the operation, e.g. "READ".
+   * @return The id of the operation.
+   */
+  public int getOperationId(String operation) {
+    Integer id = operationIds.get(operation);
+    if (id != null) {
+      return id;
+    }
+    synchronized (registryLock) {
+      return register(operation);
+    }
+  }
+
+  private int register(String operation) {
+    Integer existing = operationIds.get(operation);
+    if (existing != null) {
+      return existing;
+    }
+    int warmupId = -1;
+    if (!operation.startsWith(WARMUP_PREFIX)) {
+      warmupId = register(WARMUP_PREFIX + operation);
+    }
+    final int id = operationNames.length;
+    String[] names = Arrays.copyOf(operationNames, id + 1);
+    names[id] = operation;
+    int[] warmups = Arrays.copyOf(warmupIds, id + 1);
+    warmups[id] = warmupId < 0 ? id : warmupId;
+    warmupIds = warmups;
+    operationNames = names;
+    opMeasurements = grow(opMeasurements, id + 1);
+    opIntendedMeasurements = grow(opIntendedMeasurements, id + 1);
+    operationIds.put(operation, id);
+    return id;
+  }
+
+  private static AtomicReferenceArray<OneMeasurement> grow(AtomicReferenceArray<OneMeasurement> array, int length) {
+    AtomicReferenceArray<OneMeasurement> grown = new AtomicReferenceArray<>(length);
+    for (int i = 0; i < array.length(); i++) {
+      grown.set(i, array.get(i));
+    }
+    return grown;
+  }
+
+  private OneMeasurement getOpMeasurement(int id) {
+    OneMeasurement m = opMeasurements.get(id);
+    if (m == null) {
+      synchronized (registryLock) {
+        m = opMeasurements.get(id);
+        if (m == null) {
+          m = getOpMeasurement(operationNames[id]);
+          opMeasurements.set(id, m);
+        }
+      }
+    }
+    return m;
+  }
+
+  private OneMeasurement getOpIntendedMeasurement(int id) {
+    OneMeasurement m = opIntendedMeasurements.get(id);
+    if (m == null) {
+      synchronized (registryLock) {
+        m = opIntendedMeasurements.get(id);
+        if (m == null) {
+          m = getOpIntendedMeasurement(operationNames[id]);
+          opIntendedMeasurements.set(id, m);
+        }
+      }
+    }
+    return m;
+  }
+
+  private OneMeasurement.Shard getOpShard(int id) {
+    ShardTable table = tlShards.get();
+    if (id >= table.op.length) {
+      table.op = Arrays.copyOf(table.op, operationNames.length);
+    }
+    OneMeasurement.Shard shard = table.op[id];
+    if (shard == null) {
+      shard = getOpMeasurement(id).newShard();
+      table.op[id] = shard;
+    }
+    return shard;
+  }
+
+  private OneMeasurement.Shard getOpIntendedShard(int id) {
+    ShardTable table = tlShards.get();
+    if (id >= table.intended.length) {
+      table.intended = Arrays.copyOf(table.intended, operationNames.length);
+    }
+    OneMeasurement.Shard shard = table.intended[id];
+    if (shard == null) {
+      shard = getOpIntendedMeasurement(id).newShard();
+      table.intended[id] = shard;
+    }
+    return shard;
+  }
+
+  /**
+   * Retires the shards the calling thread recorded into, folding them into their measurements.
+   * A thread that recorded with "measurement.shards" set calls this once it is done, before it
+   * exits.
+   */
+  public void retireShards() {
+    ShardTable table = tlShards.get();
+    tlShards.remove();
+    for (int id = 0; id < table.op.length; id++) {
+      if (table.op[id] != null) {
+        getOpMeasurement(id).retireShard(table.op[id]);
+      }
+    }
+    for (int id = 0; id < table.intended.length; id++) {
+      if (table.intended[id] != null) {
+        getOpIntendedMeasurement(id).retireShard(table.intended[id]);
+      }
+    }
+  }
+
   public void setIntendedStartTimeNs(long time) {
     if (measurementInterval == 0) {
       return;
@@ -176,17 +360,92 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * While warming up, measurements and status codes are recorded under {@link #WARMUP_PREFIX}
+   * and kept apart from the measured part of the run.
+   *
+   * @param warmup True at the start of the warmup, false when it ends.
+   */
+  public void setWarmup(boolean warmup) {
+    this.warmup = warmup;
+  }
+
+  /**
+   * @return True while warming up.
+   */
+  public boolean isWarmup() {
+    return warmup;
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
    */
   public void measure(String operation, int latency) {
+    measure(getOperationId(operation), latency);
+  }
+
+  /**
+   * Report a single value of a single metric.
+   *
+   * @param operationId The id of the operation, from {@link #getOperationId(String)}.
+   * @param latency The measured value in microseconds.
+   */
+  public void measure(int operationId, int latency) {
+    measureNanos(operationId, latency * 1000L);
+  }
+
+  /**
+   * Report a value that is not a latency, such as a thread count or a memory size. Unlike
+   * {@link #measure(String, int)} it is recorded as it is, whatever the latency unit.
+   */
+  public void measureValue(String operation, int value) {
     if (measurementInterval == 1) {
       return;
     }
+    int operationId = getOperationId(operation);
+    if (warmup) {
+      operationId = warmupIds[operationId];
+    }
+    String name = operationNames[operationId];
+    OneMeasurement m = opToMesurementMap.get(name);
+    if (m == null) {
+      m = constructOneMeasurement(name, valueProps);
+      OneMeasurement oldM = opToMesurementMap.putIfAbsent(name, m);
+      if (oldM != null) {
+        m = oldM;
+      }
+    }
+    m.recordValue(value);
+  }
+
+  /**
+   * Report a latency in nanoseconds. Measurement types that keep microseconds truncate it.
+   */
+  public void measureNanos(String operation, long latencyNanos) {
+    measureNanos(getOperationId(operation), latencyNanos);
+  }
+
+  /**
+   * Report a latency in nanoseconds. Measurement types that keep microseconds truncate it.
+   *
+   * @param operationId The id of the operation, from {@link #getOperationId(String)}.
+   * @param latencyNanos The measured latency in nanoseconds.
+   */
+  public void measureNanos(int operationId, long latencyNanos) {
+    if (measurementInterval == 1) {
+      return;
+    }
+    if (warmup) {
+      operationId = warmupIds[operationId];
+    }
     try {
-      OneMeasurement m = getOpMeasurement(operation);
-      m.measure(latency);
+      if (sharded) {
+        getOpShard(operationId).measureNanos(latencyNanos);
+        return;
+      }
+      OneMeasurement m = getOpMeasurement(operationId);
+      m.measureNanos(latencyNanos);
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
       System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
@@ -200,12 +459,46 @@ public class Measurements {
    * value.
    */
   public void measureIntended(String operation, int latency) {
+    measureIntended(getOperationId(operation), latency);
+  }
+
+  /**
+   * Report a single value of a single metric, measured from the intended start of the operation.
+   *
+   * @param operationId The id of the operation, from {@link #getOperationId(String)}.
+   * @param latency The measured value in microseconds.
+   */
+  public void measureIntended(int operationId, int latency) {
+    measureIntendedNanos(operationId, latency * 1000L);
+  }
+
+  /**
+   * Report a latency in nanoseconds, measured from the intended start of the operation.
+   */
+  public void measureIntendedNanos(String operation, long latencyNanos) {
+    measureIntendedNanos(getOperationId(operation), latencyNanos);
+  }
+
+  /**
+   * Report a latency in nanoseconds, measured from the intended start of the operation.
+   *
+   * @param operationId The id of the operation, from {@link #getOperationId(String)}.
+   * @param latencyNanos The measured latency in nanoseconds.
+   */
+  public void measureIntendedNanos(int operationId, long latencyNanos) {
     if (measurementInterval == 0) {
       return;
     }
+    if (warmup) {
+      operationId = warmupIds[operationId];
+    }
     try {
-      OneMeasurement m = getOpIntendedMeasurement(operation);
-      m.measure(latency);
+      if (sharded) {
+        getOpIntendedShard(operationId).measureNanos(latencyNanos);
+        return;
+      }
+      OneMeasurement m = getOpIntendedMeasurement(operationId);
+      m.measureNanos(latencyNanos);
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
       System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
@@ -243,9 +536,29 @@ public class Measurements {
    * Report a return code for a single DB operation.
    */
   public void reportStatus(final String operation, final Status status) {
+    reportStatus(getOperationId(operation), status);
+  }
+
+  /**
+   * Report a return code for a single DB operation.
+   *
+   * @param operationId The id of the operation, from {@link #getOperationId(String)}.
+   * @param status The return code.
+   */
+  public void reportStatus(int operationId, final Status status) {
+    if (warmup) {
+      operationId = warmupIds[operationId];
+    }
+    if (sharded) {
+      OneMeasurement.Shard shard = measurementInterval == 1 ?
+          getOpIntendedShard(operationId) :
+          getOpShard(operationId);
+      shard.reportStatus(status);
+      return;
+    }
     OneMeasurement m = measurementInterval == 1 ?
-        getOpIntendedMeasurement(operation) :
-        getOpMeasurement(operation);
+        getOpIntendedMeasurement(operationId) :
+        getOpMeasurement(operationId);
     m.reportStatus(status);
   }
 
@@ -264,6 +577,91 @@ public class Measurements {
     }
   }
 
+  /**
+   * Releases the files, threads and timers of all measurements without exporting them.
+   *
+   * @throws IOException Thrown if a file could not be closed.
+   */
+  public void discard() throws IOException {
+    for (OneMeasurement measurement : opToMesurementMap.values()) {
+      measurement.discard();
+    }
+    for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
+      measurement.discard();
+    }
+  }
+
+  /**
+   * Take the latencies recorded since the previous interval of every measurement kept as an
+   * HdrHistogram. Other measurement types are left out. The values are in the unit given by
+   * {@link OneMeasurementHdrHistogram#UNIT_PROPERTY}.
+   *
+   * @return The interval histograms, keyed by measurement name.
+   */
+  public synchronized Map<String, Histogram> getIntervalHistograms() {
+    Map<String, Histogram> ret = new HashMap<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      if (m instanceof OneMeasurementHdrHistogram) {
+        ret.put(m.getName(), ((OneMeasurementHdrHistogram) m).getIntervalHistogram());
+      }
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      if (m instanceof OneMeasurementHdrHistogram) {
+        ret.put(m.getName(), ((OneMeasurementHdrHistogram) m).getIntervalHistogram());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Ends the current status interval of every measurement, like {@link #getSummary()}, and
+   * returns what each recorded during it. Measurements kept as an HdrHistogram include their
+   * latency statistics in the report unit.
+   *
+   * @param percentiles The latency percentiles to compute, e.g. 99.9.
+   * @return The snapshots, measurements measured from the intended start last.
+   */
+  public synchronized List<IntervalSnapshot> getIntervalSnapshots(double[] percentiles) {
+    List<IntervalSnapshot> ret = new ArrayList<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      ret.add(m.getIntervalSnapshot(percentiles));
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      ret.add(m.getIntervalSnapshot(percentiles));
+    }
+    return ret;
+  }
+
+  /**
+   * @return How often each return code was reported since the start, by operation and then by
+   *         the name of the code. With "measurement.interval=intended" the codes are counted
+   *         by the intended measurements.
+   */
+  public synchronized Map<String, Map<String, Long>> getStatusCounts() {
+    Map<String, Map<String, Long>> ret = new LinkedHashMap<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      ret.put(m.getName(), m.getStatusCounts());
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      Map<String, Long> counts = m.getStatusCounts();
+      if (counts.isEmpty()) {
+        continue;
+      }
+      Map<String, Long> merged = ret.get(m.getName());
+      if (merged == null) {
+        ret.put(m.getName(), counts);
+      } else {
+        merged = new LinkedHashMap<>(merged);
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+          Long previous = merged.get(count.getKey());
+          merged.put(count.getKey(), previous == null ? count.getValue() : previous + count.getValue());
+        }
+        ret.put(m.getName(), merged);
+      }
+    }
+    return ret;
+  }
+
   /**
    * Return a one line summary of the measurements.
    */
@@ -21,17 +21,76 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A single measured metric (such as READ LATENCY).
  */
 public abstract class OneMeasurement {
 
+  /**
+   * The part of a measurement recorded by a single thread. Recording into a shard does not
+   * contend with other threads; the measurement merges its shards when it is summarized or
+   * exported.
+   */
+  public abstract static class Shard {
+    // Return codes seen by this shard and how often, in the order they were first seen.
+    private Status[] statuses = new Status[0];
+    private long[] counts = new long[0];
+
+    public abstract void measure(int latency);
+
+    /**
+     * Records a latency in nanoseconds, see {@link OneMeasurement#measureNanos(long)}.
+     */
+    public void measureNanos(long latencyNanos) {
+      measure(toMicros(latencyNanos));
+    }
+
+    public synchronized void reportStatus(Status status) {
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i] == status || statuses[i].equals(status)) {
+          counts[i]++;
+          return;
+        }
+      }
+      statuses = Arrays.copyOf(statuses, statuses.length + 1);
+      counts = Arrays.copyOf(counts, counts.length + 1);
+      statuses[statuses.length - 1] = status;
+      counts[counts.length - 1] = 1;
+    }
+
+    private synchronized void mergeStatusCountsInto(OneMeasurement target) {
+      for (int i = 0; i < statuses.length; i++) {
+        if (counts[i] != 0) {
+          target.counter(statuses[i]).addAndGet(counts[i]);
+          counts[i] = 0;
+        }
+      }
+    }
+  }
+
+  /**
+   * The number of times a return code was reported.
+   */
+  private static final class StatusCount {
+    private final Status status;
+    private final AtomicLong count = new AtomicLong();
+
+    private StatusCount(Status status) {
+      this.status = status;
+    }
+  }
+
   private final String name;
-  private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
+  // Replaced, never changed in place, when a new return code is seen.
+  private volatile StatusCount[] returncodes;
+  private final List<Shard> shards = new CopyOnWriteArrayList<>();
 
   public String getName() {
     return name;
@@ -42,28 +101,145 @@ public abstract class OneMeasurement {
    */
   public OneMeasurement(String name) {
     this.name = name;
-    this.returncodes = new ConcurrentHashMap<>();
+    this.returncodes = new StatusCount[0];
   }
 
   public abstract void measure(int latency);
 
+  /**
+   * Records a latency in nanoseconds. Measurement types that keep microseconds truncate it;
+   * the others override this to keep the full resolution.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void measureNanos(long latencyNanos) {
+    measure(toMicros(latencyNanos));
+  }
+
+  /**
+   * Records a value that is not a latency, such as a thread count, as it is. Measurement types
+   * that convert latencies to a unit override this to leave the value alone.
+   *
+   * @param value The value.
+   */
+  public void recordValue(int value) {
+    measure(value);
+  }
+
+  static int toMicros(long latencyNanos) {
+    long micros = latencyNanos / 1000;
+    return micros > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) micros;
+  }
+
   public abstract String getSummary();
 
   /**
-   * No need for synchronization, using CHM to deal with that.
+   * Ends the current status interval, as {@link #getSummary()} does, and returns what was
+   * recorded during it. Types that keep no latency statistics per interval only return the
+   * summary.
+   *
+   * @param percentiles The latency percentiles to compute, e.g. 99.9.
+   * @return The snapshot of the interval.
+   */
+  public IntervalSnapshot getIntervalSnapshot(double[] percentiles) {
+    return new IntervalSnapshot(getName(), getSummary());
+  }
+
+  /**
+   * Creates a shard for the calling thread to record into.
+   *
+   * @return The shard, which stays part of this measurement until it is retired.
+   */
+  public final Shard newShard() {
+    Shard shard = createShard();
+    shards.add(shard);
+    return shard;
+  }
+
+  /**
+   * Folds what a shard recorded into this measurement and lets go of it, once the thread that
+   * recorded into it is done, so threads that come and go do not pile up shards.
+   *
+   * @param shard A shard of this measurement that is no longer recorded into.
+   */
+  public final void retireShard(Shard shard) {
+    shard.mergeStatusCountsInto(this);
+    retire(shard);
+    shards.remove(shard);
+  }
+
+  /**
+   * Measurement types with shards of their own override this to keep what a retiring shard
+   * recorded.
+   */
+  protected void retire(Shard shard) {
+  }
+
+  /**
+   * Measurement types that cannot be merged keep this default, a shard that records straight
+   * into the measurement.
+   */
+  protected Shard createShard() {
+    return new Shard() {
+      @Override
+      public void measure(int latency) {
+        OneMeasurement.this.measure(latency);
+      }
+
+      @Override
+      public void measureNanos(long latencyNanos) {
+        OneMeasurement.this.measureNanos(latencyNanos);
+      }
+
+      @Override
+      public void reportStatus(Status status) {
+        OneMeasurement.this.reportStatus(status);
+      }
+    };
+  }
+
+  /**
+   * @return The shards created so far.
+   */
+  protected final List<Shard> getShards() {
+    return shards;
+  }
+
+  /**
+   * Counts a return code. Lock free once the code has been seen; the few distinct codes are
+   * searched linearly, so nothing is hashed or allocated.
    */
   public void reportStatus(Status status) {
-    AtomicInteger counter = returncodes.get(status);
+    counter(status).incrementAndGet();
+  }
+
+  /**
+   * Counts a return code reported several times elsewhere, e.g. by another client process.
+   */
+  public void reportStatus(Status status, long count) {
+    counter(status).addAndGet(count);
+  }
 
-    if (counter == null) {
-      counter = new AtomicInteger();
-      AtomicInteger other = returncodes.putIfAbsent(status, counter);
-      if (other != null) {
-        counter = other;
+  private AtomicLong counter(Status status) {
+    for (StatusCount c : returncodes) {
+      if (c.status == status || c.status.equals(status)) {
+        return c.count;
       }
     }
+    return addCounter(status);
+  }
 
-    counter.incrementAndGet();
+  private synchronized AtomicLong addCounter(Status status) {
+    StatusCount[] current = returncodes;
+    for (StatusCount c : current) {
+      if (c.status.equals(status)) {
+        return c.count;
+      }
+    }
+    StatusCount[] grown = Arrays.copyOf(current, current.length + 1);
+    grown[current.length] = new StatusCount(status);
+    returncodes = grown;
+    return grown[current.length].count;
   }
 
   /**
@@ -74,9 +250,32 @@ public abstract class OneMeasurement {
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
+  /**
+   * Releases the files, threads and timers of a measurement that is not going to be exported.
+   *
+   * @throws IOException Thrown if a file could not be closed.
+   */
+  public void discard() throws IOException {
+  }
+
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
-      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
+    for (Map.Entry<String, Long> count : getStatusCounts().entrySet()) {
+      exporter.write(getName(), "Return=" + count.getKey(), count.getValue());
+    }
+  }
+
+  /**
+   * @return How often each return code was reported since the start, by the name of the code,
+   *         in the order the codes were first seen.
+   */
+  public Map<String, Long> getStatusCounts() {
+    for (Shard shard : shards) {
+      shard.mergeStatusCountsInto(this);
+    }
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (StatusCount c : returncodes) {
+      counts.put(c.status.getName(), c.count.get());
     }
+    return counts;
   }
 }
@@ -17,20 +17,24 @@
 
 package com.yahoo.ycsb.measurements;
 
+import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
-import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Take measurements and maintain a HdrHistogram of a given metric, such as READ LATENCY.
@@ -38,13 +42,45 @@ import java.util.Properties;
  */
 public class OneMeasurementHdrHistogram extends OneMeasurement {
 
+  /**
+   * Write the interval histograms to a log per measurement, named after it, e.g. READ.hdr.
+   */
+  public static final String FILE_OUTPUT_PROPERTY = "hdrhistogram.fileoutput";
+  public static final String FILE_OUTPUT_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The prefix of the log file names, e.g. a directory ending with a separator.
+   */
+  public static final String OUTPUT_PATH_PROPERTY = "hdrhistogram.output.path";
+  public static final String OUTPUT_PATH_PROPERTY_DEFAULT = "";
+
+  /**
+   * The length of the logged intervals in milliseconds.
+   */
+  public static final String FILE_OUTPUT_INTERVAL_PROPERTY = "hdrhistogram.fileoutput.interval";
+  public static final String FILE_OUTPUT_INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  // Writes the logs of all measurements in the background.
+  private static ScheduledExecutorService logWriter;
+
   // we need one log per measurement histogram
-  private final PrintStream log;
-  private final HistogramLogWriter histogramLogWriter;
+  private final HistogramLog.Writer histogramLogWriter;
+  private final ScheduledFuture<?> logging;
+
+  // The intervals taken since the last logged one, or null when not logging.
+  private final Histogram logPending;
+  private long logStart;
 
   private final Recorder histogram;
   private Histogram totalHistogram;
 
+  // Drained since the status interval was last taken, and when it was.
+  private final Histogram statusPending;
+  private long statusStart;
+
+  // Recorded elsewhere and added since the last interval, or null.
+  private Histogram received;
+
   /**
    * The name of the property for deciding what percentile values to output.
    */
@@ -55,31 +91,129 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    */
   public static final String PERCENTILES_PROPERTY_DEFAULT = "95,99";
 
+  /**
+   * The unit latencies are recorded in: "ns", "us" or "ms". Recording nanoseconds keeps
+   * sub-microsecond resolution for stores that answer in a few microseconds.
+   */
+  public static final String UNIT_PROPERTY = "hdrhistogram.unit";
+
+  /**
+   * The default value for the hdrhistogram.unit property.
+   */
+  public static final String UNIT_PROPERTY_DEFAULT = "us";
+
+  /**
+   * The number of significant decimal digits kept for each recorded value, 0 to 5. The
+   * histograms grow to cover any recorded value, so recording nanoseconds only needs more
+   * buckets for the same relative precision, not more digits.
+   */
+  public static final String SIGNIFICANT_DIGITS_PROPERTY = "hdrhistogram.significantdigits";
+
+  /**
+   * The default value for the hdrhistogram.significantdigits property.
+   */
+  public static final String SIGNIFICANT_DIGITS_PROPERTY_DEFAULT = "3";
+
+  /**
+   * The unit latencies are exported and summarized in: "ns", "us" or "ms". Values that are
+   * not whole numbers in this unit are written as decimals.
+   */
+  public static final String REPORT_UNIT_PROPERTY = "hdrhistogram.reportunit";
+
+  /**
+   * The default value for the hdrhistogram.reportunit property.
+   */
+  public static final String REPORT_UNIT_PROPERTY_DEFAULT = "us";
+
   private final List<Double> percentiles;
+  private final LatencyUnit unit;
+  private final LatencyUnit reportUnit;
+  private final int significantDigits;
 
   public OneMeasurementHdrHistogram(String name, Properties props) {
     super(name);
-    percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
-    boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
+    unit = getUnit(props);
+    reportUnit = LatencyUnit.fromAbbreviation(props.getProperty(REPORT_UNIT_PROPERTY, REPORT_UNIT_PROPERTY_DEFAULT));
+    significantDigits = getSignificantDigits(props);
+    percentiles = getPercentileValues(PERCENTILES_PROPERTY,
+        props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT), PERCENTILES_PROPERTY_DEFAULT);
+    histogram = new Recorder(significantDigits);
+    totalHistogram = new Histogram(significantDigits);
+    statusPending = new Histogram(significantDigits);
+    statusStart = System.currentTimeMillis();
+    boolean shouldLog = Boolean.parseBoolean(props.getProperty(FILE_OUTPUT_PROPERTY, FILE_OUTPUT_PROPERTY_DEFAULT));
     if (!shouldLog) {
-      log = null;
       histogramLogWriter = null;
+      logging = null;
+      logPending = null;
     } else {
+      final String hdrOutputFilename = props.getProperty(OUTPUT_PATH_PROPERTY, OUTPUT_PATH_PROPERTY_DEFAULT)
+          + name + ".hdr";
+      logStart = System.currentTimeMillis();
       try {
-        final String hdrOutputFilename = props.getProperty("hdrhistogram.output.path", "") + name + ".hdr";
-        log = new PrintStream(new FileOutputStream(hdrOutputFilename), false);
+        histogramLogWriter = new HistogramLog.Writer(new FileOutputStream(hdrOutputFilename),
+            "[Logging for: " + name + "]", unit, logStart);
       } catch (FileNotFoundException e) {
         throw new RuntimeException("Failed to open hdr histogram output file", e);
       }
-      histogramLogWriter = new HistogramLogWriter(log);
-      histogramLogWriter.outputComment("[Logging for: " + name + "]");
-      histogramLogWriter.outputLogFormatVersion();
-      long now = System.currentTimeMillis();
-      histogramLogWriter.outputStartTime(now);
-      histogramLogWriter.setBaseTime(now);
-      histogramLogWriter.outputLegend();
+      logPending = new Histogram(significantDigits);
+      long interval = Long.parseLong(props.getProperty(FILE_OUTPUT_INTERVAL_PROPERTY,
+          FILE_OUTPUT_INTERVAL_PROPERTY_DEFAULT));
+      logging = getLogWriter().scheduleAtFixedRate(this::logInterval, interval, interval, TimeUnit.MILLISECONDS);
     }
-    histogram = new Recorder(3);
+  }
+
+  private static synchronized ScheduledExecutorService getLogWriter() {
+    if (logWriter == null) {
+      logWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+          Thread t = new Thread(r, "hdrhistogram-log");
+          t.setDaemon(true);
+          return t;
+        });
+    }
+    return logWriter;
+  }
+
+  /**
+   * Writes what was recorded since the last logged interval.
+   */
+  synchronized void logInterval() {
+    drain();
+    long now = System.currentTimeMillis();
+    logPending.setStartTimeStamp(logStart);
+    logPending.setEndTimeStamp(now);
+    histogramLogWriter.write(logPending);
+    logPending.reset();
+    logStart = now;
+  }
+
+  /**
+   * @param props The measurement properties.
+   * @return The number of significant decimal digits the histograms keep.
+   * @throws IllegalArgumentException if the property is out of range.
+   */
+  public static int getSignificantDigits(Properties props) {
+    int significantDigits = Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS_PROPERTY,
+        SIGNIFICANT_DIGITS_PROPERTY_DEFAULT));
+    if (significantDigits < 0 || significantDigits > 5) {
+      throw new IllegalArgumentException(SIGNIFICANT_DIGITS_PROPERTY + " must be between 0 and 5");
+    }
+    return significantDigits;
+  }
+
+  /**
+   * @param props The measurement properties.
+   * @return The unit the histograms record latencies in.
+   */
+  public static LatencyUnit getUnit(Properties props) {
+    return LatencyUnit.fromAbbreviation(props.getProperty(UNIT_PROPERTY, UNIT_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * @return The unit the histograms of this measurement record latencies in.
+   */
+  public LatencyUnit getUnit() {
+    return unit;
   }
 
   /**
@@ -87,7 +221,63 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * Using {@link Recorder} to support concurrent updates to histogram.
    */
   public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+    histogram.recordValue(unit.fromNanos(latencyInMicros * 1000L));
+  }
+
+  @Override
+  public void measureNanos(long latencyNanos) {
+    histogram.recordValue(unit.fromNanos(latencyNanos));
+  }
+
+  @Override
+  public void recordValue(int value) {
+    histogram.recordValue(value);
+  }
+
+  /**
+   * A thread's own recorder, free of the write contention on a shared {@link Recorder}.
+   */
+  private static final class HdrShard extends Shard {
+    private final SingleWriterRecorder recorder;
+    private final LatencyUnit unit;
+
+    private HdrShard(LatencyUnit unit, int significantDigits) {
+      this.recorder = new SingleWriterRecorder(significantDigits);
+      this.unit = unit;
+    }
+
+    @Override
+    public void measure(int latencyInMicros) {
+      recorder.recordValue(unit.fromNanos(latencyInMicros * 1000L));
+    }
+
+    @Override
+    public void measureNanos(long latencyNanos) {
+      recorder.recordValue(unit.fromNanos(latencyNanos));
+    }
+  }
+
+  @Override
+  protected Shard createShard() {
+    return new HdrShard(unit, significantDigits);
+  }
+
+  @Override
+  protected synchronized void retire(Shard shard) {
+    if (received == null) {
+      received = new Histogram(significantDigits);
+    }
+    received.add(((HdrShard) shard).recorder.getIntervalHistogram());
+  }
+
+  @Override
+  public void discard() throws IOException {
+    if (histogramLogWriter != null) {
+      synchronized (this) {
+        logging.cancel(false);
+        histogramLogWriter.close();
+      }
+    }
   }
 
   /**
@@ -95,95 +285,185 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    */
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    // accumulate the last interval which was not caught by status thread
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
     if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
-      // we can close now
-      log.close();
+      synchronized (this) {
+        // log the last interval, and we can close now
+        logging.cancel(false);
+        logInterval();
+        histogramLogWriter.close();
+      }
+    } else {
+      // accumulate the last interval which was not caught by status thread
+      drain();
     }
+    final String suffix = "Latency(" + reportUnit.getAbbreviation() + ")";
     exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
-    exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
-    exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", totalHistogram.getMaxValue());
+    exporter.write(getName(), "Average" + suffix, unit.convert(totalHistogram.getMean(), reportUnit));
+    writeLatency(exporter, "Min" + suffix, totalHistogram.getMinValue());
+    writeLatency(exporter, "Max" + suffix, totalHistogram.getMaxValue());
 
     for (Double percentile : percentiles) {
-      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)",
+      writeLatency(exporter, ordinal(percentile) + "Percentile" + suffix,
           totalHistogram.getValueAtPercentile(percentile));
     }
 
     exportStatusCounts(exporter);
 
     // also export totalHistogram
+    DecimalFormat d = new DecimalFormat("#.######");
     for (HistogramIterationValue v : totalHistogram.recordedValues()) {
-      int value;
-      if (v.getValueIteratedTo() > (long)Integer.MAX_VALUE) {
-        value = Integer.MAX_VALUE;
+      String value;
+      if (unit != reportUnit) {
+        value = d.format(unit.convert(v.getValueIteratedTo(), reportUnit));
+      } else if (v.getValueIteratedTo() > (long)Integer.MAX_VALUE) {
+        value = Integer.toString(Integer.MAX_VALUE);
       } else {
-        value = (int)v.getValueIteratedTo();
+        value = Integer.toString((int)v.getValueIteratedTo());
       }
 
-      exporter.write(getName(), Integer.toString(value), (double)v.getCountAtValueIteratedTo());
+      exporter.write(getName(), value, (double)v.getCountAtValueIteratedTo());
+    }
+  }
+
+  /**
+   * Writes a recorded value in the report unit, as a whole number when no conversion is needed.
+   */
+  private void writeLatency(MeasurementsExporter exporter, String measurement, long value) throws IOException {
+    if (unit == reportUnit) {
+      exporter.write(getName(), measurement, value);
+    } else {
+      exporter.write(getName(), measurement, unit.convert(value, reportUnit));
     }
   }
 
   /**
    * This is called periodically from the StatusThread. There's a single
-   * StatusThread per Client process. We optionally serialize the interval to
-   * log on this opportunity.
+   * StatusThread per Client process. The log is written on its own schedule
+   * from the same recorded values, so neither takes latencies from the other.
    *
    * @see com.yahoo.ycsb.measurements.OneMeasurement#getSummary()
    */
   @Override
   public String getSummary() {
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
-    // we use the summary interval as the histogram file interval.
-    if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+    return summarize(takeStatusInterval());
+  }
+
+  /**
+   * Takes the interval like {@link #getSummary()}, with statistics in the report unit.
+   */
+  @Override
+  public IntervalSnapshot getIntervalSnapshot(double[] snapshotPercentiles) {
+    Histogram intervalHistogram = takeStatusInterval();
+    long count = intervalHistogram.getTotalCount();
+    long intervalMs = intervalHistogram.getEndTimeStamp() - intervalHistogram.getStartTimeStamp();
+    double[] values = new double[snapshotPercentiles.length];
+    for (int i = 0; i < snapshotPercentiles.length; i++) {
+      values[i] = count == 0 ? 0 : inReportUnit(intervalHistogram.getValueAtPercentile(snapshotPercentiles[i]));
     }
+    return new IntervalSnapshot(getName(), summarize(intervalHistogram), count,
+        intervalMs > 0 ? 1000.0 * count / intervalMs : 0, reportUnit,
+        count == 0 ? 0 : inReportUnit(intervalHistogram.getMinValue()),
+        count == 0 ? 0 : inReportUnit(intervalHistogram.getMean()),
+        count == 0 ? 0 : inReportUnit(intervalHistogram.getMaxValue()),
+        snapshotPercentiles, values);
+  }
+
+  /**
+   * Takes everything drained since the status interval was last taken.
+   */
+  private synchronized Histogram takeStatusInterval() {
+    drain();
+    long now = System.currentTimeMillis();
+    Histogram intervalHistogram = statusPending.copy();
+    intervalHistogram.setStartTimeStamp(statusStart);
+    intervalHistogram.setEndTimeStamp(now);
+    statusPending.reset();
+    statusStart = now;
+    return intervalHistogram;
+  }
 
+  private String summarize(Histogram intervalHistogram) {
     DecimalFormat d = new DecimalFormat("#.##");
     return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
-        + intervalHistogram.getMaxValue() + ", Min=" + intervalHistogram.getMinValue() + ", Avg="
-        + d.format(intervalHistogram.getMean()) + ", 90=" + d.format(intervalHistogram.getValueAtPercentile(90))
-        + ", 99=" + d.format(intervalHistogram.getValueAtPercentile(99)) + ", 99.9="
-        + d.format(intervalHistogram.getValueAtPercentile(99.9)) + ", 99.99="
-        + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
+        + d.format(inReportUnit(intervalHistogram.getMaxValue())) + ", Min="
+        + d.format(inReportUnit(intervalHistogram.getMinValue())) + ", Avg="
+        + d.format(inReportUnit(intervalHistogram.getMean())) + ", 90="
+        + d.format(inReportUnit(intervalHistogram.getValueAtPercentile(90))) + ", 99="
+        + d.format(inReportUnit(intervalHistogram.getValueAtPercentile(99))) + ", 99.9="
+        + d.format(inReportUnit(intervalHistogram.getValueAtPercentile(99.9))) + ", 99.99="
+        + d.format(inReportUnit(intervalHistogram.getValueAtPercentile(99.99))) + "]";
+  }
+
+  private double inReportUnit(double value) {
+    return unit.convert(value, reportUnit);
+  }
+
+  /**
+   * Returns the latencies recorded since the previous status interval was taken, either by this
+   * method or the status thread. They still go to the log and count towards the totals exported at
+   * the end of the run.
+   *
+   * @return A histogram of the latest interval that the caller may keep, in {@link #getUnit()}.
+   */
+  public Histogram getIntervalHistogram() {
+    return takeStatusInterval();
   }
 
-  private Histogram getIntervalHistogramAndAccumulate() {
+  /**
+   * Adds latencies recorded elsewhere, e.g. by another client process, to the current interval.
+   *
+   * @param latencies The latencies, in {@link #getUnit()}.
+   */
+  public synchronized void recordHistogram(Histogram latencies) {
+    if (received == null) {
+      received = new Histogram(latencies.getNumberOfSignificantValueDigits());
+    }
+    received.add(latencies);
+  }
+
+  /**
+   * Takes what was recorded from the recorders, once, and adds it to everything that reads it:
+   * the pending log interval, the pending status interval and the total.
+   */
+  private synchronized void drain() {
     Histogram intervalHistogram = histogram.getIntervalHistogram();
-    // add this to the total time histogram.
-    if (totalHistogram == null) {
-      totalHistogram = intervalHistogram;
-    } else {
-      totalHistogram.add(intervalHistogram);
+    for (Shard shard : getShards()) {
+      intervalHistogram.add(((HdrShard) shard).recorder.getIntervalHistogram());
     }
-    return intervalHistogram;
+    if (received != null) {
+      intervalHistogram.add(received);
+      received.reset();
+    }
+    if (logPending != null) {
+      logPending.add(intervalHistogram);
+    }
+    statusPending.add(intervalHistogram);
+    totalHistogram.add(intervalHistogram);
   }
 
   /**
    * Helper method to parse the given percentile value string.
    *
+   * @param property - the property the string was read from
    * @param percentileString - comma delimited string of Integer values
+   * @param defaultString - the percentiles to use if the string is unreadable
    * @return An Integer List of percentile values
    */
-  private List<Double> getPercentileValues(String percentileString) {
-    List<Double> percentileValues = new ArrayList<>();
-
+  static List<Double> getPercentileValues(String property, String percentileString, String defaultString) {
+    double[] parsed;
     try {
-      for (String rawPercentile : percentileString.split(",")) {
-        percentileValues.add(Double.parseDouble(rawPercentile));
-      }
-    } catch (Exception e) {
-      // If the given hdrhistogram.percentiles value is unreadable for whatever reason,
-      // then calculate and return the default set.
-      System.err.println("[WARN] Couldn't read " + PERCENTILES_PROPERTY + " value: '" + percentileString +
-          "', the default of '" + PERCENTILES_PROPERTY_DEFAULT + "' will be used.");
-      e.printStackTrace();
-      return getPercentileValues(PERCENTILES_PROPERTY_DEFAULT);
+      parsed = Utils.parsePercentiles(property, percentileString);
+    } catch (IllegalArgumentException e) {
+      // If the given percentiles value is unreadable, then use the default set.
+      System.err.println("[WARN] Couldn't read " + property + " value: '" + percentileString +
+          "', the default of '" + defaultString + "' will be used.");
+      parsed = Utils.parsePercentiles(property, defaultString);
     }
 
+    List<Double> percentileValues = new ArrayList<>(parsed.length);
+    for (double percentile : parsed) {
+      percentileValues.add(percentile);
+    }
     return percentileValues;
   }
 
@@ -192,7 +472,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param i number
    * @return ordinal string
    */
-  private String ordinal(Double i) {
+  public static String ordinal(Double i) {
     String[] suffixes = new String[]{"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
     Integer j = i.intValue();
     if (i % 1 == 0) {
@@ -19,27 +19,88 @@ package com.yahoo.ycsb.measurements;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+import org.HdrHistogram.WriterReaderPhaser;
+
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
  *
+ * Threads record into striped counters without locking. The counters of an interval are
+ * swapped for fresh ones when the status line is printed or the histogram is exported, and
+ * a {@link WriterReaderPhaser} waits for the threads still recording into the old ones before
+ * they are added to the totals, so no latency is lost or counted twice.
  */
 public class OneMeasurementHistogram extends OneMeasurement {
   public static final String BUCKETS = "histogram.buckets";
   public static final String BUCKETS_DEFAULT = "1000";
 
+  /**
+   * The width of a bucket in microseconds.
+   */
+  public static final String BUCKET_WIDTH = "histogram.bucketwidth";
+  public static final String BUCKET_WIDTH_DEFAULT = "1000";
+
+  /**
+   * The percentiles to export, like hdrhistogram.percentiles.
+   */
+  public static final String PERCENTILES_PROPERTY = "histogram.percentiles";
+  public static final String PERCENTILES_PROPERTY_DEFAULT = "95,99";
+
+  /**
+   * The latencies recorded during one interval.
+   */
+  private static final class Interval {
+    private final LongAdder[] histogram;
+    private final LongAdder histogramoverflow = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder totallatency = new LongAdder();
+    private final DoubleAdder totalsquaredlatency = new DoubleAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private Interval(int buckets) {
+      histogram = new LongAdder[buckets];
+      for (int i = 0; i < buckets; i++) {
+        histogram[i] = new LongAdder();
+      }
+    }
+  }
+
   /**
    * Specify the range of latencies to track in the histogram.
    */
   private final int buckets;
 
   /**
-   * Groups operations in discrete blocks of 1ms width.
+   * The width of each bucket in microseconds.
+   */
+  private final int bucketwidth;
+
+  private final List<Double> percentiles;
+
+  private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+
+  /**
+   * Recorded into by the measuring threads.
    */
-  private long[] histogram;
+  private volatile Interval active;
+
+  /**
+   * Empty, swapped in when the active interval ends.
+   */
+  private Interval inactive;
+
+  /**
+   * Groups operations in discrete blocks of bucketwidth.
+   */
+  private final long[] histogram;
 
   /**
    * Counts all operations outside the histogram's range.
@@ -53,14 +114,14 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
   /**
    * The sum of each latency measurement over all operations.
-   * Calculated in ms.
+   * Calculated in us.
    */
   private long totallatency;
 
   /**
-   * The sum of each latency measurement squared over all operations. 
+   * The sum of each latency measurement squared over all operations.
    * Used to calculate variance of latency.
-   * Calculated in ms. 
+   * Calculated in us.
    */
   private double totalsquaredlatency;
 
@@ -74,6 +135,16 @@ public class OneMeasurementHistogram extends OneMeasurement {
   public OneMeasurementHistogram(String name, Properties props) {
     super(name);
     buckets = Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
+    bucketwidth = Integer.parseInt(props.getProperty(BUCKET_WIDTH, BUCKET_WIDTH_DEFAULT));
+    if (bucketwidth < 1) {
+      throw new IllegalArgumentException(BUCKET_WIDTH + " must be at least 1 microsecond, not " + bucketwidth);
+    }
+    percentiles = OneMeasurementHdrHistogram.getPercentileValues(PERCENTILES_PROPERTY,
+        props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT), PERCENTILES_PROPERTY_DEFAULT);
+    // Exported in a single pass over the buckets.
+    percentiles.sort(null);
+    active = new Interval(buckets);
+    inactive = new Interval(buckets);
     histogram = new long[buckets];
     histogramoverflow = 0;
     operations = 0;
@@ -88,30 +159,69 @@ public class OneMeasurementHistogram extends OneMeasurement {
   /* (non-Javadoc)
    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
    */
-  public synchronized void measure(int latency) {
-    //latency reported in us and collected in bucket by ms.
-    if (latency / 1000 >= buckets) {
-      histogramoverflow++;
-    } else {
-      histogram[latency / 1000]++;
+  public void measure(int latency) {
+    long phase = phaser.writerCriticalSectionEnter();
+    try {
+      Interval interval = active;
+      //latency reported in us and collected in bucket by bucketwidth.
+      if (latency / bucketwidth >= buckets) {
+        interval.histogramoverflow.increment();
+      } else {
+        interval.histogram[latency / bucketwidth].increment();
+      }
+      interval.operations.increment();
+      interval.totallatency.add(latency);
+      interval.totalsquaredlatency.add(((double) latency) * ((double) latency));
+      interval.min.accumulate(latency);
+      interval.max.accumulate(latency);
+    } finally {
+      phaser.writerCriticalSectionExit(phase);
     }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double) latency) * ((double) latency);
-    windowoperations++;
-    windowtotallatency += latency;
-
-    if ((min < 0) || (latency < min)) {
-      min = latency;
+  }
+
+  /**
+   * Swaps the active interval for an empty one and adds what was recorded into it to the
+   * totals and the window.
+   */
+  private synchronized void endInterval() {
+    Interval ended;
+    phaser.readerLock();
+    try {
+      ended = active;
+      active = inactive;
+      // Returns once no thread records into the ended interval any more.
+      phaser.flipPhase();
+    } finally {
+      phaser.readerUnlock();
     }
 
-    if ((max < 0) || (latency > max)) {
-      max = latency;
+    long intervaloperations = ended.operations.sumThenReset();
+    if (intervaloperations != 0) {
+      for (int i = 0; i < buckets; i++) {
+        histogram[i] += ended.histogram[i].sumThenReset();
+      }
+      histogramoverflow += ended.histogramoverflow.sumThenReset();
+      long intervallatency = ended.totallatency.sumThenReset();
+      operations += intervaloperations;
+      totallatency += intervallatency;
+      totalsquaredlatency += ended.totalsquaredlatency.sumThenReset();
+      windowoperations += intervaloperations;
+      windowtotallatency += intervallatency;
+      int intervalmin = (int) ended.min.getThenReset();
+      int intervalmax = (int) ended.max.getThenReset();
+      if ((min < 0) || (intervalmin < min)) {
+        min = intervalmin;
+      }
+      if ((max < 0) || (intervalmax > max)) {
+        max = intervalmax;
+      }
     }
+    inactive = ended;
   }
 
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    endInterval();
     double mean = totallatency / ((double) operations);
     double variance = totalsquaredlatency / ((double) operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
@@ -120,30 +230,31 @@ public class OneMeasurementHistogram extends OneMeasurement {
     exporter.write(getName(), "MinLatency(us)", min);
     exporter.write(getName(), "MaxLatency(us)", max);
 
-    long opcounter=0;
-    boolean done95th = false;
-    for (int i = 0; i < buckets; i++) {
+    long opcounter = 0;
+    int next = 0;
+    for (int i = 0; i < buckets && next < percentiles.size(); i++) {
       opcounter += histogram[i];
-      if ((!done95th) && (((double) opcounter) / ((double) operations) >= 0.95)) {
-        exporter.write(getName(), "95thPercentileLatency(us)", i * 1000);
-        done95th = true;
-      }
-      if (((double) opcounter) / ((double) operations) >= 0.99) {
-        exporter.write(getName(), "99thPercentileLatency(us)", i * 1000);
-        break;
+      while (next < percentiles.size()
+          && ((double) opcounter) / ((double) operations) >= percentiles.get(next) / 100) {
+        String percentile = OneMeasurementHdrHistogram.ordinal(percentiles.get(next));
+        exporter.write(getName(), percentile + "PercentileLatency(us)", i * bucketwidth);
+        next++;
       }
     }
 
     exportStatusCounts(exporter);
 
+    // Buckets are named by their lower bound in milliseconds.
+    DecimalFormat ms = new DecimalFormat("#.###");
     for (int i = 0; i < buckets; i++) {
-      exporter.write(getName(), Integer.toString(i), histogram[i]);
+      exporter.write(getName(), ms.format(i * (double) bucketwidth / 1000), histogram[i]);
     }
-    exporter.write(getName(), ">" + buckets, histogramoverflow);
+    exporter.write(getName(), ">" + ms.format(buckets * (double) bucketwidth / 1000), histogramoverflow);
   }
 
   @Override
-  public String getSummary() {
+  public synchronized String getSummary() {
+    endInterval();
     if (windowoperations == 0) {
       return "";
     }
@@ -19,60 +19,52 @@ package com.yahoo.ycsb.measurements;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Record a series of measurements as raw data points without down sampling,
  * optionally write to an output file when configured.
  *
+ * The data points are recorded into chunks of primitive records which a
+ * background thread spills to a temporary file, and writes to the output file
+ * if one is configured, while the test runs. Only the chunks being filled and
+ * those waiting to be written are kept in memory, so the memory used does not
+ * grow with the number of operations, nor with the number of threads: past
+ * {@link #MAX_SHARD_CHUNKS} threads share a chunk. The exact percentiles are
+ * found at export by two counting passes over the spilled data points, without
+ * sorting them.
+ *
+ * Measurements sharing an output file each write their rows to a part file of
+ * their own next to it; the parts are appended to the output file, one
+ * measurement after the other, once the last of them is exported.
  */
 public class OneMeasurementRaw extends OneMeasurement {
-  /**
-   * One raw data point, two fields: timestamp (ms) when the datapoint is
-   * inserted, and the value.
-   */
-  class RawDataPoint {
-    private final long timestamp;
-    private final int value;
-
-    public RawDataPoint(int value) {
-      this.timestamp = System.currentTimeMillis();
-      this.value = value;
-    }
-
-    public long timeStamp() {
-      return timestamp;
-    }
-
-    public int value() {
-      return value;
-    }
-  }
-
-  class RawDataPointComparator implements Comparator<RawDataPoint> {
-    @Override
-    public int compare(RawDataPoint p1, RawDataPoint p2) {
-      if (p1.value() < p2.value()) {
-        return -1;
-      } else if (p1.value() == p2.value()) {
-        return 0;
-      } else {
-        return 1;
-      }
-    }
-  }
-
   /**
    * Optionally, user can configure an output file to save the raw data points.
-   * Default is none, raw results will be written to stdout.
-   *
+   * Default is none, raw results will be written to stdout. The file is written
+   * while the test runs, compressed with gzip if its name ends with ".gz".
    */
   public static final String OUTPUT_FILE_PATH = "measurement.raw.output_file";
   public static final String OUTPUT_FILE_PATH_DEFAULT = "";
@@ -88,54 +80,444 @@ public class OneMeasurementRaw extends OneMeasurement {
   public static final String NO_SUMMARY_STATS = "measurement.raw.no_summary";
   public static final String NO_SUMMARY_STATS_DEFAULT = "false";
 
-  private final PrintStream outputStream;
+  /**
+   * Keep the chunks of data points outside of the Java heap.
+   */
+  public static final String OFF_HEAP = "measurement.raw.offheap";
+  public static final String OFF_HEAP_DEFAULT = "false";
+
+  /**
+   * The directory the data points are spilled to until they are exported.
+   * Default is the system's temporary directory.
+   */
+  public static final String SPILL_DIR = "measurement.raw.spill_dir";
+
+  // A data point is its timestamp (ms) followed by its latency (us).
+  private static final int RECORD_BYTES = 12;
+  static final int CHUNK_RECORDS = 8192;
+
+  // The full chunks waiting to be written. Recording blocks when the writer falls this far behind.
+  private static final int MAX_PENDING_CHUNKS = 64;
+
+  // The most shards recording into a chunk of their own at once.
+  static final int MAX_SHARD_CHUNKS = 64;
+
+  // How long recording waits for room among the pending chunks before it looks whether the writer has finished.
+  private static final long ENQUEUE_WAIT_MS = 10;
+
+  // Tells the writer that no more chunks follow.
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  // The output files, shared by the measurements writing to the same path.
+  private static final Map<String, SharedOutput> OUTPUTS = new HashMap<>();
+
+  /**
+   * An output file, the parts written for it by each measurement and the number of measurements
+   * still writing.
+   */
+  private static final class SharedOutput {
+    private final List<File> parts = new ArrayList<>();
+    private int users;
+  }
+
+  /**
+   * Visits the spilled data points.
+   */
+  private interface DataPointVisitor {
+    void visit(long timestamp, int latency) throws IOException;
+  }
+
+  /**
+   * Records the data points of one thread into a chunk of its own, taken when it first records,
+   * or into the chunk of the measurement when too many shards have one already.
+   */
+  private final class RawShard extends Shard {
+    private ByteBuffer shardChunk;
+    private boolean sharing;
+
+    @Override
+    public void measure(int latency) {
+      synchronized (this) {
+        if (shardChunk == null && !sharing) {
+          if (shardChunks.incrementAndGet() <= MAX_SHARD_CHUNKS) {
+            shardChunk = newChunk();
+          } else {
+            shardChunks.decrementAndGet();
+            sharing = true;
+          }
+        }
+        if (shardChunk != null) {
+          count(latency);
+          shardChunk = append(shardChunk, latency);
+          return;
+        }
+      }
+      OneMeasurementRaw.this.measure(latency);
+    }
 
-  private boolean noSummaryStats = false;
+    private synchronized void flush() {
+      if (shardChunk != null) {
+        shardChunk = submit(shardChunk);
+      }
+    }
 
-  private LinkedList<RawDataPoint> measurements;
-  private long totalLatency = 0;
+    /**
+     * Hands the data points to the writer and gives up the chunk for another shard.
+     */
+    private synchronized void retire() {
+      if (shardChunk != null) {
+        if (shardChunk.position() > 0 && !closed) {
+          enqueue(shardChunk);
+        } else {
+          shardChunk.clear();
+          free.offer(shardChunk);
+        }
+        shardChunk = null;
+        shardChunks.decrementAndGet();
+      }
+    }
+  }
+
+  private final String outputFilePath;
+  private final Writer output;
+  private final boolean noSummaryStats;
+  private final boolean offHeap;
+
+  private final File spillFile;
+  private final FileChannel spill;
+  private final BlockingQueue<ByteBuffer> pending = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+  private final Thread writer;
+  private volatile IOException writeFailure;
+  private final AtomicInteger shardChunks = new AtomicInteger();
+  // Set once everything was handed to the writer; data points recorded later are dropped.
+  private volatile boolean closed;
+
+  // Recorded by measure() outside of the shards.
+  private ByteBuffer chunk;
+
+  private final LongAdder operations = new LongAdder();
+  private final LongAdder totalLatency = new LongAdder();
 
   // A window of stats to print summary for at the next getSummary() call.
   // It's supposed to be a one line summary, so we will just print count and
   // average.
-  private int windowOperations = 0;
-  private long windowTotalLatency = 0;
+  private final LongAdder windowOperations = new LongAdder();
+  private final LongAdder windowTotalLatency = new LongAdder();
 
   public OneMeasurementRaw(String name, Properties props) {
     super(name);
 
-    String outputFilePath = props.getProperty(OUTPUT_FILE_PATH, OUTPUT_FILE_PATH_DEFAULT);
-    if (!outputFilePath.isEmpty()) {
-      System.out.println("Raw data measurement: will output to result file: " +
-          outputFilePath);
-
+    String path = props.getProperty(OUTPUT_FILE_PATH, OUTPUT_FILE_PATH_DEFAULT);
+    if (!path.isEmpty()) {
+      System.out.println("Raw data measurement: will output to result file: " + path);
+      outputFilePath = path;
       try {
-        outputStream = new PrintStream(
-            new FileOutputStream(outputFilePath, true),
-            true);
-      } catch (FileNotFoundException e) {
+        OutputStream out = new FileOutputStream(openOutput(path));
+        if (path.endsWith(".gz")) {
+          out = new GZIPOutputStream(out, 1 << 16);
+        }
+        output = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        output.write(getName() + " latency raw data: op, timestamp(ms), latency(us)\n");
+      } catch (IOException e) {
         throw new RuntimeException("Failed to open raw data output file", e);
       }
-
     } else {
       System.out.println("Raw data measurement: will output to stdout.");
-      outputStream = System.out;
-
+      outputFilePath = null;
+      output = null;
     }
 
     noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
+    offHeap = Boolean.parseBoolean(props.getProperty(OFF_HEAP, OFF_HEAP_DEFAULT));
+
+    try {
+      String spillDir = props.getProperty(SPILL_DIR);
+      spillFile = File.createTempFile("ycsb-raw-", ".bin",
+          spillDir == null ? null : new File(spillDir));
+      spillFile.deleteOnExit();
+      spill = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create the raw data spill file", e);
+    }
+
+    chunk = newChunk();
+    writer = new Thread(this::writeChunks, "raw-" + name);
+    writer.setDaemon(true);
+    writer.start();
+  }
 
-    measurements = new LinkedList<>();
+  /**
+   * @return A new part file for the output file, in the same directory.
+   */
+  private static File openOutput(String path) throws IOException {
+    synchronized (OUTPUTS) {
+      SharedOutput shared = OUTPUTS.get(path);
+      if (shared == null) {
+        shared = new SharedOutput();
+        OUTPUTS.put(path, shared);
+      }
+      File part = File.createTempFile("ycsb-raw-", ".part", new File(path).getAbsoluteFile().getParentFile());
+      part.deleteOnExit();
+      shared.parts.add(part);
+      shared.users++;
+      return part;
+    }
+  }
+
+  /**
+   * Once no measurement writes to the output file any more, appends the parts to it in the order
+   * the measurements were created. Parts compressed with gzip are appended as they are, since
+   * a series of gzip members is read as one stream.
+   */
+  private static void closeOutput(String path) throws IOException {
+    synchronized (OUTPUTS) {
+      SharedOutput shared = OUTPUTS.get(path);
+      if (--shared.users == 0) {
+        OUTPUTS.remove(path);
+        try (FileChannel out = FileChannel.open(new File(path).toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+          for (File part : shared.parts) {
+            try (FileChannel in = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+              long size = in.size();
+              for (long position = 0; position < size;) {
+                position += in.transferTo(position, size - position, out);
+              }
+            }
+            if (!part.delete()) {
+              System.err.println("Could not delete the raw data part file " + part);
+            }
+          }
+        }
+      }
+    }
   }
 
   @Override
   public synchronized void measure(int latency) {
-    totalLatency += latency;
-    windowTotalLatency += latency;
-    windowOperations++;
+    count(latency);
+    chunk = append(chunk, latency);
+  }
 
-    measurements.add(new RawDataPoint(latency));
+  @Override
+  protected Shard createShard() {
+    return new RawShard();
+  }
+
+  @Override
+  protected void retire(Shard shard) {
+    ((RawShard) shard).retire();
+  }
+
+  private void count(int latency) {
+    operations.increment();
+    totalLatency.add(latency);
+    windowOperations.increment();
+    windowTotalLatency.add(latency);
+  }
+
+  /**
+   * Appends a data point to a chunk, handing the chunk to the writer once it is full.
+   *
+   * @return The chunk to append the next data point to.
+   */
+  private ByteBuffer append(ByteBuffer target, int latency) {
+    target.putLong(System.currentTimeMillis()).putInt(latency);
+    return target.hasRemaining() ? target : submit(target);
+  }
+
+  /**
+   * Hands a chunk to the writer, waiting while too many chunks are pending. Once the
+   * measurement was exported the data points are dropped instead.
+   *
+   * @return An empty chunk to continue with.
+   */
+  private ByteBuffer submit(ByteBuffer full) {
+    if (full.position() == 0) {
+      return full;
+    }
+    if (closed) {
+      full.clear();
+      return full;
+    }
+    enqueue(full);
+    return newChunk();
+  }
+
+  private void enqueue(ByteBuffer full) {
+    boolean interrupted = false;
+    while (true) {
+      if (closed && full != END) {
+        // The writer may be gone; never wait for it.
+        full.clear();
+        break;
+      }
+      try {
+        if (pending.offer(full, ENQUEUE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ByteBuffer newChunk() {
+    ByteBuffer recycled = free.poll();
+    if (recycled != null) {
+      return recycled;
+    }
+    return offHeap ? ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_BYTES)
+        : ByteBuffer.allocate(CHUNK_RECORDS * RECORD_BYTES);
+  }
+
+  /**
+   * The writer thread: appends the chunks to the spill file and the output file. After a
+   * failure the chunks are still taken, so recording never blocks, but no longer written.
+   */
+  private void writeChunks() {
+    StringBuilder lines = new StringBuilder();
+    while (true) {
+      ByteBuffer full;
+      try {
+        full = pending.take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (full == END) {
+        return;
+      }
+      full.flip();
+      if (writeFailure == null) {
+        try {
+          if (output != null) {
+            lines.setLength(0);
+            for (int i = full.position(); i < full.limit(); i += RECORD_BYTES) {
+              lines.append(getName()).append(',').append(full.getLong(i)).append(',')
+                  .append(full.getInt(i + 8)).append('\n');
+            }
+            output.append(lines);
+          }
+          while (full.hasRemaining()) {
+            spill.write(full);
+          }
+        } catch (IOException e) {
+          writeFailure = e;
+        }
+      }
+      full.clear();
+      free.offer(full);
+    }
+  }
+
+  /**
+   * Hands the partly filled chunks to the writer and waits for it to write everything.
+   */
+  private void finishWriting() throws IOException {
+    if (writer.isAlive()) {
+      synchronized (this) {
+        chunk = submit(chunk);
+      }
+      for (Shard shard : getShards()) {
+        if (shard instanceof RawShard) {
+          ((RawShard) shard).flush();
+        }
+      }
+      closed = true;
+      enqueue(END);
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing the raw data points", e);
+      }
+    }
+    if (writeFailure != null) {
+      throw new IOException("Failed to write the raw data points", writeFailure);
+    }
+  }
+
+  /**
+   * Reads the spilled data points in the order they were written.
+   */
+  private void readSpill(DataPointVisitor visitor) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(16 * CHUNK_RECORDS * RECORD_BYTES);
+    long position = 0;
+    while (true) {
+      int read = spill.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+      buffer.flip();
+      while (buffer.remaining() >= RECORD_BYTES) {
+        visitor.visit(buffer.getLong(), buffer.getInt());
+      }
+      buffer.compact();
+    }
+  }
+
+  /**
+   * Finds the exact latencies at the given ranks of the sorted data points. The first pass
+   * counts the data points by the upper 16 bits of their latency, which tells the bucket
+   * each rank falls in; the second counts the lower 16 bits within just those buckets.
+   *
+   * @param ranks The ranks, from 0 to the number of data points - 1.
+   * @return The latency at each rank.
+   */
+  private int[] latenciesAt(final long[] ranks) throws IOException {
+    final long[] upper = new long[1 << 16];
+    readSpill((timestamp, latency) -> upper[key(latency) >>> 16]++);
+
+    int[] buckets = new int[ranks.length];
+    long[] offsets = new long[ranks.length];
+    final int[] slots = new int[1 << 16];
+    Arrays.fill(slots, -1);
+    int used = 0;
+    for (int i = 0; i < ranks.length; i++) {
+      long before = 0;
+      int bucket = 0;
+      while (before + upper[bucket] <= ranks[i]) {
+        before += upper[bucket++];
+      }
+      buckets[i] = bucket;
+      offsets[i] = ranks[i] - before;
+      if (slots[bucket] < 0) {
+        slots[bucket] = used++;
+      }
+    }
+
+    final long[][] lower = new long[used][1 << 16];
+    readSpill((timestamp, latency) -> {
+        int key = key(latency);
+        int slot = slots[key >>> 16];
+        if (slot >= 0) {
+          lower[slot][key & 0xFFFF]++;
+        }
+      });
+
+    int[] latencies = new int[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      long[] counts = lower[slots[buckets[i]]];
+      long before = 0;
+      int low = 0;
+      while (before + counts[low] <= offsets[i]) {
+        before += counts[low++];
+      }
+      latencies[i] = ((buckets[i] << 16) | low) ^ Integer.MIN_VALUE;
+    }
+    return latencies;
+  }
+
+  /**
+   * @return The latency with its sign bit flipped, so that unsigned order is numeric order.
+   */
+  private static int key(int latency) {
+    return latency ^ Integer.MIN_VALUE;
   }
 
   @Override
@@ -143,65 +525,73 @@ public class OneMeasurementRaw extends OneMeasurement {
       throws IOException {
     // Output raw data points first then print out a summary of percentiles to
     // stdout.
+    finishWriting();
 
-    outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
-    for (RawDataPoint point : measurements) {
-      outputStream.println(
-          String.format("%s,%d,%d", getName(), point.timeStamp(),
-              point.value()));
-    }
-    if (outputStream != System.out) {
-      outputStream.close();
+    if (output != null) {
+      output.close();
+      closeOutput(outputFilePath);
+    } else {
+      System.out.println(getName() + " latency raw data: op, timestamp(ms), latency(us)");
+      final StringBuilder line = new StringBuilder();
+      readSpill((timestamp, latency) -> {
+          line.setLength(0);
+          System.out.append(line.append(getName()).append(',').append(timestamp).append(',')
+              .append(latency).append('\n'));
+        });
+      System.out.flush();
     }
 
-    int totalOps = measurements.size();
+    long totalOps = operations.sum();
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
           "Below is a summary of latency in microseconds:", -1);
       exporter.write(getName(), "Average",
-          (double) totalLatency / (double) totalOps);
-
-      Collections.sort(measurements, new RawDataPointComparator());
-
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int) (totalOps * 0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int) (totalOps * 0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int) (totalOps * 0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int) (totalOps * 0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int) (totalOps * 0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int) (totalOps * 0.99)).value());
-      exporter.write(getName(), "p99.9",
-          measurements.get((int) (totalOps * 0.999)).value());
-      exporter.write(getName(), "p99.99",
-          measurements.get((int) (totalOps * 0.9999)).value());
+          (double) totalLatency.sum() / (double) totalOps);
+
+      String[] names = {"Min", "Max", "p1", "p5", "p50", "p90", "p95", "p99", "p99.9", "p99.99"};
+      double[] fractions = {0, 1, 0.01, 0.05, 0.5, 0.9, 0.95, 0.99, 0.999, 0.9999};
+      long[] ranks = new long[fractions.length];
+      for (int i = 0; i < ranks.length; i++) {
+        ranks[i] = Math.min((long) (totalOps * fractions[i]), totalOps - 1);
+      }
+      int[] latencies = latenciesAt(ranks);
+      for (int i = 0; i < names.length; i++) {
+        exporter.write(getName(), names[i], latencies[i]);
+      }
     }
 
     exportStatusCounts(exporter);
+
+    deleteSpill();
   }
 
   @Override
-  public synchronized String getSummary() {
-    if (windowOperations == 0) {
-      return "";
+  public void discard() throws IOException {
+    finishWriting();
+    if (output != null) {
+      output.close();
+      closeOutput(outputFilePath);
     }
+    deleteSpill();
+  }
 
-    String toReturn = String.format("%s count: %d, average latency(us): %.2f",
-        getName(), windowOperations,
-        (double) windowTotalLatency / (double) windowOperations);
+  private void deleteSpill() throws IOException {
+    spill.close();
+    if (!spillFile.delete()) {
+      System.err.println("Could not delete the raw data spill file " + spillFile);
+    }
+  }
 
-    windowTotalLatency = 0;
-    windowOperations = 0;
+  @Override
+  public String getSummary() {
+    long windowOps = windowOperations.sumThenReset();
+    long windowLatency = windowTotalLatency.sumThenReset();
+    if (windowOps == 0) {
+      return "";
+    }
 
-    return toReturn;
+    return String.format("%s count: %d, average latency(us): %.2f",
+        getName(), windowOps, (double) windowLatency / (double) windowOps);
   }
 }
@@ -19,27 +19,57 @@ package com.yahoo.ycsb.measurements;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 class SeriesUnit {
   /**
    * @param time
-   * @param average
+   * @param histogram The latencies of the window.
    */
-  public SeriesUnit(long time, double average) {
+  public SeriesUnit(long time, Histogram histogram) {
     this.time = time;
-    this.average = average;
+    this.count = histogram.getTotalCount();
+    this.average = histogram.getMean();
+    this.p50 = histogram.getValueAtPercentile(50);
+    this.p99 = histogram.getValueAtPercentile(99);
+    this.p999 = histogram.getValueAtPercentile(99.9);
+    this.max = histogram.getMaxValue();
   }
 
   protected final long time;
+  protected final long count;
   protected final double average;
+  protected final long p50;
+  protected final long p99;
+  protected final long p999;
+  protected final long max;
 }
 
 /**
  * A time series measurement of a metric, such as READ LATENCY.
+ *
+ * Each window of the series is an HdrHistogram {@link Recorder}, with the precision of
+ * "hdrhistogram.significantdigits", which the measuring threads record into without locking.
+ * A background tick shared by all time series ends the window every granularity and keeps its
+ * count, average, 50th, 99th and 99.9th percentile and maximum latency. A latency recorded
+ * while the tick ends a window may land in the next one.
+ *
+ * The tick holds the measurement weakly, so a measurement that is never exported does not stay
+ * reachable through it; its tick stops once it is collected.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement {
 
@@ -49,97 +79,145 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   public static final String GRANULARITY = "timeseries.granularity";
   public static final String GRANULARITY_DEFAULT = "1000";
 
+  private static ScheduledExecutorService tick;
+
   private final int granularity;
-  private final Vector<SeriesUnit> measurements;
+  private final List<SeriesUnit> measurements = new ArrayList<>();
 
-  private long start = -1;
-  private long currentunit = -1;
-  private long count = 0;
-  private long sum = 0;
-  private long operations = 0;
-  private long totallatency = 0;
+  // The number of windows ended so far.
+  private long windows;
+  private final WindowTick ticking;
+  private final Recorder recorder;
+  private Histogram window;
+  private final Histogram totalHistogram;
 
-  //keep a windowed version of these stats for printing status
-  private int windowoperations = 0;
-  private long windowtotallatency = 0;
+  private final LongAdder operations = new LongAdder();
+  private final LongAdder totallatency = new LongAdder();
+  private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
 
-  private int min = -1;
-  private int max = -1;
+  //keep a windowed version of these stats for printing status
+  private long summaryoperations = 0;
+  private long summarytotallatency = 0;
 
   public OneMeasurementTimeSeries(String name, Properties props) {
     super(name);
     granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
-    measurements = new Vector<>();
+    int significantDigits = OneMeasurementHdrHistogram.getSignificantDigits(props);
+    recorder = new Recorder(significantDigits);
+    totalHistogram = new Histogram(significantDigits);
+    ticking = new WindowTick(this);
+    ticking.future = getTick().scheduleAtFixedRate(ticking, granularity, granularity, TimeUnit.MILLISECONDS);
   }
 
-  private synchronized void checkEndOfUnit(boolean forceend) {
-    long now = System.currentTimeMillis();
-
-    if (start < 0) {
-      currentunit = 0;
-      start = now;
-    }
-
-    long unit = ((now - start) / granularity) * granularity;
-
-    if ((unit > currentunit) || (forceend)) {
-      double avg = ((double) sum) / ((double) count);
-      measurements.add(new SeriesUnit(currentunit, avg));
-
-      currentunit = unit;
-
-      count = 0;
-      sum = 0;
+  private static synchronized ScheduledExecutorService getTick() {
+    if (tick == null) {
+      tick = Executors.newSingleThreadScheduledExecutor(r -> {
+          Thread t = new Thread(r, "timeseries-tick");
+          t.setDaemon(true);
+          return t;
+        });
     }
+    return tick;
   }
 
-  @Override
-  public void measure(int latency) {
-    checkEndOfUnit(false);
+  /**
+   * Ends the windows of a time series until it is exported or collected.
+   */
+  private static final class WindowTick implements Runnable {
+    private final WeakReference<OneMeasurementTimeSeries> series;
+    private volatile ScheduledFuture<?> future;
 
-    count++;
-    sum += latency;
-    totallatency += latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency += latency;
+    private WindowTick(OneMeasurementTimeSeries series) {
+      this.series = new WeakReference<>(series);
+    }
 
-    if (latency > max) {
-      max = latency;
+    @Override
+    public void run() {
+      OneMeasurementTimeSeries m = series.get();
+      if (m != null) {
+        m.endWindow();
+      } else if (future != null) {
+        future.cancel(false);
+      }
     }
 
-    if ((latency < min) || (min < 0)) {
-      min = latency;
+    private void cancel() {
+      series.clear();
+      if (future != null) {
+        future.cancel(false);
+      }
     }
   }
 
+  /**
+   * Ends the current window, keeping it in the series unless nothing was measured.
+   */
+  synchronized void endWindow() {
+    window = recorder.getIntervalHistogram(window);
+    long time = windows++ * granularity;
+    if (window.getTotalCount() == 0) {
+      return;
+    }
+    measurements.add(new SeriesUnit(time, window));
+    totalHistogram.add(window);
+  }
 
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
+  public void measure(int latency) {
+    recorder.recordValue(latency);
+    operations.increment();
+    totallatency.add(latency);
+    min.accumulate(latency);
+    max.accumulate(latency);
+  }
 
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
 
-    // TODO: 95th and 99th percentile latency
+  @Override
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    ticking.cancel();
+    endWindow();
+
+    long ops = operations.sum();
+    exporter.write(getName(), "Operations", ops);
+    exporter.write(getName(), "AverageLatency(us)", (((double) totallatency.sum()) / ((double) ops)));
+    exporter.write(getName(), "MinLatency(us)", ops == 0 ? -1 : (int) min.get());
+    exporter.write(getName(), "MaxLatency(us)", ops == 0 ? -1 : (int) max.get());
+    exporter.write(getName(), "95thPercentileLatency(us)", totalHistogram.getValueAtPercentile(95));
+    exporter.write(getName(), "99thPercentileLatency(us)", totalHistogram.getValueAtPercentile(99));
 
     exportStatusCounts(exporter);
+    // The average of each window keeps its plain name; the other statistics are suffixed.
     for (SeriesUnit unit : measurements) {
-      exporter.write(getName(), Long.toString(unit.time), unit.average);
+      String time = Long.toString(unit.time);
+      exporter.write(getName(), time, unit.average);
+      exporter.write(getName(), time + ":count", unit.count);
+      exporter.write(getName(), time + ":p50", unit.p50);
+      exporter.write(getName(), time + ":p99", unit.p99);
+      exporter.write(getName(), time + ":p99.9", unit.p999);
+      exporter.write(getName(), time + ":max", unit.max);
     }
   }
 
   @Override
-  public String getSummary() {
+  public void discard() {
+    ticking.cancel();
+  }
+
+  @Override
+  public synchronized String getSummary() {
+    // The totals only grow, so the difference to the last summary loses nothing.
+    long ops = operations.sum();
+    long latency = totallatency.sum();
+    long windowoperations = ops - summaryoperations;
+    long windowtotallatency = latency - summarytotallatency;
+    summaryoperations = ops;
+    summarytotallatency = latency;
     if (windowoperations == 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
     double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 
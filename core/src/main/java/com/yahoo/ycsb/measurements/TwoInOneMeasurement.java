@@ -21,6 +21,7 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * delegates to 2 measurement instances.
@@ -53,6 +54,59 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.measure(latencyInMicros);
   }
 
+  @Override
+  public void measureNanos(long latencyNanos) {
+    thing1.measureNanos(latencyNanos);
+    thing2.measureNanos(latencyNanos);
+  }
+
+  @Override
+  public void recordValue(int value) {
+    thing1.recordValue(value);
+    thing2.recordValue(value);
+  }
+
+  /**
+   * A shard of each measurement.
+   */
+  private static final class PairShard extends Shard {
+    private final Shard shard1;
+    private final Shard shard2;
+
+    private PairShard(Shard shard1, Shard shard2) {
+      this.shard1 = shard1;
+      this.shard2 = shard2;
+    }
+
+    @Override
+    public void measure(int latencyInMicros) {
+      shard1.measure(latencyInMicros);
+      shard2.measure(latencyInMicros);
+    }
+
+    @Override
+    public void measureNanos(long latencyNanos) {
+      shard1.measureNanos(latencyNanos);
+      shard2.measureNanos(latencyNanos);
+    }
+
+    @Override
+    public void reportStatus(Status status) {
+      shard1.reportStatus(status);
+    }
+  }
+
+  @Override
+  protected Shard createShard() {
+    return new PairShard(thing1.newShard(), thing2.newShard());
+  }
+
+  @Override
+  protected void retire(Shard shard) {
+    thing1.retireShard(((PairShard) shard).shard1);
+    thing2.retireShard(((PairShard) shard).shard2);
+  }
+
   /**
    * This is called from a main thread, on orderly termination.
    */
@@ -62,6 +116,12 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.exportMeasurements(exporter);
   }
 
+  @Override
+  public void discard() throws IOException {
+    thing1.discard();
+    thing2.discard();
+  }
+
   /**
    * This is called periodically from the StatusThread. There's a single StatusThread per Client process.
    * We optionally serialize the interval to log on this opportunity.
@@ -73,4 +133,26 @@ public class TwoInOneMeasurement extends OneMeasurement {
     return thing1.getSummary() + "\n" + thing2.getSummary();
   }
 
+  /**
+   * The statistics of the first measurement, with both summaries.
+   */
+  @Override
+  public IntervalSnapshot getIntervalSnapshot(double[] percentiles) {
+    IntervalSnapshot first = thing1.getIntervalSnapshot(percentiles);
+    String summary = first.getSummary() + "\n" + thing2.getSummary();
+    if (!first.hasStatistics()) {
+      return new IntervalSnapshot(getName(), summary);
+    }
+    return new IntervalSnapshot(getName(), summary, first.getCount(), first.getThroughput(), first.getUnit(),
+        first.getMin(), first.getMean(), first.getMax(), first.getPercentiles(), first.getPercentileValues());
+  }
+
+  /**
+   * The return codes are counted by the first measurement.
+   */
+  @Override
+  public Map<String, Long> getStatusCounts() {
+    return thing1.getStatusCounts();
+  }
+
 }
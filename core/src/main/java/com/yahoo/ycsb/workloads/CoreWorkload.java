@@ -22,6 +22,7 @@ import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.generator.UniformLongGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -52,6 +53,8 @@ import java.util.*;
  * YCSB instance (default: 0)
  * <LI><b>insertcount</b>: for parallel loads and runs, defines the number of records for this
  * YCSB instance (default: recordcount)
+ * <LI><b>insertstride</b> and <b>insertoffset</b>: for parallel runs, the records this YCSB instance inserts in the
+ * transaction phase are every insertstride-th past recordcount, from the insertoffset-th on (default: 1 and 0)
  * <LI><b>zeropadding</b>: for generating a record sequence compatible with string sort order by
  * 0 padding the record number. Controls the number of 0s to use for padding. (default: 1)
  * For example for row 5, with zeropadding=1 you get 'user5' key and with zeropading=8 you get
@@ -265,6 +268,74 @@ public class CoreWorkload extends Workload {
    */
   public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT = "uniform";
 
+  /**
+   * The name of the property for the hash turning record numbers into keys when inserts are
+   * "hashed". Options are "fnv", the 64 bit FNV hash keys have always been built with, and
+   * "mix64", the faster MurmurHash3 finalizer. They build different keys, so the transaction phase
+   * must use the one the data was loaded with.
+   */
+  public static final String KEY_HASH_PROPERTY = "keyhash";
+
+  /**
+   * The default key hash, which finds the keys of data loaded before there was a choice.
+   */
+  public static final String KEY_HASH_PROPERTY_DEFAULT = "fnv";
+
+  /**
+   * The name of the property for the zipfian constant of the "zipfian" and "latest" request
+   * distributions. The larger it is, the more skewed the requests are.
+   */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY = "zipfianconstant";
+
+  /**
+   * The default zipfian constant.
+   */
+  public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT =
+      Double.toString(ZipfianGenerator.ZIPFIAN_CONSTANT);
+
+  /**
+   * The name of the property for the zipfian constant of the "zipfian" field length distribution.
+   * Defaults to the zipfianconstant property.
+   */
+  public static final String FIELD_LENGTH_ZIPFIAN_CONSTANT_PROPERTY = "fieldlengthzipfianconstant";
+
+  /**
+   * The name of the property for the zipfian constant of the "zipfian" scan length distribution.
+   * Defaults to the zipfianconstant property.
+   */
+  public static final String SCAN_LENGTH_ZIPFIAN_CONSTANT_PROPERTY = "scanlengthzipfianconstant";
+
+  /**
+   * The name of the property for how the "zipfian" request distribution scatters popular keys
+   * across the key space. Options are "hash", which hashes ranks drawn over 10 billion items
+   * modulo the number of keys, and "permutation", which permutes ranks drawn over exactly the keys
+   * and so keeps the skew of the zipfian constant for any number of keys.
+   */
+  public static final String ZIPFIAN_SCRAMBLE_PROPERTY = "zipfianscramble";
+
+  /**
+   * The default way of scattering popular keys.
+   */
+  public static final String ZIPFIAN_SCRAMBLE_PROPERTY_DEFAULT = "hash";
+
+  /**
+   * The name of the property for how zeta, the normalizing sum of zipfian distributions, is
+   * computed for more than a million items. Options are "approximate", the Euler-Maclaurin
+   * formula, and "exact", the sum of all items.
+   */
+  public static final String ZETA_PROPERTY = "zipfianzeta";
+
+  /**
+   * The default computation of zeta.
+   */
+  public static final String ZETA_PROPERTY_DEFAULT = "approximate";
+
+  /**
+   * The name of the property for a file to cache exact zeta sums in across runs. No cache by
+   * default.
+   */
+  public static final String ZETA_CACHE_PROPERTY = "zipfianzetacache";
+
   /**
    * The name of the property for the order to insert records. Options are "ordered" or "hashed"
    */
@@ -308,19 +379,65 @@ public class CoreWorkload extends Workload {
   public static final String INSERTION_RETRY_INTERVAL_DEFAULT = "3";
 
   protected NumberGenerator keysequence;
-  protected DiscreteGenerator operationchooser;
+  protected AliasGenerator<Operation> operationchooser;
   protected NumberGenerator keychooser;
   protected NumberGenerator fieldchooser;
   protected AcknowledgedCounterGenerator transactioninsertkeysequence;
   protected NumberGenerator scanlength;
   protected boolean orderedinserts;
+  protected boolean mix64keyhash;
   protected long fieldcount;
   protected long recordcount;
+  protected long insertstride;
+  protected long insertoffset;
   protected int zeropadding;
   protected int insertionRetryLimit;
   protected int insertionRetryInterval;
 
   private Measurements measurements = Measurements.getMeasurements();
+  private final int verifyId = measurements.getOperationId("VERIFY");
+  private final int readModifyWriteId = measurements.getOperationId("READ-MODIFY-WRITE");
+
+  /**
+   * Configures how {@link Zeta} computes the zeta sums of zipfian distributions.
+   */
+  static void configureZeta(Properties p) throws WorkloadException {
+    String zeta = p.getProperty(ZETA_PROPERTY, ZETA_PROPERTY_DEFAULT);
+    if (!zeta.equals("approximate") && !zeta.equals("exact")) {
+      throw new WorkloadException("Unknown zeta computation \"" + zeta + "\"");
+    }
+    Zeta.setExact(zeta.equals("exact"));
+    String cache = p.getProperty(ZETA_CACHE_PROPERTY);
+    Zeta.setCacheFile(cache == null ? null : new File(cache));
+  }
+
+  /**
+   * Reads a zipfian constant, which defaults to the zipfianconstant property.
+   */
+  static double getZipfianConstant(Properties p, String property) throws WorkloadException {
+    String constant = p.getProperty(property,
+        p.getProperty(ZIPFIAN_CONSTANT_PROPERTY, ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+    try {
+      return Double.parseDouble(constant);
+    } catch (NumberFormatException e) {
+      throw new WorkloadException("Invalid zipfian constant \"" + constant + "\" for " + property, e);
+    }
+  }
+
+  /**
+   * Creates the generator of the "zipfian" request distribution over the keys between min and max.
+   */
+  static NumberGenerator createScrambledZipfianGenerator(Properties p, long min, long max)
+      throws WorkloadException {
+    double zipfianconstant = getZipfianConstant(p, ZIPFIAN_CONSTANT_PROPERTY);
+    String scramble = p.getProperty(ZIPFIAN_SCRAMBLE_PROPERTY, ZIPFIAN_SCRAMBLE_PROPERTY_DEFAULT);
+    if (scramble.equals("hash")) {
+      return new ScrambledZipfianGenerator(min, max, zipfianconstant);
+    } else if (scramble.equals("permutation")) {
+      return new PermutedZipfianGenerator(min, max, zipfianconstant, PermutedZipfianGenerator.DEFAULT_KEY);
+    }
+    throw new WorkloadException("Unknown zipfian scramble \"" + scramble + "\"");
+  }
 
   protected static NumberGenerator getFieldLengthGenerator(Properties p) throws WorkloadException {
     NumberGenerator fieldlengthgenerator;
@@ -335,7 +452,8 @@ public class CoreWorkload extends Workload {
     } else if (fieldlengthdistribution.compareTo("uniform") == 0) {
       fieldlengthgenerator = new UniformLongGenerator(1, fieldlength);
     } else if (fieldlengthdistribution.compareTo("zipfian") == 0) {
-      fieldlengthgenerator = new ZipfianGenerator(1, fieldlength);
+      fieldlengthgenerator = new ZipfianGenerator(1, fieldlength,
+          getZipfianConstant(p, FIELD_LENGTH_ZIPFIAN_CONSTANT_PROPERTY));
     } else if (fieldlengthdistribution.compareTo("histogram") == 0) {
       try {
         fieldlengthgenerator = new HistogramGenerator(fieldlengthhistogram);
@@ -357,6 +475,7 @@ public class CoreWorkload extends Workload {
   @Override
   public void init(Properties p) throws WorkloadException {
     table = p.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
+    configureZeta(p);
 
     fieldcount =
         Long.parseLong(p.getProperty(FIELD_COUNT_PROPERTY, FIELD_COUNT_PROPERTY_DEFAULT));
@@ -381,7 +500,7 @@ public class CoreWorkload extends Workload {
     long insertstart =
         Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
     long insertcount=
-        Integer.parseInt(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+        Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
     // Confirm valid values for insertstart and insertcount in relation to recordcount
     if (recordcount < (insertstart + insertcount)) {
       System.err.println("Invalid combination of insertstart, insertcount and recordcount.");
@@ -407,6 +526,13 @@ public class CoreWorkload extends Workload {
       System.exit(-1);
     }
 
+    String keyhash = p.getProperty(KEY_HASH_PROPERTY, KEY_HASH_PROPERTY_DEFAULT);
+    if (keyhash.equals("mix64")) {
+      mix64keyhash = true;
+    } else if (!keyhash.equals("fnv")) {
+      throw new WorkloadException("Unknown key hash \"" + keyhash + "\"");
+    }
+
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
     } else if (requestdistrib.compareTo("exponential") == 0) {
@@ -421,6 +547,13 @@ public class CoreWorkload extends Workload {
       orderedinserts = true;
     }
 
+    insertstride = Long.parseLong(p.getProperty(INSERT_STRIDE_PROPERTY, INSERT_STRIDE_PROPERTY_DEFAULT));
+    insertoffset = Long.parseLong(p.getProperty(INSERT_OFFSET_PROPERTY, INSERT_OFFSET_PROPERTY_DEFAULT));
+    if (insertstride < 1 || insertoffset < 0 || insertoffset >= insertstride) {
+      throw new WorkloadException("Invalid combination of " + INSERT_STRIDE_PROPERTY + "=" + insertstride
+          + " and " + INSERT_OFFSET_PROPERTY + "=" + insertoffset + ".");
+    }
+
     keysequence = new CounterGenerator(insertstart);
     operationchooser = createOperationGenerator(p);
 
@@ -441,12 +574,13 @@ public class CoreWorkload extends Workload {
       // the keyspace doesn't change from the perspective of the scrambled zipfian generator
       final double insertproportion = Double.parseDouble(
           p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
-      int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-      int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      long expectednewkeys = (long) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
-      keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
+      keychooser = createScrambledZipfianGenerator(p, insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
-      keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
+      keychooser = new SkewedLatestGenerator(transactioninsertkeysequence,
+          getZipfianConstant(p, ZIPFIAN_CONSTANT_PROPERTY));
     } else if (requestdistrib.equals("hotspot")) {
       double hotsetfraction =
           Double.parseDouble(p.getProperty(HOTSPOT_DATA_FRACTION, HOTSPOT_DATA_FRACTION_DEFAULT));
@@ -463,7 +597,8 @@ public class CoreWorkload extends Workload {
     if (scanlengthdistrib.compareTo("uniform") == 0) {
       scanlength = new UniformLongGenerator(1, maxscanlength);
     } else if (scanlengthdistrib.compareTo("zipfian") == 0) {
-      scanlength = new ZipfianGenerator(1, maxscanlength);
+      scanlength = new ZipfianGenerator(1, maxscanlength,
+          getZipfianConstant(p, SCAN_LENGTH_ZIPFIAN_CONSTANT_PROPERTY));
     } else {
       throw new WorkloadException(
           "Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
@@ -477,7 +612,7 @@ public class CoreWorkload extends Workload {
 
   protected String buildKeyName(long keynum) {
     if (!orderedinserts) {
-      keynum = Utils.hash(keynum);
+      keynum = mix64keyhash ? Utils.mix64hash(keynum) : Utils.hash(keynum);
     }
     String value = Long.toString(keynum);
     int fill = zeropadding - value.length();
@@ -510,7 +645,7 @@ public class CoreWorkload extends Workload {
   /**
    * Builds values for all fields.
    */
-  private HashMap<String, ByteIterator> buildValues(String key) {
+  protected HashMap<String, ByteIterator> buildValues(String key) {
     HashMap<String, ByteIterator> values = new HashMap<>();
 
     for (String fieldkey : fieldnames) {
@@ -552,7 +687,7 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    long keynum = keysequence.nextValue().longValue();
     String dbkey = buildKeyName(keynum);
     HashMap<String, ByteIterator> values = buildValues(dbkey);
 
@@ -595,22 +730,22 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doTransaction(DB db, Object threadstate) {
-    String operation = operationchooser.nextString();
+    Operation operation = operationchooser.nextValue();
     if(operation == null) {
       return false;
     }
 
     switch (operation) {
-    case "READ":
+    case READ:
       doTransactionRead(db);
       break;
-    case "UPDATE":
+    case UPDATE:
       doTransactionUpdate(db);
       break;
-    case "INSERT":
+    case INSERT:
       doTransactionInsert(db);
       break;
-    case "SCAN":
+    case SCAN:
       doTransactionScan(db);
       break;
     default:
@@ -642,22 +777,33 @@ public class CoreWorkload extends Workload {
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    measurements.measureNanos(verifyId, endTime - startTime);
+    measurements.reportStatus(verifyId, verifyStatus);
   }
 
   long nextKeynum() {
     long keynum;
     if (keychooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
+        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().longValue();
       } while (keynum < 0);
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
+        keynum = keychooser.nextValue().longValue();
       } while (keynum > transactioninsertkeysequence.lastValue());
     }
-    return keynum;
+    return transactionKeynum(keynum);
+  }
+
+  /**
+   * Maps the count of a key to the key a client reads and inserts in the transaction phase: the loaded records keep
+   * theirs, and the n-th record this client inserts past them is every insertstride-th from insertoffset on.
+   */
+  long transactionKeynum(long keynum) {
+    if (keynum < recordcount) {
+      return keynum;
+    }
+    return recordcount + (keynum - recordcount) * insertstride + insertoffset;
   }
 
   public void doTransactionRead(DB db) {
@@ -730,8 +876,8 @@ public class CoreWorkload extends Workload {
       verifyRow(keyname, cells);
     }
 
-    measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
-    measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    measurements.measureNanos(readModifyWriteId, en - st);
+    measurements.measureIntendedNanos(readModifyWriteId, en - ist);
   }
 
   public void doTransactionScan(DB db) {
@@ -777,29 +923,27 @@ public class CoreWorkload extends Workload {
 
   public void doTransactionInsert(DB db) {
     // choose the next key
-    long keynum = transactioninsertkeysequence.nextValue();
+    final long keynum = transactioninsertkeysequence.nextValue();
 
-    try {
-      String dbkey = buildKeyName(keynum);
+    String dbkey = buildKeyName(transactionKeynum(keynum));
 
-      HashMap<String, ByteIterator> values = buildValues(dbkey);
-      db.insert(table, dbkey, values);
-    } finally {
-      transactioninsertkeysequence.acknowledge(keynum);
-    }
+    HashMap<String, ByteIterator> values = buildValues(dbkey);
+    // Reads may choose the key once it is acknowledged, so only after the insert completed.
+    db.insert(table, dbkey, values, () -> transactioninsertkeysequence.acknowledge(keynum));
   }
 
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
    * when values are not configured.
-   * Current operations are "READ", "UPDATE", "INSERT", "SCAN" and "READMODIFYWRITE".
+   * Current operations are READ, UPDATE, INSERT, SCAN and READMODIFYWRITE; they are chosen in
+   * constant time.
    *
    * @param p The properties list to pull weights from.
    * @return A generator that can be used to determine the next operation to perform.
    * @throws IllegalArgumentException if the properties object was null.
    */
-  protected static DiscreteGenerator createOperationGenerator(final Properties p) {
+  protected static AliasGenerator<Operation> createOperationGenerator(final Properties p) {
     if (p == null) {
       throw new IllegalArgumentException("Properties object cannot be null");
     }
@@ -814,25 +958,25 @@ public class CoreWorkload extends Workload {
     final double readmodifywriteproportion = Double.parseDouble(p.getProperty(
         READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
 
-    final DiscreteGenerator operationchooser = new DiscreteGenerator();
+    final AliasGenerator<Operation> operationchooser = new AliasGenerator<>();
     if (readproportion > 0) {
-      operationchooser.addValue(readproportion, "READ");
+      operationchooser.addValue(readproportion, Operation.READ);
     }
 
     if (updateproportion > 0) {
-      operationchooser.addValue(updateproportion, "UPDATE");
+      operationchooser.addValue(updateproportion, Operation.UPDATE);
     }
 
     if (insertproportion > 0) {
-      operationchooser.addValue(insertproportion, "INSERT");
+      operationchooser.addValue(insertproportion, Operation.INSERT);
     }
 
     if (scanproportion > 0) {
-      operationchooser.addValue(scanproportion, "SCAN");
+      operationchooser.addValue(scanproportion, Operation.SCAN);
     }
 
     if (readmodifywriteproportion > 0) {
-      operationchooser.addValue(readmodifywriteproportion, "READMODIFYWRITE");
+      operationchooser.addValue(readmodifywriteproportion, Operation.READMODIFYWRITE);
     }
     return operationchooser;
   }
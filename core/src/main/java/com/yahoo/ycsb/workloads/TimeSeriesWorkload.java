@@ -35,13 +35,12 @@ import com.yahoo.ycsb.StringByteIterator;
 import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.Workload;
 import com.yahoo.ycsb.WorkloadException;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.AliasGenerator;
 import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.IncrementingPrintableStringGenerator;
 import com.yahoo.ycsb.generator.NumberGenerator;
 import com.yahoo.ycsb.generator.RandomDiscreteTimestampGenerator;
-import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SequentialGenerator;
 import com.yahoo.ycsb.generator.UniformLongGenerator;
 import com.yahoo.ycsb.generator.UnixEpochTimestampGenerator;
@@ -448,14 +447,14 @@ public class TimeSeriesWorkload extends Workload {
   protected NumberGenerator keychooser;
   
   /** A generator to select what operation to perform during the run phase. */
-  protected DiscreteGenerator operationchooser;
+  protected AliasGenerator<Operation> operationchooser;
   
   /** The maximum number of interval offsets from the starting timestamp. Calculated
    * based on the number of records configured for the run. */
   protected int maxOffsets;
   
   /** The number of records or operations to perform for this run. */
-  protected int recordcount;
+  protected long recordcount;
   
   /** The number of tag pairs per time series. */
   protected int tagPairs;
@@ -538,12 +537,14 @@ public class TimeSeriesWorkload extends Workload {
   
   /** Measurements to write data integrity results to. */
   protected Measurements measurements = Measurements.getMeasurements();
+  private final int verifyId = measurements.getOperationId("VERIFY");
   
   @Override
   public void init(final Properties p) throws WorkloadException {
     properties = p;
+    CoreWorkload.configureZeta(p);
     recordcount =
-        Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, 
+        Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, 
             Client.DEFAULT_RECORD_COUNT));
     if (recordcount == 0) {
       recordcount = Integer.MAX_VALUE;
@@ -562,7 +563,8 @@ public class TimeSeriesWorkload extends Workload {
     if (scanlengthdistrib.compareTo("uniform") == 0) {
       scanlength = new UniformLongGenerator(1, maxscanlength);
     } else if (scanlengthdistrib.compareTo("zipfian") == 0) {
-      scanlength = new ZipfianGenerator(1, maxscanlength);
+      scanlength = new ZipfianGenerator(1, maxscanlength,
+          CoreWorkload.getZipfianConstant(p, CoreWorkload.SCAN_LENGTH_ZIPFIAN_CONSTANT_PROPERTY));
     } else {
       throw new WorkloadException(
           "Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
@@ -591,7 +593,7 @@ public class TimeSeriesWorkload extends Workload {
     } else if (requestdistrib.compareTo("sequential") == 0) {
       keychooser = new SequentialGenerator(0, numKeys - 1);
     } else if (requestdistrib.compareTo("zipfian") == 0) {
-      keychooser = new ScrambledZipfianGenerator(0, numKeys - 1);
+      keychooser = CoreWorkload.createScrambledZipfianGenerator(p, 0, numKeys - 1);
     //} else if (requestdistrib.compareTo("latest") == 0) {
     //  keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
     } else if (requestdistrib.equals("hotspot")) {
@@ -706,20 +708,20 @@ public class TimeSeriesWorkload extends Workload {
     if (threadstate == null) {
       throw new IllegalStateException("Missing thread state.");
     }
-    switch (operationchooser.nextString()) {
-    case "READ":
+    switch (operationchooser.nextValue()) {
+    case READ:
       doTransactionRead(db, threadstate);
       break;
-    case "UPDATE":
+    case UPDATE:
       doTransactionUpdate(db, threadstate);
       break;
-    case "INSERT": 
+    case INSERT: 
       doTransactionInsert(db, threadstate);
       break;
-    case "SCAN":
+    case SCAN:
       doTransactionScan(db, threadstate);
       break;
-    case "DELETE":
+    case DELETE:
       doTransactionDelete(db, threadstate);
       break;
     default:
@@ -913,8 +915,8 @@ public class TimeSeriesWorkload extends Workload {
       verifyStatus = Status.OK;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    measurements.measureNanos(verifyId, endTime - startTime);
+    measurements.reportStatus(verifyId, verifyStatus);
     return verifyStatus;
   }
   
@@ -1023,7 +1025,7 @@ public class TimeSeriesWorkload extends Workload {
       Utils.shuffleArray(tagValues);
     }
     
-    maxOffsets = (recordcount / totalCardinality) + 1;
+    maxOffsets = (int) Math.min((recordcount / totalCardinality) + 1, Integer.MAX_VALUE);
     final int[] keyAndTagCardinality = new int[tagPairs + 1];
     keyAndTagCardinality[0] = numKeys;
     for (int i = 0; i < tagPairs; i++) {
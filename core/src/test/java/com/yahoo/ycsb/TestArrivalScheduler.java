@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestArrivalScheduler {
+
+  private static ArrivalScheduler scheduler(String arrival) {
+    Properties p = new Properties();
+    p.setProperty(ArrivalScheduler.ARRIVAL_PROPERTY, arrival);
+    p.setProperty(ArrivalScheduler.BURSTY_ON_PROPERTY, "100");
+    p.setProperty(ArrivalScheduler.BURSTY_OFF_PROPERTY, "300");
+    // one operation per millisecond
+    ArrivalScheduler s = ArrivalScheduler.create(p, 1.0);
+    s.start(0);
+    return s;
+  }
+
+  @Test
+  public void constantArrivalsAreEvenlySpaced() {
+    ArrivalScheduler s = scheduler("constant");
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(s.next(), i * 1000000L);
+    }
+  }
+
+  @Test
+  public void averageRateIsKept() {
+    for (String arrival : new String[] {"constant", "poisson", "bursty"}) {
+      ArrivalScheduler s = scheduler(arrival);
+      long last = 0;
+      for (int i = 0; i < 100000; i++) {
+        long next = s.next();
+        assertTrue(next >= last, arrival + " arrivals must not go back in time");
+        last = next;
+      }
+      // 100000 arrivals at 1/ms should take about 100 seconds.
+      assertTrue(Math.abs(last / 1e9 - 100) < 5, arrival + " took " + last / 1e9 + "s");
+    }
+  }
+
+  @Test
+  public void burstyArrivalsSkipOffPeriods() {
+    ArrivalScheduler s = scheduler("bursty");
+    for (int i = 0; i < 10000; i++) {
+      long ms = s.next() / 1000000L;
+      assertTrue(ms % 400 < 100, "Arrival at " + ms + "ms falls in an OFF period");
+    }
+  }
+
+  @Test
+  public void backlogCountsOverdueArrivals() {
+    ArrivalScheduler s = scheduler("constant");
+    assertEquals(s.backlog(0), 0);
+    // Arrivals at 1ms .. 5ms are due at 5.5ms.
+    assertEquals(s.backlog(5500000L), 5);
+    assertEquals(s.next(), 1000000L);
+    assertEquals(s.backlog(5500000L), 4);
+    for (int i = 2; i <= 6; i++) {
+      assertEquals(s.next(), i * 1000000L);
+    }
+    assertEquals(s.backlog(5500000L), 0);
+  }
+
+  @Test
+  public void backlogOfAThreadFarBehind() {
+    // A constant schedule is counted, not drawn: a month at 1/ms is past an int.
+    long month = 31L * 24 * 3600 * 1000000000L;
+    ArrivalScheduler s = scheduler("constant");
+    assertEquals(s.backlog(month), month / 1000000L);
+    assertEquals(s.next(), 1000000L);
+    assertEquals(s.backlog(month), month / 1000000L - 1);
+    // A random schedule only looks so far ahead.
+    ArrivalScheduler poisson = scheduler("poisson");
+    assertEquals(poisson.backlog(month), ArrivalScheduler.MAX_LOOKAHEAD);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownArrivalProcess() {
+    scheduler("lumpy");
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestAsyncDBWrapper {
+
+  @BeforeMethod
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  private static Tracer tracer() {
+    return new Tracer.Builder("TestAsyncDBWrapper").conf(HTraceConfiguration.EMPTY).build();
+  }
+
+  /**
+   * An {@link AsyncDB} whose operations only complete when the test says so.
+   */
+  private static class PendingDB extends AsyncDB {
+    private final ConcurrentLinkedQueue<CompletableFuture<Status>> pending = new ConcurrentLinkedQueue<>();
+
+    private CompletableFuture<Status> pend() {
+      CompletableFuture<Status> future = new CompletableFuture<>();
+      pending.add(future);
+      return future;
+    }
+
+    void completeOne(Status status) {
+      pending.poll().complete(status);
+    }
+
+    @Override
+    public CompletableFuture<Status> readAsync(String table, String key, Set<String> fields,
+                                               Map<String, ByteIterator> result) {
+      return pend();
+    }
+
+    @Override
+    public CompletableFuture<Status> scanAsync(String table, String startkey, int recordcount, Set<String> fields,
+                                               Vector<HashMap<String, ByteIterator>> result) {
+      return pend();
+    }
+
+    @Override
+    public CompletableFuture<Status> updateAsync(String table, String key, Map<String, ByteIterator> values) {
+      return pend();
+    }
+
+    @Override
+    public CompletableFuture<Status> insertAsync(String table, String key, Map<String, ByteIterator> values) {
+      return pend();
+    }
+
+    @Override
+    public CompletableFuture<Status> deleteAsync(String table, String key) {
+      return pend();
+    }
+  }
+
+  @Test
+  public void boundsOutstandingOperations() throws Exception {
+    final PendingDB db = new PendingDB();
+    final AsyncDBWrapper wrapper = new AsyncDBWrapper(db, tracer(), 2);
+
+    assertEquals(wrapper.read("t", "k1", null, new HashMap<String, ByteIterator>()), Status.BATCHED_OK);
+    assertEquals(wrapper.delete("t", "k2"), Status.BATCHED_OK);
+    assertEquals(wrapper.getOutstanding(), 2);
+
+    Thread third = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        wrapper.delete("t", "k3");
+      }
+    });
+    third.start();
+    third.join(200);
+    assertTrue(third.isAlive(), "A third operation should wait for the window");
+
+    db.completeOne(Status.OK);
+    third.join(10000);
+    assertEquals(third.isAlive(), false);
+    assertEquals(wrapper.getOutstanding(), 2);
+
+    db.completeOne(Status.OK);
+    db.completeOne(Status.ERROR);
+    assertEquals(wrapper.getOutstanding(), 0);
+  }
+
+  @Test
+  public void insertCompletesAfterReturning() throws Exception {
+    final PendingDB db = new PendingDB();
+    final AsyncDBWrapper wrapper = new AsyncDBWrapper(db, tracer(), 2);
+    final AtomicInteger completed = new AtomicInteger();
+    Runnable callback = completed::incrementAndGet;
+
+    assertEquals(wrapper.insert("t", "k1", new HashMap<String, ByteIterator>(), callback), Status.BATCHED_OK);
+    assertEquals(completed.get(), 0);
+    db.completeOne(Status.ERROR);
+    assertEquals(completed.get(), 1);
+  }
+
+  @Test
+  public void adaptsSynchronousBindings() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(BasicDB.VERBOSE, "false");
+    DB db = DBFactory.newAsyncDB("com.yahoo.ycsb.BasicDB", p, tracer(), 4);
+    assertTrue(db instanceof AsyncDBWrapper);
+    db.init();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(db.update("t", "k" + i, new HashMap<String, ByteIterator>()), Status.BATCHED_OK);
+    }
+    db.cleanup();
+    assertEquals(((AsyncDBWrapper) db).getOutstanding(), 0);
+  }
+}
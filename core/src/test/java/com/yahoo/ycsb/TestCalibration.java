@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class TestCalibration {
+
+  @Test
+  public void nearCeiling() {
+    assertTrue(Calibration.isNearCeiling(850, 1000, 0.2));
+    assertTrue(Calibration.isNearCeiling(1200, 1000, 0.2));
+    assertFalse(Calibration.isNearCeiling(700, 1000, 0.2));
+    assertFalse(Calibration.isNearCeiling(700, 0, 0.2));
+  }
+
+  @Test
+  public void calibrationDBReadsValues() {
+    Calibration.CalibrationDB db = new Calibration.CalibrationDB();
+    db.getProperties().setProperty(BasicDB.VERBOSE, "false");
+    db.init();
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put("field0", new RandomByteIterator(100));
+    assertTrue(values.get("field0").hasNext());
+    db.insert("usertable", "user1", values);
+    assertFalse(values.get("field0").hasNext());
+  }
+}
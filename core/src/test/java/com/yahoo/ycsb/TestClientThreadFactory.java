@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class TestClientThreadFactory {
+
+  private static void runAll(ThreadFactory factory, int count) throws InterruptedException {
+    final AtomicInteger ran = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      threads.add(factory.newThread(new Runnable() {
+        @Override
+        public void run() {
+          ran.incrementAndGet();
+        }
+      }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(ran.get(), count);
+  }
+
+  @Test
+  public void platformThreads() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ClientThreadFactory.THREAD_STACK_SIZE_PROPERTY, "131072");
+    runAll(ClientThreadFactory.create(props), 10);
+  }
+
+  @Test
+  public void virtualThreadsOrFallback() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ClientThreadFactory.THREAD_MODE_PROPERTY, "virtual");
+    runAll(ClientThreadFactory.create(props), 1000);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownMode() {
+    Properties props = new Properties();
+    props.setProperty(ClientThreadFactory.THREAD_MODE_PROPERTY, "green");
+    ClientThreadFactory.create(props);
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.MapExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+public class TestCoordinator {
+
+  @Test
+  public void splitsTheLoadPhase() {
+    Properties props = new Properties();
+    props.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Workload.INSERT_START_PROPERTY, "100");
+    props.setProperty(Client.TARGET_PROPERTY, "1000");
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "3");
+
+    long next = 100;
+    long target = 0;
+    for (int i = 0; i < 3; i++) {
+      Properties worker = Coordinator.split(props, i, 3);
+      assertFalse(worker.containsKey(Coordinator.WORKERS_PROPERTY));
+      assertEquals(worker.getProperty(Coordinator.WORKER_INDEX_PROPERTY), Integer.toString(i));
+      assertEquals(Long.parseLong(worker.getProperty(Workload.INSERT_START_PROPERTY)), next);
+      next += Long.parseLong(worker.getProperty(Workload.INSERT_COUNT_PROPERTY));
+      target += Long.parseLong(worker.getProperty(Client.TARGET_PROPERTY));
+    }
+    assertEquals(next, 1000);
+    assertEquals(target, 1000);
+    assertEquals(Coordinator.split(props, 0, 3).getProperty(Workload.INSERT_COUNT_PROPERTY), "300");
+  }
+
+  @Test
+  public void splitsTheTransactionPhase() {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    props.setProperty(Client.TARGET_PROPERTY, "2");
+    assertEquals(Coordinator.split(props, 0, 3).getProperty(Client.OPERATION_COUNT_PROPERTY), "4");
+    assertEquals(Coordinator.split(props, 2, 3).getProperty(Client.OPERATION_COUNT_PROPERTY), "3");
+    // Never unthrottled.
+    assertEquals(Coordinator.split(props, 2, 3).getProperty(Client.TARGET_PROPERTY), "1");
+  }
+
+  @Test
+  public void interleavesTheInsertedKeys() {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    // A worker splits its own stride again, e.g. among forked JVMs.
+    Properties worker = Coordinator.split(props, 1, 2);
+    assertEquals(worker.getProperty(Workload.INSERT_STRIDE_PROPERTY), "2");
+    assertEquals(worker.getProperty(Workload.INSERT_OFFSET_PROPERTY), "1");
+    Properties jvm = Coordinator.split(worker, 2, 3);
+    assertEquals(jvm.getProperty(Workload.INSERT_STRIDE_PROPERTY), "6");
+    assertEquals(jvm.getProperty(Workload.INSERT_OFFSET_PROPERTY), "5");
+  }
+
+  @Test
+  public void mergesWorkersOnLocalhost() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Client.WORKLOAD_PROPERTY, CoreWorkload.class.getName());
+    props.setProperty(Client.DB_PROPERTY, BasicDB.class.getName());
+    props.setProperty(BasicDB.VERBOSE, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "2001");
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "2");
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "2");
+    props.setProperty(Coordinator.PORT_PROPERTY, "0");
+    props.setProperty(Coordinator.TIMEOUT_PROPERTY, "60");
+
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    List<Process> workers = new ArrayList<>();
+    MapExporter exporter = new MapExporter();
+    try (Coordinator coordinator = new Coordinator(props)) {
+      for (int i = 0; i < 2; i++) {
+        workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Client.class.getName(),
+            "-p", Worker.COORDINATOR_PROPERTY + "=localhost:" + coordinator.getPort())
+            .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.INHERIT).start());
+      }
+      coordinator.run(false);
+      coordinator.export(exporter);
+    } finally {
+      for (Process worker : workers) {
+        if (!worker.waitFor(30, TimeUnit.SECONDS)) {
+          worker.destroyForcibly();
+        }
+      }
+    }
+
+    assertEquals(exporter.get("OVERALL", "Workers").intValue(), 2);
+    assertTrue(exporter.get("OVERALL", "RunTime(ms)").longValue() >= 0);
+    long operations = exporter.get("READ", "Operations").longValue()
+        + exporter.get("UPDATE", "Operations").longValue();
+    assertEquals(operations, 2001);
+    assertEquals(exporter.get("READ", "Return=OK").longValue(),
+        exporter.get("READ", "Operations").longValue());
+    // Every thread of every worker cleans up.
+    assertEquals(exporter.get("CLEANUP", "Operations").longValue(), 4);
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestDBWrapper {
+
+  @BeforeMethod
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  /**
+   * Answers every read with the status it is given.
+   */
+  private static class StatusDB extends DB {
+    private Status next = Status.OK;
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return next;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return next;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return next;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return next;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return next;
+    }
+  }
+
+  @Test
+  public void failuresAreMeasuredByReturnCode() throws Exception {
+    StatusDB db = new StatusDB();
+    Properties props = new Properties();
+    props.setProperty("latencytrackederrors", "NOT_FOUND");
+    db.setProperties(props);
+    DBWrapper wrapper = new DBWrapper(db, new Tracer.Builder("TestDBWrapper").conf(HTraceConfiguration.EMPTY).build());
+    wrapper.init();
+    // Starts a new interval, the measurements are shared with other tests.
+    Measurements.getMeasurements().getSummary();
+
+    db.next = Status.NOT_FOUND;
+    wrapper.delete("t", "k");
+    wrapper.delete("t", "k");
+    db.next = Status.ERROR;
+    wrapper.delete("t", "k");
+    db.next = Status.OK;
+    wrapper.delete("t", "k");
+
+    String summary = Measurements.getMeasurements().getSummary();
+    assertTrue(summary.contains("[DELETE-NOT_FOUND: Count=2"), summary);
+    assertTrue(summary.contains("[DELETE-FAILED: Count=1"), summary);
+    assertTrue(summary.contains("[DELETE: Count=1"), summary);
+  }
+
+  @Test
+  public void operationIdsAreInterned() {
+    Measurements measurements = new Measurements(new Properties());
+    int id = measurements.getOperationId("READ");
+    assertEquals(measurements.getOperationId("READ"), id);
+    assertTrue(measurements.getOperationId("UPDATE") != id);
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.MapExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+public class TestForkedRun {
+
+  @Test
+  public void splitsTheThreads() {
+    Properties props = new Properties();
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "5");
+    props.setProperty(ForkedRun.JVMS_PROPERTY, "3");
+    Properties first = ForkedRun.split(props, 0, 3);
+    assertFalse(first.containsKey(ForkedRun.JVMS_PROPERTY));
+    assertEquals(first.getProperty(Client.THREAD_COUNT_PROPERTY), "2");
+    assertEquals(ForkedRun.split(props, 2, 3).getProperty(Client.THREAD_COUNT_PROPERTY), "1");
+    // Every JVM runs at least one thread.
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "1");
+    assertEquals(ForkedRun.split(props, 2, 3).getProperty(Client.THREAD_COUNT_PROPERTY), "1");
+  }
+
+  @Test
+  public void slotsPastTwoGigabytes() {
+    assertEquals(ForkedRun.slot(3, 1 << 29), 64 + 3L * (1 << 29));
+    try {
+      ForkedRun.size(4, 1 << 29);
+      fail("The shared file does not fit a mapped buffer.");
+    } catch (IllegalArgumentException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void mergesForkedJvms() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Client.WORKLOAD_PROPERTY, CoreWorkload.class.getName());
+    props.setProperty(Client.DB_PROPERTY, BasicDB.class.getName());
+    props.setProperty(BasicDB.VERBOSE, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "100");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "3001");
+    props.setProperty(Client.THREAD_COUNT_PROPERTY, "3");
+    props.setProperty(ForkedRun.JVMS_PROPERTY, "2");
+    props.setProperty(ForkedRun.JVM_ARGS_PROPERTY, "-Xmx64m");
+    props.setProperty(Coordinator.TIMEOUT_PROPERTY, "60");
+
+    MapExporter exporter = new MapExporter();
+    try (ForkedRun run = new ForkedRun(props)) {
+      run.run(false);
+      run.export(exporter);
+    }
+
+    assertEquals(exporter.get("OVERALL", "Workers").intValue(), 2);
+    long operations = exporter.get("READ", "Operations").longValue()
+        + exporter.get("UPDATE", "Operations").longValue();
+    assertEquals(operations, 3001);
+    assertEquals(exporter.get("UPDATE", "Return=OK").longValue(),
+        exporter.get("UPDATE", "Operations").longValue());
+    assertEquals(exporter.get("CLEANUP", "Operations").longValue(), 3);
+  }
+}
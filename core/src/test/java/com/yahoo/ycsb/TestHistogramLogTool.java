@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.HistogramLog;
+import com.yahoo.ycsb.measurements.LatencyUnit;
+
+public class TestHistogramLogTool {
+  private static final long BASE = 1500000000000L;
+
+  /**
+   * Writes a log of one interval per second, the i-th recording value i times.
+   */
+  private static byte[] log(long base, int intervals, long value) {
+    return log(base, intervals, value, 3);
+  }
+
+  private static byte[] log(long base, int intervals, long value, int significantDigits) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HistogramLog.Writer writer = new HistogramLog.Writer(out, "test", LatencyUnit.MICROSECONDS, base);
+    for (int i = 1; i <= intervals; i++) {
+      Histogram h = new Histogram(significantDigits);
+      h.recordValueWithCount(value, i);
+      h.setStartTimeStamp(base + (i - 1) * 1000);
+      h.setEndTimeStamp(base + i * 1000);
+      writer.write(h);
+    }
+    writer.close();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void mergesLogsOfSeveralClients() throws Exception {
+    List<Histogram> intervals = new ArrayList<>();
+    assertEquals(HistogramLogTool.read(new ByteArrayInputStream(log(BASE, 3, 100)), intervals),
+        LatencyUnit.MICROSECONDS);
+    // A client started half a second later and much slower.
+    HistogramLogTool.read(new ByteArrayInputStream(log(BASE + 500, 3, 10000)), intervals);
+    assertEquals(intervals.size(), 6);
+    assertEquals(HistogramLogTool.getStart(intervals), BASE);
+    assertEquals(intervals.get(1).getStartTimeStamp(), BASE + 1000);
+    assertEquals(intervals.get(1).getEndTimeStamp(), BASE + 2000);
+
+    Histogram merged = HistogramLogTool.merge(intervals, BASE, Long.MAX_VALUE);
+    assertEquals(merged.getTotalCount(), 12);
+    assertEquals(merged.getValueAtPercentile(50), 100);
+    assertEquals(merged.getMaxValue(), 10000, 10);
+    assertEquals(merged.getEndTimeStamp(), BASE + 3500);
+
+    // Only the intervals starting in the second second.
+    Histogram slice = HistogramLogTool.merge(intervals, BASE + 1000, BASE + 2000);
+    assertEquals(slice.getTotalCount(), 2 + 2);
+
+    SortedMap<Long, Histogram> series = HistogramLogTool.series(intervals, BASE, Long.MAX_VALUE, 2000);
+    assertEquals(series.size(), 2);
+    assertEquals(series.get(0L).getTotalCount(), 1 + 2 + 1 + 2);
+    assertEquals(series.get(2000L).getTotalCount(), 3 + 3);
+    assertEquals(series.get(2000L).getStartTimeStamp(), BASE + 2000);
+  }
+
+  @Test
+  public void keepsThePrecisionOfTheLogs() throws Exception {
+    List<Histogram> intervals = new ArrayList<>();
+    HistogramLogTool.read(new ByteArrayInputStream(log(BASE, 2, 123456, 3)), intervals);
+    HistogramLogTool.read(new ByteArrayInputStream(log(BASE, 2, 123456, 5)), intervals);
+
+    Histogram merged = HistogramLogTool.merge(intervals, BASE, Long.MAX_VALUE);
+    assertEquals(merged.getNumberOfSignificantValueDigits(), 5);
+    assertEquals(merged.getTotalCount(), 6);
+    assertEquals(HistogramLogTool.series(intervals, BASE, Long.MAX_VALUE, 1000).get(0L)
+        .getNumberOfSignificantValueDigits(), 5);
+  }
+}
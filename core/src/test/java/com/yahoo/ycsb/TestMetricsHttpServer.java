@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestMetricsHttpServer {
+
+  private static String scrape(MetricsHttpServer server) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+    assertEquals(connection.getResponseCode(), 200);
+    assertEquals(connection.getContentType(), MetricsHttpServer.CONTENT_TYPE);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (InputStream in = connection.getInputStream()) {
+      byte[] buffer = new byte[4096];
+      for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+        body.write(buffer, 0, n);
+      }
+    }
+    return body.toString("UTF-8");
+  }
+
+  @Test
+  public void servesTheLastInterval() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    Measurements measurements = new Measurements(props);
+    for (int i = 1; i <= 100; i++) {
+      measurements.measure("READ", i * 1000);
+      measurements.reportStatus("READ", i % 10 == 0 ? Status.NOT_FOUND : Status.OK);
+    }
+
+    MetricsHttpServer server = new MetricsHttpServer(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new double[]{50, 99.9});
+    try {
+      assertEquals(scrape(server), "");
+
+      server.update(100, 10.0, Double.NaN, 0, false,
+          measurements.getIntervalSnapshots(server.getPercentiles()), measurements.getStatusCounts());
+      String page = scrape(server);
+      assertTrue(page.contains("# TYPE ycsb_operations_total counter\nycsb_operations_total 100\n"), page);
+      assertFalse(page.contains("ycsb_target_throughput"), page);
+      assertTrue(page.contains("ycsb_latency_seconds{operation=\"READ\",quantile=\"0.5\"} 0.05"), page);
+      assertTrue(page.contains("ycsb_latency_seconds{operation=\"READ\",quantile=\"0.999\"} 0.1"), page);
+      assertTrue(page.contains("ycsb_latency_seconds_count{operation=\"READ\"} 100\n"), page);
+      assertTrue(page.contains("ycsb_return_codes_total{operation=\"READ\",code=\"OK\"} 90\n"), page);
+      assertTrue(page.contains("ycsb_return_codes_total{operation=\"READ\",code=\"NOT_FOUND\"} 10\n"), page);
+
+      // The counters keep running while the quantiles are those of the interval.
+      measurements.measure("READ", 1000);
+      server.update(101, 1.0, 5.0, 0, false,
+          measurements.getIntervalSnapshots(server.getPercentiles()), measurements.getStatusCounts());
+      page = scrape(server);
+      assertTrue(page.contains("ycsb_target_throughput 5.0\n"), page);
+      assertTrue(page.contains("ycsb_latency_seconds{operation=\"READ\",quantile=\"0.5\"} 0.001"), page);
+      assertTrue(page.contains("ycsb_latency_seconds_count{operation=\"READ\"} 101\n"), page);
+    } finally {
+      server.close();
+    }
+  }
+
+  @Test
+  public void countsReturnCodesOfIntendedMeasurements() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "intended");
+    Measurements measurements = new Measurements(props);
+    for (int i = 1; i <= 10; i++) {
+      measurements.measureIntended("READ", i * 1000);
+      measurements.reportStatus("READ", i % 5 == 0 ? Status.ERROR : Status.OK);
+    }
+
+    MetricsHttpServer server = new MetricsHttpServer(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new double[]{50});
+    try {
+      server.update(10, 10.0, Double.NaN, 0, false,
+          measurements.getIntervalSnapshots(server.getPercentiles()), measurements.getStatusCounts());
+      String page = scrape(server);
+      assertTrue(page.contains("ycsb_latency_seconds_count{operation=\"READ\"} 10\n"), page);
+      assertTrue(page.contains("ycsb_return_codes_total{operation=\"READ\",code=\"OK\"} 8\n"), page);
+      assertTrue(page.contains("ycsb_return_codes_total{operation=\"READ\",code=\"ERROR\"} 2\n"), page);
+    } finally {
+      server.close();
+    }
+  }
+}
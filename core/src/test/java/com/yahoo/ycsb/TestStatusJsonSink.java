@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.IntervalSnapshot;
+import com.yahoo.ycsb.measurements.Measurements;
+
+public class TestStatusJsonSink {
+
+  @Test
+  public void writesOneObjectPerLine() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    Measurements measurements = new Measurements(props);
+    for (int i = 1; i <= 100; i++) {
+      measurements.measure("READ", i);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StatusJsonSink sink = new StatusJsonSink(out, new double[]{50, 99.9});
+    List<IntervalSnapshot> snapshots = measurements.getIntervalSnapshots(sink.getPercentiles());
+    sink.write(2000, 1000, 100, 100.0, Double.NaN, 0, false, snapshots);
+    sink.write(3000, 2000, 100, 0.0, 50.0, 3, false, measurements.getIntervalSnapshots(sink.getPercentiles()));
+    sink.close();
+
+    String[] lines = out.toString("UTF-8").split("\n");
+    assertEquals(lines.length, 2);
+    ObjectMapper mapper = new ObjectMapper();
+
+    JsonNode first = mapper.readTree(lines[0]);
+    assertEquals(first.get("timestamp").getLongValue(), 2000);
+    assertFalse(first.has("targetThroughput"));
+    JsonNode read = first.get("measurements").get(0);
+    assertEquals(read.get("name").getTextValue(), "READ");
+    assertEquals(read.get("count").getLongValue(), 100);
+    assertEquals(read.get("unit").getTextValue(), "us");
+    assertEquals(read.get("max").getDoubleValue(), 100.0, 0.0);
+    assertEquals(read.get("percentiles").get("50").getDoubleValue(), 50.0, 0.0);
+    assertTrue(read.get("percentiles").has("99.9"));
+
+    JsonNode second = mapper.readTree(lines[1]);
+    assertEquals(second.get("targetThroughput").getDoubleValue(), 50.0, 0.0);
+    assertEquals(second.get("behindSchedule").getLongValue(), 3);
+    assertEquals(second.get("measurements").get(0).get("count").getLongValue(), 0);
+  }
+
+  @Test
+  public void notConfigured() throws Exception {
+    assertNull(StatusJsonSink.create(new Properties()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalidPercentiles() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(StatusJsonSink.OUTPUT_PROPERTY, "-");
+    props.setProperty(StatusJsonSink.PERCENTILES_PROPERTY, "50,p99");
+    StatusJsonSink.create(props);
+  }
+}
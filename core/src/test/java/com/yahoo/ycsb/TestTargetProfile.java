@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class TestTargetProfile {
+
+  private static TargetProfile parse(String text) throws Exception {
+    return TargetProfile.parse(new StringReader(text));
+  }
+
+  private static long sec(double seconds) {
+    return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  public void stepsRampsAndSines() throws Exception {
+    TargetProfile p = parse("# comment\n"
+        + "0 step 100\n"
+        + "10 ramp 100 300\n"
+        + "\n"
+        + "20 sine 200 100 10\n"
+        + "40 end\n");
+    assertFalse(p.isConstant());
+
+    assertEquals(p.rateAt(sec(5)), 100, 1e-9);
+    assertEquals(p.rateAt(sec(15)), 200, 1e-9);
+    assertEquals(p.rateAt(sec(22.5)), 300, 1e-9);
+    assertEquals(p.rateAt(sec(27.5)), 100, 1e-9);
+    assertEquals(p.rateAt(sec(40)), 0, 1e-9);
+
+    assertEquals(p.opsUntil(sec(10)), 1000, 1e-6);
+    assertEquals(p.opsUntil(sec(20)), 3000, 1e-6);
+    // Whole periods of the sine average out to its mean.
+    assertEquals(p.opsUntil(sec(40)), 7000, 1e-6);
+    assertEquals(p.opsUntil(sec(100)), 7000, 1e-6);
+  }
+
+  @Test
+  public void offsetForOpsInvertsOpsUntil() throws Exception {
+    TargetProfile p = parse("0 ramp 10 1000\n60 sine 500 500 7\n120 step 0\n130 step 50\n");
+    for (double ops = 1; ops < 100000; ops *= 1.7) {
+      long offset = p.offsetForOps(ops);
+      assertTrue(offset != Long.MAX_VALUE);
+      assertEquals(p.opsUntil(offset), ops, 1e-3 * Math.max(1, ops / 1000));
+    }
+  }
+
+  @Test
+  public void endedProfileHasNoMoreArrivals() throws Exception {
+    TargetProfile p = parse("0 step 10\n1 end\n");
+    assertEquals(p.offsetForOps(10), sec(1));
+    assertEquals(p.offsetForOps(10.5), Long.MAX_VALUE);
+  }
+
+  @Test
+  public void boundedConstantProfileEnds() throws Exception {
+    TargetProfile p = TargetProfile.constant(100, 2);
+    assertEquals(p.offsetForOps(200), 2000000000L);
+    assertEquals(p.offsetForOps(201), Long.MAX_VALUE);
+    assertEquals(p.isConstant(), false);
+  }
+
+  @Test
+  public void scaleSplitsTheRate() throws Exception {
+    TargetProfile p = parse("0 sine 100 50 10\n").scale(0.25);
+    assertEquals(p.rateAt(sec(2.5)), 37.5, 1e-9);
+    assertTrue(TargetProfile.constant(5).scale(2).isConstant());
+  }
+
+  @Test
+  public void schedulerFollowsProfile() throws Exception {
+    ArrivalScheduler s = ArrivalScheduler.create(new Properties(), parse("0 step 1000\n1 step 10\n2 end\n"));
+    s.start(0);
+    int arrivals = 0;
+    while (s.next() != Long.MAX_VALUE) {
+      arrivals++;
+    }
+    assertEquals(arrivals, 1010);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rampMustNotBeLast() throws Exception {
+    parse("0 ramp 1 2\n");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void segmentsMustBeOrdered() throws Exception {
+    parse("0 step 1\n5 step 2\n5 step 3\n");
+  }
+}
@@ -21,6 +21,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import org.testng.annotations.Test;
 
@@ -99,6 +100,40 @@ public class TestUtils {
     Utils.bytesToDouble(new byte[] { 0, 0, 0, 0, 0, 0, 0 });
   }
   
+  @Test
+  public void xoshiroRandom() throws Exception {
+    Random random = Utils.random();
+    assertTrue(random instanceof XoshiroRandom);
+    assertTrue(random == Utils.random());
+    // The same seed gives the same sequence.
+    Random a = new XoshiroRandom(42);
+    Random b = new XoshiroRandom(42);
+    double sum = 0;
+    for (int i = 0; i < 100000; i++) {
+      long value = a.nextLong();
+      assertEquals(b.nextLong(), value);
+      double d = a.nextDouble();
+      b.nextDouble();
+      assertTrue(d >= 0 && d < 1);
+      int bounded = a.nextInt(10);
+      b.nextInt(10);
+      assertTrue(bounded >= 0 && bounded < 10);
+      sum += d;
+    }
+    assertEquals(sum / 100000, 0.5, 0.01);
+  }
+
+  @Test
+  public void mix64hash() throws Exception {
+    // The keys of data loaded with the FNV hash must still be found.
+    assertEquals(Utils.hash(0), Utils.fnvhash64(0));
+    assertEquals(Utils.fnvhash64(1), 0x7632CED6E2D5105CL);
+    for (long i = 0; i < 1000; i++) {
+      assertTrue(Utils.mix64hash(i) >= 0);
+    }
+    assertTrue(Utils.mix64hash(1) != Utils.mix64hash(2));
+  }
+
   @Test
   public void jvmUtils() throws Exception {
     // This should ALWAYS return at least one thread.
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+public class TestWarmup {
+
+  @Test
+  public void measurementsDuringWarmupAreKeptApart() {
+    Measurements measurements = new Measurements(new Properties());
+    Warmup warmup = new Warmup(measurements, 3, 0);
+    warmup.start();
+    measurements.measure("READ", 100);
+    measurements.reportStatus("READ", Status.OK);
+    warmup.opDone();
+    warmup.opDone();
+    assertTrue(warmup.isActive());
+    warmup.opDone();
+    assertFalse(warmup.isActive());
+    assertEquals(warmup.getOps(), 3);
+    measurements.measure("READ", 200);
+
+    String summary = measurements.getSummary();
+    assertTrue(summary.contains("[WARMUP-READ: Count=1"), summary);
+    assertTrue(summary.contains("[READ: Count=1"), summary);
+  }
+
+  @Test
+  public void warmupLastsAtLeastTheConfiguredTime() {
+    Warmup warmup = new Warmup(new Measurements(new Properties()), 0, TimeUnit.HOURS.toNanos(1));
+    warmup.start();
+    warmup.opDone();
+    assertTrue(warmup.isActive());
+  }
+
+  @Test
+  public void noWarmupByDefault() {
+    assertNull(Warmup.create(new Properties()));
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the AliasGenerator class and the generators built on it.
+ */
+public class TestAliasGenerator {
+  private static final int DRAWS = 400000;
+
+  @Test
+  public void choosesByWeight() {
+    double[] weights = {0.5, 0, 0.05, 0.3, 0.15};
+    AliasGenerator<Integer> generator = new AliasGenerator<>();
+    for (int i = 0; i < weights.length; i++) {
+      generator.addValue(weights[i], i);
+    }
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < DRAWS; i++) {
+      counts[generator.nextValue()]++;
+    }
+    assertEquals(counts[1], 0);
+    for (int i = 0; i < weights.length; i++) {
+      assertEquals(counts[i] / (double) DRAWS, weights[i], 0.01);
+    }
+    assertEquals(generator.lastValue(), generator.lastValue());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void nothingToChoose() {
+    AliasGenerator<String> generator = new AliasGenerator<>();
+    generator.addValue(0, "READ");
+    generator.nextValue();
+  }
+
+  @Test
+  public void histogramKeepsItsDistribution() {
+    long[] buckets = {3, 0, 2, 5, 0, 4, 1};
+    HistogramGenerator generator = new HistogramGenerator(buckets, 8);
+    // How often each value came out of walking the buckets, for every number below the area.
+    Map<Long, Integer> expected = new HashMap<>();
+    int area = 0;
+    for (long bucket : buckets) {
+      area += bucket;
+    }
+    for (int number = 0; number < area; number++) {
+      long value = -1;
+      long remaining = number;
+      int i;
+      for (i = 0; i < buckets.length - 1 && value < 0; i++) {
+        remaining -= buckets[i];
+        if (remaining <= 0) {
+          value = (i + 1) * 8L;
+        }
+      }
+      if (value < 0) {
+        value = i * 8L;
+      }
+      expected.put(value, expected.getOrDefault(value, 0) + 1);
+    }
+
+    Map<Long, Integer> counts = new HashMap<>();
+    for (int i = 0; i < DRAWS; i++) {
+      long value = generator.nextValue();
+      counts.put(value, counts.getOrDefault(value, 0) + 1);
+    }
+    assertEquals(counts.keySet(), expected.keySet());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(counts.get(entry.getKey()) / (double) DRAWS, entry.getValue() / (double) area, 0.01);
+    }
+  }
+}
@@ -19,7 +19,21 @@ package com.yahoo.ycsb.generator;
 
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 
 public class TestZipfianGenerator {
@@ -36,4 +50,134 @@ public class TestZipfianGenerator {
         }
 
     }
+
+    @Test
+    public void testApproximateZeta() {
+        long n = 3 * Zeta.EXACT_LIMIT + 12345;
+        for (double theta : new double[] {0.2, 0.5, 0.99, 1.0, 1.01, 1.5, 3.0}) {
+            // Adding up the smallest terms first does not lose them to rounding.
+            double exact = 0;
+            for (long i = n; i > 0; i--) {
+                exact += 1 / Math.pow(i, theta);
+            }
+            assertEquals(exact, Zeta.approximate(n, theta), exact * 1e-12);
+            assertEquals(exact, Zeta.exact(0, n, theta), exact * 1e-10);
+            assertEquals(exact, Zeta.zeta(Zeta.EXACT_LIMIT / 2, n, theta,
+                Zeta.zeta(Zeta.EXACT_LIMIT / 2, theta)), exact * 1e-10);
+        }
+        assertEquals(ScrambledZipfianGenerator.ZETAN,
+            Zeta.zeta(ScrambledZipfianGenerator.ITEM_COUNT + 1, ZipfianGenerator.ZIPFIAN_CONSTANT), 1e-9);
+    }
+
+    @Test
+    public void testZetaCache() throws Exception {
+        File cache = File.createTempFile("zeta", ".properties");
+        try {
+            long n = Zeta.EXACT_LIMIT + 1;
+            Zeta.setExact(true);
+            Zeta.setCacheFile(cache);
+            double exact = Zeta.zeta(n, 0.75);
+            assertEquals(Zeta.sum(0, n, 0.75, 0), exact, exact * 1e-12);
+
+            Properties stored = new Properties();
+            try (InputStream in = new FileInputStream(cache)) {
+                stored.load(in);
+            }
+            stored.setProperty(n + ",0.75", "42.0");
+            try (OutputStream out = new FileOutputStream(cache)) {
+                stored.store(out, null);
+            }
+            Zeta.setCacheFile(null);
+            Zeta.setCacheFile(cache);
+            assertEquals(42.0, Zeta.zeta(n, 0.75), 0);
+        } finally {
+            Zeta.setExact(false);
+            Zeta.setCacheFile(null);
+            cache.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentGrowth() throws Exception {
+        final ConcurrentZipfianGenerator zipfian = new ConcurrentZipfianGenerator(1000);
+        final AtomicLong items = new AtomicLong(1000);
+        final AtomicBoolean outOfRange = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    long count = i % 4 == 0 ? items.incrementAndGet() : items.get();
+                    long value = zipfian.nextLong(count);
+                    if (value < 0 || value >= count) {
+                        outOfRange.set(true);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(outOfRange.get());
+        long count = zipfian.getCountForZeta();
+        assertTrue(count > 1000 && count <= items.get());
+        double zetan = Zeta.zeta(count, ZipfianGenerator.ZIPFIAN_CONSTANT);
+        assertEquals(zetan, zipfian.getZetan(), zetan * 1e-12);
+    }
+
+    @Test
+    public void testConcurrentMean() {
+        // The mean of the ranks, weighted by their probability.
+        long items = 1000;
+        double weighted = 0;
+        for (long rank = 0; rank < items; rank++) {
+            weighted += rank / Math.pow(rank + 1, ZipfianGenerator.ZIPFIAN_CONSTANT);
+        }
+        double expected = 10 + weighted / Zeta.zeta(items, ZipfianGenerator.ZIPFIAN_CONSTANT);
+        ConcurrentZipfianGenerator zipfian = new ConcurrentZipfianGenerator(10, 10 + items - 1,
+            ZipfianGenerator.ZIPFIAN_CONSTANT);
+        assertEquals(expected, zipfian.mean(), expected * 1e-12);
+
+        long n = 3 * Zeta.EXACT_LIMIT + 12345;
+        for (double theta : new double[] {0.2, 0.5, 0.99}) {
+            double exact = Zeta.sum(0, n, theta - 1, 0);
+            assertEquals(exact, ConcurrentZipfianGenerator.firstMoment(n, theta), exact * 1e-10);
+        }
+    }
+
+    @Test
+    public void testPermutation() {
+        for (long items : new long[] {1, 2, 3, 1000, 1024, 1025, 77777}) {
+            PermutedZipfianGenerator zipfian = new PermutedZipfianGenerator(items);
+            BitSet seen = new BitSet();
+            for (long rank = 0; rank < items; rank++) {
+                long item = zipfian.permute(rank);
+                assertTrue(item >= 0 && item < items);
+                assertFalse(seen.get((int) item));
+                seen.set((int) item);
+            }
+        }
+    }
+
+    @Test
+    public void testPermutedSkew() {
+        // Each item is drawn as often as its rank: the most popular one with probability 1 / zeta(n).
+        long items = 100;
+        PermutedZipfianGenerator zipfian = new PermutedZipfianGenerator(5, 5 + items - 1);
+        long[] counts = new long[(int) items];
+        int draws = 200000;
+        for (int i = 0; i < draws; i++) {
+            long value = zipfian.nextValue();
+            assertTrue(value >= 5 && value < 5 + items);
+            counts[(int) (value - 5)]++;
+        }
+        long top = 0;
+        for (long count : counts) {
+            top = Math.max(top, count);
+        }
+        double expected = draws / Zeta.zeta(items, ZipfianGenerator.ZIPFIAN_CONSTANT);
+        assertEquals(expected, top, expected * 0.05);
+    }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * An exporter for tests that keeps the last value written for each metric and measurement, in
+ * the order they were first written.
+ */
+public class MapExporter implements MeasurementsExporter {
+  private final Map<String, Map<String, Number>> values = new LinkedHashMap<>();
+
+  /**
+   * @return The value of a measurement of a metric, or null if none was written.
+   */
+  public Number get(String metric, String measurement) {
+    return getValues(metric).get(measurement);
+  }
+
+  /**
+   * @return The values of a metric by measurement, empty if none was written.
+   */
+  public Map<String, Number> getValues(String metric) {
+    Map<String, Number> metricValues = values.get(metric);
+    return metricValues == null ? Collections.<String, Number>emptyMap() : metricValues;
+  }
+
+  private void put(String metric, String measurement, Number value) {
+    Map<String, Number> metricValues = values.get(metric);
+    if (metricValues == null) {
+      metricValues = new LinkedHashMap<>();
+      values.put(metric, metricValues);
+    }
+    metricValues.put(measurement, value);
+  }
+
+  @Override
+  public void write(String metric, String measurement, int i) {
+    put(metric, measurement, i);
+  }
+
+  @Override
+  public void write(String metric, String measurement, long i) {
+    put(metric, measurement, i);
+  }
+
+  @Override
+  public void write(String metric, String measurement, double d) {
+    put(metric, measurement, d);
+  }
+
+  @Override
+  public void close() throws IOException {
+  }
+
+  @Override
+  public String toString() {
+    return values.toString();
+  }
+}
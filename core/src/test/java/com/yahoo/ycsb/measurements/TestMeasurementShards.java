@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.Status;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class TestMeasurementShards {
+
+  private static final int THREADS = 8;
+  private static final int OPS = 10000;
+
+
+  @DataProvider(name = "types")
+  public Object[][] types() {
+    return new Object[][] {{"hdrhistogram"}, {"histogram"}, {"hdrhistogram+histogram"}};
+  }
+
+  @Test(dataProvider = "types")
+  public void shardsAreMergedOnExport(String type) throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    props.setProperty(Measurements.MEASUREMENT_SHARDS_PROPERTY, "true");
+    final Measurements measurements = new Measurements(props);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < OPS; i++) {
+            measurements.measure("READ", 1000 + i % 1000);
+            measurements.reportStatus("READ", Status.OK);
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    MapExporter exporter = new MapExporter();
+    measurements.exportMeasurements(exporter);
+    String name = type.equals("hdrhistogram+histogram") ? "HdrREAD" : "READ";
+    assertEquals(exporter.get(name, "Operations").longValue(), (long) THREADS * OPS);
+    assertEquals(exporter.get(name, "MinLatency(us)").longValue(), 1000L);
+    assertEquals(exporter.get(name, "Return=OK").longValue(), (long) THREADS * OPS);
+  }
+
+  @Test
+  public void retiredShardsAreKept() throws Exception {
+    final OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", new Properties());
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          OneMeasurement.Shard shard = m.newShard();
+          for (int i = 0; i < OPS; i++) {
+            shard.measure(1000 + i % 1000);
+            shard.reportStatus(Status.OK);
+          }
+          m.retireShard(shard);
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertTrue(m.getShards().isEmpty());
+
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(exporter.get("READ", "Operations").longValue(), (long) THREADS * OPS);
+    assertEquals(exporter.get("READ", "Return=OK").longValue(), (long) THREADS * OPS);
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+public class TestOneMeasurementHdrHistogram {
+
+  private static Map<String, Number> export(Properties props, long... latenciesNanos) throws IOException {
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    for (long latency : latenciesNanos) {
+      m.measureNanos(latency);
+    }
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    return exporter.getValues("READ");
+  }
+
+  @Test
+  public void microsecondsByDefault() throws Exception {
+    Map<String, Number> values = export(new Properties(), 1500, 2999);
+    assertEquals(values.get("MinLatency(us)"), 1L);
+    assertEquals(values.get("MaxLatency(us)"), 2L);
+  }
+
+  @Test
+  public void nanosecondsReportedInMicroseconds() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "ns");
+    Map<String, Number> values = export(props, 1500, 2999);
+    assertEquals(values.get("MinLatency(us)").doubleValue(), 1.5, 0.01);
+    assertEquals(values.get("MaxLatency(us)").doubleValue(), 3.0, 0.01);
+    assertEquals(values.get("AverageLatency(us)").doubleValue(), 2.25, 0.01);
+  }
+
+  @Test
+  public void nanosecondsReportedInNanoseconds() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "ns");
+    props.setProperty(OneMeasurementHdrHistogram.REPORT_UNIT_PROPERTY, "ns");
+    Map<String, Number> values = export(props, 1500, 2999);
+    assertEquals(values.get("MinLatency(ns)"), 1500L);
+    assertTrue(values.get("MaxLatency(ns)").longValue() >= 2999L);
+    assertTrue(values.get("MaxLatency(ns)").longValue() <= 3002L);
+  }
+
+  @Test
+  public void microsecondsAreScaledToNanoseconds() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "ns");
+    props.setProperty(OneMeasurementHdrHistogram.REPORT_UNIT_PROPERTY, "ns");
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    m.measure(7);
+    assertEquals(m.getIntervalHistogram().getMinValue(), 7000L);
+  }
+
+  @Test
+  public void valuesAreNotLatencies() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "ms");
+    Measurements measurements = new Measurements(props);
+    measurements.measureValue("THREAD_COUNT", 12);
+    measurements.measureValue("THREAD_COUNT", 40);
+    measurements.measureNanos("READ", 5000000);
+    MapExporter exporter = new MapExporter();
+    measurements.exportMeasurements(exporter);
+    assertEquals(exporter.get("THREAD_COUNT", "MinLatency(us)"), 12L);
+    assertEquals(exporter.get("THREAD_COUNT", "MaxLatency(us)"), 40L);
+    assertEquals(exporter.get("READ", "MinLatency(us)").longValue(), 5000L);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownUnit() {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "s");
+    new OneMeasurementHdrHistogram("READ", props);
+  }
+
+  @Test
+  public void logsIntervalsWithoutStatusThread() throws Exception {
+    File dir = Files.createTempDirectory("hdr").toFile();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_PROPERTY, "true");
+    props.setProperty(OneMeasurementHdrHistogram.OUTPUT_PATH_PROPERTY, dir.getPath() + File.separator);
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_INTERVAL_PROPERTY, "3600000");
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    for (int i = 1; i <= 100; i++) {
+      m.measure(i);
+    }
+    m.logInterval();
+    // Taken by the status thread, but logged all the same.
+    m.measure(1000);
+    m.getSummary();
+    m.exportMeasurements(new MapExporter());
+
+    File log = new File(dir, "READ.hdr");
+    long count = 0;
+    long max = 0;
+    int intervals = 0;
+    long previousEnd = 0;
+    try (HistogramLog.Reader reader = new HistogramLog.Reader(new FileInputStream(log))) {
+      for (Histogram interval = reader.next(); interval != null; interval = reader.next()) {
+        assertTrue(interval.getStartTimeStamp() >= previousEnd);
+        previousEnd = interval.getEndTimeStamp();
+        count += interval.getTotalCount();
+        max = Math.max(max, interval.getMaxValue());
+        intervals++;
+      }
+      assertEquals(reader.getUnit(), LatencyUnit.MICROSECONDS);
+    }
+    assertTrue(intervals > 1);
+    assertEquals(count, 101);
+    assertTrue(max >= 1000 && max <= 1001);
+    log.delete();
+    dir.delete();
+  }
+
+  @Test
+  public void logAndStatusIntervalsSeeEveryLatency() throws Exception {
+    File dir = Files.createTempDirectory("hdr").toFile();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_PROPERTY, "true");
+    props.setProperty(OneMeasurementHdrHistogram.OUTPUT_PATH_PROPERTY, dir.getPath() + File.separator);
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_INTERVAL_PROPERTY, "3600000");
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    for (int i = 1; i <= 10; i++) {
+      m.measure(i);
+    }
+    // The log tick drains the recorder before the status thread gets to it.
+    m.logInterval();
+    m.measure(20);
+    assertEquals(m.getIntervalHistogram().getTotalCount(), 11);
+    m.measure(30);
+    m.logInterval();
+    assertEquals(m.getIntervalHistogram().getTotalCount(), 1);
+    assertEquals(m.getIntervalHistogram().getTotalCount(), 0);
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(exporter.get("READ", "Operations"), 12L);
+
+    File log = new File(dir, "READ.hdr");
+    long count = 0;
+    try (HistogramLog.Reader reader = new HistogramLog.Reader(new FileInputStream(log))) {
+      for (Histogram interval = reader.next(); interval != null; interval = reader.next()) {
+        count += interval.getTotalCount();
+      }
+    }
+    assertEquals(count, 12);
+    log.delete();
+    dir.delete();
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestOneMeasurementHistogram {
+
+  @Test
+  public void subMillisecondBucketsAndPercentiles() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHistogram.BUCKETS, "8");
+    props.setProperty(OneMeasurementHistogram.BUCKET_WIDTH, "250");
+    props.setProperty(OneMeasurementHistogram.PERCENTILES_PROPERTY, "99.9,50");
+    OneMeasurementHistogram m = new OneMeasurementHistogram("READ", props);
+    for (int i = 0; i < 1000; i++) {
+      m.measure(i * 2);
+    }
+
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(exporter.get("READ", "Operations"), 1000L);
+    assertEquals(exporter.get("READ", "MinLatency(us)"), 0);
+    assertEquals(exporter.get("READ", "MaxLatency(us)"), 1998);
+    assertEquals(exporter.get("READ", "50thPercentileLatency(us)"), 750);
+    assertEquals(exporter.get("READ", "99.9PercentileLatency(us)"), 1750);
+    assertFalse(exporter.getValues("READ").containsKey("95thPercentileLatency(us)"));
+    assertEquals(exporter.get("READ", "0"), 125L);
+    assertEquals(exporter.get("READ", "0.25"), 125L);
+    assertEquals(exporter.get("READ", "1.75"), 125L);
+    assertEquals(exporter.get("READ", ">2"), 0L);
+  }
+
+  @Test
+  public void intervalsEndWhileRecording() throws Exception {
+    final OneMeasurementHistogram m = new OneMeasurementHistogram("READ", new Properties());
+    final int threads = 4;
+    final int ops = 100000;
+    List<Thread> recorders = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      recorders.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < ops; i++) {
+            m.measure(i % 5000);
+          }
+        }
+      });
+    }
+    for (Thread t : recorders) {
+      t.start();
+    }
+    boolean recording = true;
+    while (recording) {
+      m.getSummary();
+      recording = false;
+      for (Thread t : recorders) {
+        recording |= t.isAlive();
+      }
+    }
+
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    long buckets = 0;
+    for (int i = 0; i < 1000; i++) {
+      buckets += exporter.get("READ", Integer.toString(i)).longValue();
+    }
+    assertEquals(exporter.get("READ", "Operations"), (long) threads * ops);
+    assertEquals(buckets, (long) threads * ops);
+    assertEquals(exporter.get("READ", "MaxLatency(us)"), 4999);
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.annotations.Test;
+
+public class TestOneMeasurementRaw {
+
+  @Test
+  public void exactPercentilesOverSpilledChunks() throws IOException {
+    File output = File.createTempFile("raw", ".csv.gz");
+    output.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    props.setProperty(OneMeasurementRaw.OFF_HEAP, "true");
+    OneMeasurementRaw m = new OneMeasurementRaw("READ", props);
+    OneMeasurement.Shard shard = m.newShard();
+
+    // Several chunks, with latencies spread over many of the upper 16 bit buckets.
+    int count = 3 * OneMeasurementRaw.CHUNK_RECORDS + 17;
+    int[] latencies = new int[count];
+    Random random = new Random(7);
+    for (int i = 0; i < count; i++) {
+      latencies[i] = random.nextInt(1 << 20);
+      if (i % 2 == 0) {
+        m.measure(latencies[i]);
+      } else {
+        shard.measure(latencies[i]);
+      }
+    }
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+
+    Arrays.sort(latencies);
+    assertEquals(exporter.get("READ", "Total Operations"), (long) count);
+    assertEquals(exporter.get("READ", "Min"), latencies[0]);
+    assertEquals(exporter.get("READ", "Max"), latencies[count - 1]);
+    assertEquals(exporter.get("READ", "p50"), latencies[(int) (count * 0.5)]);
+    assertEquals(exporter.get("READ", "p99"), latencies[(int) (count * 0.99)]);
+    assertEquals(exporter.get("READ", "p99.99"), latencies[(int) (count * 0.9999)]);
+
+    int lines = 0;
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(new FileInputStream(output)), StandardCharsets.UTF_8))) {
+      assertEquals(in.readLine(), "READ latency raw data: op, timestamp(ms), latency(us)");
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        assertEquals(line.split(",")[0], "READ");
+        lines++;
+      }
+    }
+    assertEquals(lines, count);
+  }
+
+  @Test(timeOut = 60000)
+  public void measurementsSharingAFileKeepTheirRowsTogether() throws IOException {
+    File output = File.createTempFile("raw", ".csv");
+    output.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    props.setProperty(OneMeasurementRaw.NO_SUMMARY_STATS, "true");
+    OneMeasurementRaw read = new OneMeasurementRaw("READ", props);
+    OneMeasurementRaw update = new OneMeasurementRaw("UPDATE", props);
+    int count = 2 * OneMeasurementRaw.CHUNK_RECORDS + 5;
+    for (int i = 0; i < count; i++) {
+      read.measure(i);
+      update.measure(i);
+    }
+    update.exportMeasurements(new MapExporter());
+    read.exportMeasurements(new MapExporter());
+
+    // Recording after the export drops the data points rather than waiting for the finished writer.
+    for (int i = 0; i < 70 * OneMeasurementRaw.CHUNK_RECORDS; i++) {
+      read.measure(i);
+    }
+
+    List<String> names = new ArrayList<>();
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(
+        new FileInputStream(output), StandardCharsets.UTF_8))) {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        String name = line.split("[ ,]")[0];
+        if (names.isEmpty() || !names.get(names.size() - 1).equals(name)) {
+          names.add(name);
+        }
+      }
+    }
+    assertEquals(names, Arrays.asList("READ", "UPDATE"));
+  }
+
+  @Test(timeOut = 60000)
+  public void discardDeletesTheSpillFile() throws IOException {
+    File dir = Files.createTempDirectory("raw").toFile();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.SPILL_DIR, dir.getPath());
+    OneMeasurementRaw m = new OneMeasurementRaw("READ", props);
+    for (int i = 0; i < 2 * OneMeasurementRaw.CHUNK_RECORDS; i++) {
+      m.measure(i);
+    }
+    m.discard();
+    assertEquals(dir.list().length, 0);
+    dir.delete();
+  }
+}
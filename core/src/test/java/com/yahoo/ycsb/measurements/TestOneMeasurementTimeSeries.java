@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2017 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class TestOneMeasurementTimeSeries {
+
+  @Test
+  public void windowsArePercentiles() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementTimeSeries.GRANULARITY, "3600000");
+    OneMeasurementTimeSeries m = new OneMeasurementTimeSeries("READ", props);
+    for (int i = 1; i <= 1000; i++) {
+      m.measure(i);
+    }
+    m.endWindow();
+    // An empty window, then a stall.
+    m.endWindow();
+    for (int i = 0; i < 99; i++) {
+      m.measure(10);
+    }
+    m.measure(50000);
+
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(exporter.get("READ", "Operations"), 1100L);
+    assertEquals(exporter.get("READ", "MaxLatency(us)"), 50000);
+
+    long windows = 0;
+    long counted = 0;
+    long stall = 0;
+    for (Map.Entry<String, Number> value : exporter.getValues("READ").entrySet()) {
+      if (value.getKey().endsWith(":count")) {
+        windows++;
+        counted += value.getValue().longValue();
+      } else if (value.getKey().endsWith(":max")) {
+        stall = Math.max(stall, value.getValue().longValue());
+      }
+    }
+    assertEquals(windows, 2);
+    assertEquals(counted, 1100);
+    assertTrue(stall >= 50000 && stall < 50100, exporter.toString());
+    assertEquals(exporter.get("READ", "0:p50").longValue(), 500, 1);
+    assertEquals(exporter.get("READ", "7200000:count").longValue(), 100);
+  }
+}
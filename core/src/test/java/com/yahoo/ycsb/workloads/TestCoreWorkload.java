@@ -16,13 +16,26 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.testng.annotations.Test;
 
-import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.Workload.Operation;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AliasGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
 
 public class TestCoreWorkload {
 
@@ -34,21 +47,21 @@ public class TestCoreWorkload {
     p.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.20");
     p.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, "0.20");
     p.setProperty(CoreWorkload.READMODIFYWRITE_PROPORTION_PROPERTY, "0.20");
-    final DiscreteGenerator generator = CoreWorkload.createOperationGenerator(p);
+    final AliasGenerator<Operation> generator = CoreWorkload.createOperationGenerator(p);
     final int[] counts = new int[5];
     
     for (int i = 0; i < 100; ++i) {
-      switch (generator.nextString()) {
-      case "READ":
+      switch (generator.nextValue()) {
+      case READ:
         ++counts[0];
         break;
-      case "UPDATE":
+      case UPDATE:
         ++counts[1];
         break;
-      case "INSERT": 
+      case INSERT: 
         ++counts[2];
         break;
-      case "SCAN":
+      case SCAN:
         ++counts[3];
         break;
       default:
@@ -67,4 +80,84 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void stridedTransactionInserts() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "100");
+    p.setProperty(CoreWorkload.INSERT_STRIDE_PROPERTY, "3");
+    p.setProperty(CoreWorkload.INSERT_OFFSET_PROPERTY, "2");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    assertEquals(workload.transactionKeynum(99), 99);
+    assertEquals(workload.transactionKeynum(100), 102);
+    assertEquals(workload.transactionKeynum(101), 105);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void insertOffsetWithinStride() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty(CoreWorkload.INSERT_STRIDE_PROPERTY, "2");
+    p.setProperty(CoreWorkload.INSERT_OFFSET_PROPERTY, "2");
+    new CoreWorkload().init(p);
+  }
+
+  @Test
+  public void keysBeyondIntegerRange() throws Exception {
+    final Properties p = new Properties();
+    p.setProperty("recordcount", "6000000000");
+    p.setProperty(CoreWorkload.INSERT_START_PROPERTY, "5000000000");
+    p.setProperty(CoreWorkload.INSERT_COUNT_PROPERTY, "1000");
+    p.setProperty(CoreWorkload.INSERT_ORDER_PROPERTY, "ordered");
+    p.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "uniform");
+    Measurements.setProperties(p);
+    final CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+
+    final List<String> keys = new ArrayList<>();
+    DB db = new DB() {
+      @Override
+      public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+        keys.add(key);
+        return Status.OK;
+      }
+
+      @Override
+      public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+          Vector<HashMap<String, ByteIterator>> result) {
+        return Status.OK;
+      }
+
+      @Override
+      public Status update(String table, String key, Map<String, ByteIterator> values) {
+        return Status.OK;
+      }
+
+      @Override
+      public Status insert(String table, String key, Map<String, ByteIterator> values) {
+        keys.add(key);
+        return Status.OK;
+      }
+
+      @Override
+      public Status delete(String table, String key) {
+        return Status.OK;
+      }
+    };
+
+    assertTrue(workload.doInsert(db, null));
+    assertTrue(workload.doInsert(db, null));
+    assertEquals(keys.get(0), "user5000000000");
+    assertEquals(keys.get(1), "user5000000001");
+
+    keys.clear();
+    for (int i = 0; i < 100; i++) {
+      workload.doTransactionRead(db);
+    }
+    for (String key : keys) {
+      long keynum = Long.parseLong(key.substring("user".length()));
+      assertTrue(keynum >= 5000000000L && keynum < 5000001000L, key);
+    }
+  }
+}
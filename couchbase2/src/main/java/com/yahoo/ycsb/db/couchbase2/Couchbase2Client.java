@@ -52,8 +52,8 @@ import com.couchbase.client.java.error.TemporaryFailureException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.transcoder.JacksonTransformers;
 import com.couchbase.client.java.util.Blocking;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
-import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.StringByteIterator;
@@ -66,6 +66,7 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -96,8 +97,11 @@ import java.util.concurrent.locks.LockSupport;
  * <li><b>couchbase.documentExpiry=0</b> Document Expiry is the amount of time until a document expires in
  *      Couchbase.</li>
  * </ul>
+ *
+ * <p> When the client runs with "async=true", Key/Value operations are issued without blocking the client
+ * thread. N1QL operations and scans are still performed synchronously.
  */
-public class Couchbase2Client extends DB {
+public class Couchbase2Client extends AsyncDB {
 
   static {
     // No need to send the full encoded_plan for this benchmark workload, less network overhead!
@@ -703,6 +707,121 @@ public class Couchbase2Client extends DB {
     return Status.OK;
   }
 
+  @Override
+  public CompletableFuture<Status> readAsync(final String table, final String key, final Set<String> fields,
+                                             final Map<String, ByteIterator> result) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    }
+
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    bucket.async()
+        .get(formatId(table, key), RawJsonDocument.class)
+        .timeout(kvTimeout, TimeUnit.MILLISECONDS)
+        .subscribe(new Subscriber<RawJsonDocument>() {
+          @Override
+          public void onCompleted() {
+            future.complete(Status.NOT_FOUND);
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            e.printStackTrace();
+            future.complete(Status.ERROR);
+          }
+
+          @Override
+          public void onNext(RawJsonDocument document) {
+            try {
+              decode(document.content(), fields, result);
+              future.complete(Status.OK);
+            } catch (RuntimeException ex) {
+              onError(ex);
+            }
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<Status> scanAsync(final String table, final String startkey, final int recordcount,
+      final Set<String> fields, final Vector<HashMap<String, ByteIterator>> result) {
+    return CompletableFuture.completedFuture(scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> updateAsync(final String table, final String key,
+                                               final Map<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(update(table, key, values));
+    }
+    final RawJsonDocument document = RawJsonDocument.create(formatId(table, key), documentExpiry, encode(values));
+    return mutationFuture(upsert
+        ? bucket.async().upsert(document, persistTo, replicateTo)
+        : bucket.async().replace(document, persistTo, replicateTo));
+  }
+
+  /**
+   * Performs the {@link #insert(String, String, Map)} operation without blocking.
+   *
+   * Unlike the synchronous path, TMPFAILs are not retried but reported as errors, since backing off
+   * would stall the client thread.
+   */
+  @Override
+  public CompletableFuture<Status> insertAsync(final String table, final String key,
+                                               final Map<String, ByteIterator> values) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    final RawJsonDocument document = RawJsonDocument.create(formatId(table, key), documentExpiry, encode(values));
+    return mutationFuture(upsert
+        ? bucket.async().upsert(document, persistTo, replicateTo)
+        : bucket.async().insert(document, persistTo, replicateTo));
+  }
+
+  @Override
+  public CompletableFuture<Status> deleteAsync(final String table, final String key) {
+    if (!kv) {
+      return CompletableFuture.completedFuture(delete(table, key));
+    }
+    return mutationFuture(bucket.async().remove(formatId(table, key), persistTo, replicateTo));
+  }
+
+  /**
+   * Helper method to turn a mutation response into a future, the non-blocking counterpart of
+   * {@link #waitForMutationResponse(Observable)}.
+   *
+   * @param input the async input observable.
+   * @return a future completed once the mutation has been acknowledged.
+   */
+  private CompletableFuture<Status> mutationFuture(final Observable<? extends Document<?>> input) {
+    if (!syncMutResponse) {
+      waitForMutationResponse(input);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    ((Observable<Document<?>>)input)
+        .timeout(kvTimeout, TimeUnit.MILLISECONDS)
+        .subscribe(new Subscriber<Document<?>>() {
+          @Override
+          public void onCompleted() {
+            future.complete(Status.OK);
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            e.printStackTrace();
+            future.complete(Status.ERROR);
+          }
+
+          @Override
+          public void onNext(Document<?> document) {
+          }
+        });
+    return future;
+  }
+
   /**
    * Helper method to block on the response, depending on the property set.
    *
@@ -18,6 +18,7 @@ package com.yahoo.ycsb.db;
 
 import static com.allanbank.mongodb.builder.QueryBuilder.where;
 
+import com.allanbank.mongodb.Callback;
 import com.allanbank.mongodb.Durability;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.MongoClient;
@@ -38,6 +39,7 @@ import com.allanbank.mongodb.builder.BatchedWrite;
 import com.allanbank.mongodb.builder.BatchedWriteMode;
 import com.allanbank.mongodb.builder.Find;
 import com.allanbank.mongodb.builder.Sort;
+import com.yahoo.ycsb.AsyncDB;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
@@ -49,6 +51,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -58,12 +61,18 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * See the <code>README.md</code> for configuration information.
  * </p>
+ * <p>
+ * When the client runs with <code>async=true</code>, reads of whole documents,
+ * single inserts, updates and deletes are issued through the driver's callback
+ * API so the client thread can keep several operations in flight. Projected
+ * reads, scans and batched inserts are still performed synchronously.
+ * </p>
  *
  * @author rjm
  * @see <a href="http://www.allanbank.com/mongodb-async-driver/">Asynchronous
  *      Java Driver</a>
  */
-public class AsyncMongoDbClient extends DB {
+public class AsyncMongoDbClient extends AsyncDB {
 
   /** Used to include a field in a response. */
   protected static final int INCLUDE = 1;
@@ -469,6 +478,214 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  /**
+   * Read a record from the database without blocking.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to read.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A HashMap of field/value pairs for the result
+   * @return A future completed with the result of the operation.
+   */
+  @Override
+  public final CompletableFuture<Status> readAsync(final String table,
+      final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result) {
+    if (fields != null) {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final Document query = BuilderFactory.start().add("_id", key).build();
+      collection.findOneAsync(new Callback<Document>() {
+        @Override
+        public void callback(final Document queryResult) {
+          if (queryResult == null) {
+            future.complete(Status.NOT_FOUND);
+            return;
+          }
+          fillMap(result, queryResult);
+          future.complete(Status.OK);
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, query);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Scans are performed synchronously.
+   *
+   * @see #scan(String, String, int, Set, Vector)
+   */
+  @Override
+  public final CompletableFuture<Status> scanAsync(final String table,
+      final String startkey, final int recordcount, final Set<String> fields,
+      final Vector<HashMap<String, ByteIterator>> result) {
+    return CompletableFuture.completedFuture(
+        scan(table, startkey, recordcount, fields, result));
+  }
+
+  /**
+   * Update a record in the database without blocking.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to write.
+   * @param values
+   *          A HashMap of field/value pairs to update in the record
+   * @return A future completed with the result of the operation.
+   */
+  @Override
+  public final CompletableFuture<Status> updateAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final DocumentBuilder query = BuilderFactory.start().add("_id", key);
+      final DocumentBuilder update = BuilderFactory.start();
+      final DocumentBuilder fieldsToSet = update.push("$set");
+
+      for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        fieldsToSet.add(entry.getKey(), entry.getValue().toArray());
+      }
+      collection.updateAsync(new Callback<Long>() {
+        @Override
+        public void callback(final Long res) {
+          future.complete(writeConcern == Durability.NONE || res == 1
+              ? Status.OK : Status.NOT_FOUND);
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, query, update, false, false, writeConcern);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Insert a record in the database without blocking. With
+   * <code>mongodb.batchsize</code> above 1 the batched, synchronous path is
+   * used instead.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to insert.
+   * @param values
+   *          A HashMap of field/value pairs to insert in the record
+   * @return A future completed with the result of the operation.
+   */
+  @Override
+  public final CompletableFuture<Status> insertAsync(final String table,
+      final String key, final Map<String, ByteIterator> values) {
+    if (batchSize > 1) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final DocumentBuilder toInsert = BuilderFactory.start().add("_id", key);
+      final Document query = toInsert.build();
+      for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+        toInsert.add(entry.getKey(), entry.getValue().toArray());
+      }
+
+      if (useUpsert) {
+        collection.updateAsync(new Callback<Long>() {
+          @Override
+          public void callback(final Long result) {
+            future.complete(result == 1 ? Status.OK : Status.NOT_FOUND);
+          }
+
+          @Override
+          public void exception(final Throwable thrown) {
+            thrown.printStackTrace();
+            future.complete(Status.ERROR);
+          }
+        }, query, toInsert, /* multi= */false, /* upsert= */true, writeConcern);
+      } else {
+        // Return is not stable pre-SERVER-4381. No exception is success.
+        collection.insertAsync(new Callback<Integer>() {
+          @Override
+          public void callback(final Integer result) {
+            future.complete(Status.OK);
+          }
+
+          @Override
+          public void exception(final Throwable thrown) {
+            thrown.printStackTrace();
+            future.complete(Status.ERROR);
+          }
+        }, writeConcern, toInsert);
+      }
+    } catch (final Exception e) {
+      e.printStackTrace();
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Delete a record from the database without blocking.
+   *
+   * @param table
+   *          The name of the table
+   * @param key
+   *          The record key of the record to delete.
+   * @return A future completed with the result of the operation.
+   */
+  @Override
+  public final CompletableFuture<Status> deleteAsync(final String table,
+      final String key) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      final Document q = BuilderFactory.start().add("_id", key).build();
+      collection.deleteAsync(new Callback<Long>() {
+        @Override
+        public void callback(final Long res) {
+          if (res == 0) {
+            System.err.println("Nothing deleted for key " + key);
+            future.complete(Status.NOT_FOUND);
+          } else {
+            future.complete(Status.OK);
+          }
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, q, writeConcern);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
   /**
    * Fills the map with the ByteIterators from the document.
    * 